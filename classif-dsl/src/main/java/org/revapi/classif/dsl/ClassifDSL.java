@@ -31,17 +31,21 @@ import java.text.DecimalFormat;
 import java.text.DecimalFormatSymbols;
 import java.text.ParsePosition;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
 import java.util.function.Function;
 import java.util.regex.Pattern;
 
-import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.ANTLRErrorStrategy;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.BaseErrorListener;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.DefaultErrorStrategy;
 import org.antlr.v4.runtime.RecognitionException;
 import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.atn.PredictionMode;
 import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.TerminalNode;
 import org.revapi.classif.StructuralMatcher;
@@ -79,6 +83,7 @@ import org.revapi.classif.statement.GenericStatement;
 import org.revapi.classif.statement.MethodStatement;
 import org.revapi.classif.statement.TypeDefinitionStatement;
 import org.revapi.classif.match.Operator;
+import org.revapi.classif.util.Nullable;
 
 /**
  * Classif is a structural matcher for Java declarations. It supports variables and nested statements and is cool.
@@ -99,28 +104,31 @@ public final class ClassifDSL {
     }
 
     /**
-     * Compile a textural structural match into a matcher object.
+     * Compile a textural structural match into a matcher object. The program is compiled anew on every call, use
+     * {@link CompiledMatcherCache} when the same programs are compiled repeatedly.
      *
      * @param program a textual structural match "program" to be compiled into a matcher
      * @return a structural matcher to be used to match model elements against the provided program
      */
     public static StructuralMatcher compile(String program) {
-        ANTLRErrorListener errorListener = new BaseErrorListener() {
-            @Override
-            public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
-                    int charPositionInLine, String msg, RecognitionException e) {
-                throw new ParseCancellationException(ErrorFormatter.formatError(program, line, charPositionInLine, msg));
-            }
-        };
-
-        ClassifLexer lexer = new ClassifLexer(CharStreams.fromString(program));
-        lexer.removeErrorListeners();
-        lexer.addErrorListener(errorListener);
-        ClassifParser parser = new ClassifParser(new CommonTokenStream(lexer));
-        parser.removeErrorListeners();
-        parser.addErrorListener(errorListener);
+        return new Compiler().compile(program);
+    }
 
-        return parser.program().accept(ProgramVisitor.INSTANCE);
+    /**
+     * Compiles all the provided programs. This is equivalent to calling {@link #compile(String)} for each of the
+     * programs but reuses the same lexer and parser for all of them.
+     *
+     * @param programs the programs to compile
+     * @return the structural matchers in the same order as the programs
+     * @throws ParseCancellationException on the first program that fails to compile
+     */
+    public static List<StructuralMatcher> compileAll(Collection<String> programs) {
+        Compiler compiler = new Compiler();
+        List<StructuralMatcher> ret = new ArrayList<>(programs.size());
+        for (String program : programs) {
+            ret.add(compiler.compile(program));
+        }
+        return ret;
     }
 
     private static Pattern toRegex(TerminalNode node) {
@@ -185,6 +193,69 @@ public final class ClassifDSL {
         return op;
     }
     
+    /**
+     * Holds a lexer and a parser that are reused for all the programs of a single {@link #compileAll(Collection)} call.
+     * The DFA caches of the generated lexer and parser are static and therefore shared by all the instances. The input
+     * is detached after each program so that the compiler doesn't keep the last program and its tokens alive.
+     *
+     * <p>The programs are first parsed using the faster SLL prediction that bails out on the first error. Only if that
+     * fails, the program is parsed again using the full LL prediction which either succeeds (for the rare programs
+     * that SLL cannot handle) or reports the syntax error.
+     */
+    private static final class Compiler extends BaseErrorListener {
+        private final ClassifLexer lexer = new ClassifLexer(null);
+        private final ClassifParser parser = new ClassifParser(null);
+        private final ANTLRErrorStrategy bail = new BailErrorStrategy();
+        private final ANTLRErrorStrategy recover = new DefaultErrorStrategy();
+        private @Nullable String program;
+
+        Compiler() {
+            lexer.removeErrorListeners();
+            lexer.addErrorListener(this);
+            parser.removeErrorListeners();
+        }
+
+        StructuralMatcher compile(String program) {
+            this.program = program;
+            try {
+                lexer.setInputStream(CharStreams.fromString(program));
+                CommonTokenStream tokens = new CommonTokenStream(lexer);
+
+                // lexer errors are reported here so that they are not mistaken for the SLL parse failures below
+                tokens.fill();
+
+                parser.setTokenStream(tokens);
+                parser.removeErrorListeners();
+                parser.setErrorHandler(bail);
+                parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+
+                ClassifParser.ProgramContext tree;
+                try {
+                    tree = parser.program();
+                } catch (ParseCancellationException e) {
+                    parser.reset();
+                    parser.addErrorListener(this);
+                    parser.setErrorHandler(recover);
+                    parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+
+                    tree = parser.program();
+                }
+
+                return tree.accept(ProgramVisitor.INSTANCE);
+            } finally {
+                parser.setTokenStream(null);
+                lexer.setInputStream(null);
+                this.program = null;
+            }
+        }
+
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line, int charPositionInLine,
+                String msg, RecognitionException e) {
+            throw new ParseCancellationException(ErrorFormatter.formatError(program, line, charPositionInLine, msg));
+        }
+    }
+
     private static final class ProgramVisitor extends ClassifBaseVisitor<StructuralMatcher> {
         static final ProgramVisitor INSTANCE = new ProgramVisitor();
 
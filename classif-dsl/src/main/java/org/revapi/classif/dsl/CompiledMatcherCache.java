@@ -0,0 +1,212 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.antlr.v4.runtime.ANTLRErrorListener;
+import org.antlr.v4.runtime.BaseErrorListener;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.RecognitionException;
+import org.antlr.v4.runtime.Recognizer;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * A bounded, thread-safe cache of compiled structural matchers. The programs are keyed by their token stream, so
+ * programs that differ only in the amount of whitespace or in comments share the compiled matcher. The least recently
+ * used matchers are evicted once the cache grows over its maximum size.
+ *
+ * <p>The cached matchers are shared between all the callers of {@link #compile(String)}, which is safe, because
+ * the structural matchers are immutable and every matching is done using a new progress object.
+ */
+public final class CompiledMatcherCache {
+    private static final ANTLRErrorListener FAIL_ON_ERROR = new BaseErrorListener() {
+        @Override
+        public void syntaxError(Recognizer<?, ?> recognizer, Object offendingSymbol, int line,
+                int charPositionInLine, String msg, RecognitionException e) {
+            throw new ParseCancellationException(msg);
+        }
+    };
+
+    private final int maximumSize;
+    private final Map<String, StructuralMatcher> matchers;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maximumSize the maximum number of compiled matchers kept in the cache
+     */
+    public CompiledMatcherCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the cache must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+        this.matchers = new LinkedHashMap<String, StructuralMatcher>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, StructuralMatcher> eldest) {
+                if (size() > CompiledMatcherCache.this.maximumSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached matcher of an equivalent program or compiles the program using
+     * {@link ClassifDSL#compile(String)} and caches the result. Programs that fail to compile are not cached.
+     *
+     * @param program the program to compile
+     * @return the structural matcher of the program
+     */
+    public StructuralMatcher compile(String program) {
+        String key = normalize(program);
+        if (key == null) {
+            // let the compiler report the error
+            return ClassifDSL.compile(program);
+        }
+
+        StructuralMatcher ret;
+        synchronized (matchers) {
+            ret = matchers.get(key);
+        }
+
+        if (ret != null) {
+            hits.incrementAndGet();
+            return ret;
+        }
+
+        misses.incrementAndGet();
+
+        // compile outside of the lock so that other programs can be looked up in the meantime
+        StructuralMatcher compiled = ClassifDSL.compile(program);
+
+        synchronized (matchers) {
+            ret = matchers.putIfAbsent(key, compiled);
+        }
+
+        return ret == null ? compiled : ret;
+    }
+
+    /**
+     * @return the maximum number of compiled matchers kept in the cache
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of compiled matchers currently in the cache
+     */
+    public int size() {
+        synchronized (matchers) {
+            return matchers.size();
+        }
+    }
+
+    /**
+     * Removes all the compiled matchers from the cache. The statistics are not reset.
+     */
+    public void clear() {
+        synchronized (matchers) {
+            matchers.clear();
+        }
+    }
+
+    /**
+     * @return the number of compilations answered from the cache
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of compilations that needed to compile the program
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of compiled matchers evicted from the cache because it was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the ratio of the hits to all the compilations or 0 if there were no compilations yet
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledMatcherCache{" + "size=" + size() + ", maximumSize=" + maximumSize + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + '}';
+    }
+
+    /**
+     * Turns the program into a string of its tokens. The comments are skipped by the lexer and the runs of whitespace
+     * are collapsed into a single space. Whitespace is significant in the grammar, so it is not removed completely.
+     * The other tokens are prefixed with their type and length so that the key stays unambiguous even when a comment
+     * was the only thing separating two tokens.
+     *
+     * @return the normalized program or null if the program cannot be tokenized
+     */
+    static @Nullable String normalize(String program) {
+        ClassifLexer lexer = new ClassifLexer(CharStreams.fromString(program));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(FAIL_ON_ERROR);
+
+        StringBuilder sb = new StringBuilder(program.length() + 16);
+        boolean leading = true;
+        boolean pendingWhitespace = false;
+        try {
+            for (Token t = lexer.nextToken(); t.getType() != Token.EOF; t = lexer.nextToken()) {
+                if (t.getType() == ClassifLexer.WS) {
+                    pendingWhitespace = !leading;
+                    continue;
+                }
+
+                if (pendingWhitespace) {
+                    sb.append(' ');
+                    pendingWhitespace = false;
+                }
+                leading = false;
+
+                String text = t.getText();
+                sb.append(t.getType()).append(':').append(text.length()).append(':').append(text);
+            }
+        } catch (ParseCancellationException e) {
+            return null;
+        }
+
+        return sb.toString();
+    }
+}
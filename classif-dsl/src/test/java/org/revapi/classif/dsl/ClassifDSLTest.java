@@ -0,0 +1,75 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.Test;
+import org.revapi.classif.StructuralMatcher;
+
+class ClassifDSLTest {
+
+    private static final List<String> PROGRAMS = asList(
+            "@Anno(a = 'x') ^;",
+            "!@Anno ^;",
+            "class ^pkg.* {}",
+            "interface ^pkg.** {}",
+            "match %e; @Unstable type %e=* {} @Stable * uses %e;",
+            "^ directly uses %impl; type %impl=* directly implements Iface {}",
+            "#strictHierarchy;\nclass ^a.A { public void m(); }");
+
+    @Test
+    void testCompileAllSameAsCompile() {
+        List<StructuralMatcher> all = ClassifDSL.compileAll(PROGRAMS);
+
+        assertEquals(PROGRAMS.size(), all.size());
+        for (int i = 0; i < PROGRAMS.size(); ++i) {
+            StructuralMatcher single = ClassifDSL.compile(PROGRAMS.get(i));
+            assertEquals(statements(single), statements(all.get(i)));
+            assertEquals(single.getConfiguration().isStrictHierarchy(),
+                    all.get(i).getConfiguration().isStrictHierarchy());
+        }
+    }
+
+    @Test
+    void testSyntaxErrorsReportedAfterReuse() {
+        ClassifDSL.compile("class ^a {}");
+
+        ParseCancellationException e = assertThrows(ParseCancellationException.class,
+                () -> ClassifDSL.compileAll(asList("class ^a {}", "class ^b {", "class ^c {}")));
+        assertTrue(e.getMessage().contains("class ^b {"));
+
+        assertThrows(ParseCancellationException.class, () -> ClassifDSL.compile("class ^a {} //"));
+
+        // the reused parser is not left in a broken state
+        assertEquals(statements(ClassifDSL.compile("class ^a {}")), statements(ClassifDSL.compile("class ^a {}")));
+    }
+
+    private static Set<String> statements(StructuralMatcher matcher) {
+        // the order of the independent statements in the string representation is not stable
+        return new HashSet<>(asList(matcher.toString().split("\n")));
+    }
+}
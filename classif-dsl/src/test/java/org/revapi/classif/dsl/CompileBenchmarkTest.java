@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Measures the compilation throughput. Run with {@code -Dclassif.benchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "classif.benchmark", matches = "true")
+class CompileBenchmarkTest {
+    private static final Logger LOG = LogManager.getLogger(CompileBenchmarkTest.class);
+
+    private static final int PROGRAMS = 5_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void benchmarkCompilation() {
+        List<String> programs = generatePrograms();
+
+        for (int round = 0; round < ROUNDS; ++round) {
+            long start = System.nanoTime();
+            for (String program : programs) {
+                ClassifDSL.compile(program);
+            }
+            report("compile", round, start);
+
+            start = System.nanoTime();
+            ClassifDSL.compileAll(programs);
+            report("compileAll", round, start);
+        }
+    }
+
+    private static void report(String method, int round, long start) {
+        double seconds = (System.nanoTime() - start) / 1e9;
+        LOG.info(String.format("%s, round %d: %.0f programs/second", method, round, PROGRAMS / seconds));
+    }
+
+    private static List<String> generatePrograms() {
+        List<String> ret = new ArrayList<>(PROGRAMS);
+        for (int i = 0; i < PROGRAMS; ++i) {
+            switch (i % 4) {
+            case 0:
+                ret.add("@com.acme.Internal" + i + " ^;");
+                break;
+            case 1:
+                ret.add("class ^com.acme.pkg" + i + ".** {}");
+                break;
+            case 2:
+                ret.add("match %t; @com.acme.Stable type %t=com.acme.Type" + i
+                        + " extends java.lang.Object {} @com.acme.Beta * uses %t;");
+                break;
+            default:
+                ret.add("class ^com.acme.Type" + i + " { public void method" + i
+                        + "(int, java.lang.String); @java.lang.Deprecated java.lang.String field" + i + "; }");
+            }
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.junit.jupiter.api.Test;
+import org.revapi.classif.StructuralMatcher;
+
+class CompiledMatcherCacheTest {
+
+    @Test
+    void testEquivalentProgramsShareMatcher() {
+        CompiledMatcherCache cache = new CompiledMatcherCache(10);
+
+        StructuralMatcher first = cache.compile("class ^java.lang.Object {}");
+        StructuralMatcher second = cache.compile("  class   ^java.lang.Object\n{} // the root\n");
+
+        assertSame(first, second);
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    @Test
+    void testWhitespaceKeptSignificant() {
+        assertNotEquals(CompiledMatcherCache.normalize("class ^a{}"), CompiledMatcherCache.normalize("class ^a {}"));
+        assertNotEquals(CompiledMatcherCache.normalize("@A(a='x') ^;"),
+                CompiledMatcherCache.normalize("@A(a='x ') ^;"));
+        assertEquals(CompiledMatcherCache.normalize("class ^a {}"), CompiledMatcherCache.normalize("class\t^a\n\n{}"));
+    }
+
+    @Test
+    void testLeastRecentlyUsedEvicted() {
+        CompiledMatcherCache cache = new CompiledMatcherCache(2);
+
+        StructuralMatcher a = cache.compile("class ^a {}");
+        cache.compile("class ^b {}");
+        cache.compile("class ^a {}");
+        cache.compile("class ^c {}");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertSame(a, cache.compile("class ^a {}"));
+
+        long misses = cache.getMisses();
+        cache.compile("class ^b {}");
+        assertEquals(misses + 1, cache.getMisses());
+    }
+
+    @Test
+    void testInvalidProgramsNotCached() {
+        CompiledMatcherCache cache = new CompiledMatcherCache(2);
+
+        assertThrows(ParseCancellationException.class, () -> cache.compile("class {"));
+        assertThrows(ParseCancellationException.class, () -> cache.compile("class ^a {} //"));
+        assertNull(CompiledMatcherCache.normalize("class ^a {} //"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testConcurrentCompilation() throws Exception {
+        CompiledMatcherCache cache = new CompiledMatcherCache(4);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<StructuralMatcher>> results = new ArrayList<>();
+            for (int i = 0; i < 100; ++i) {
+                String program = "class ^a" + (i % 3) + " {}";
+                results.add(executor.submit(() -> cache.compile(program)));
+            }
+
+            for (int i = 3; i < results.size(); ++i) {
+                assertSame(results.get(i % 3).get(), results.get(i).get());
+            }
+            assertNotSame(results.get(0).get(), results.get(1).get());
+            assertEquals(100, cache.getHits() + cache.getMisses());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
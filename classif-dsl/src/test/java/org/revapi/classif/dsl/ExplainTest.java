@@ -0,0 +1,113 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import static org.revapi.classif.Explanation.Deferral.NONE;
+import static org.revapi.classif.Explanation.Deferral.UNTIL_FINISH;
+import static org.revapi.classif.Explanation.Deferral.UNTIL_PARENT_FINISHED;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.revapi.classif.Explanation;
+
+class ExplainTest {
+
+    @Test
+    void testSingleStatement() {
+        Explanation expl = ClassifDSL.compile("class ^a.A directly extends java.lang.Object {}").explain();
+
+        assertEquals(Explanation.Strategy.SINGLE_STATEMENT, expl.getStrategy());
+        assertEquals(1, expl.getStatements().size());
+        assertEquals(NONE, expl.getStatements().get(0).getDeferral());
+        assertTrue(expl.getDeferredStatements().isEmpty());
+        assertTrue(expl.getRecursiveMatches().isEmpty());
+        assertEquals(0, expl.getWorstCaseFanOutExponent());
+        assertEquals(0, expl.getWorstCaseCombinations(1000));
+    }
+
+    @Test
+    void testHierarchy() {
+        Explanation expl = ClassifDSL.compile("class a.A { public void ^m(); }").explain();
+
+        assertEquals(Explanation.Strategy.HIERARCHY, expl.getStrategy());
+        assertEquals(2, expl.getStatements().size());
+
+        Explanation.StatementExplanation cls = expl.getStatements().get(0);
+        Explanation.StatementExplanation method = expl.getStatements().get(1);
+
+        assertEquals(0, cls.getDepth());
+        assertFalse(cls.isReturning());
+        assertEquals(NONE, cls.getDeferral());
+
+        assertEquals(1, method.getDepth());
+        assertTrue(method.isReturning());
+        assertEquals(UNTIL_PARENT_FINISHED, method.getDeferral());
+        assertEquals(0, expl.getWorstCaseCombinations(1000));
+    }
+
+    @Test
+    void testVariableBinding() {
+        Explanation expl = ClassifDSL.compile(
+                "class ^* extends %a uses %b {} class %a=* {} class %b=* directly uses %c {} class %c=* {}").explain();
+
+        assertEquals(Explanation.Strategy.VARIABLE_BINDING, expl.getStrategy());
+        assertEquals(4, expl.getDeferredStatements().size());
+        assertTrue(expl.getStatements().stream().allMatch(s -> s.getDeferral() == UNTIL_FINISH));
+
+        Explanation.StatementExplanation ret = expl.getStatements().get(0);
+        assertTrue(ret.isReturning());
+        assertEquals(asList("a", "b", "c"), ret.getBindingVariables());
+        assertEquals(asList("extends %a", "uses %b"), toStrings(ret.getRecursiveMatches()));
+
+        assertEquals(asList("extends %a", "uses %b", "directly uses %c"), toStrings(expl.getRecursiveMatches()));
+
+        assertEquals(3, expl.getWorstCaseFanOutExponent());
+        assertEquals(1_000_000_000L, expl.getWorstCaseCombinations(1000));
+        assertEquals(Long.MAX_VALUE, expl.getWorstCaseCombinations(Long.MAX_VALUE / 2));
+    }
+
+    @Test
+    void testDirectSuperTypesNotRecursive() {
+        Explanation expl = ClassifDSL.compile(
+                "class ^* directly extends %a directly implements %b {} class %a=* {} interface %b=* {}").explain();
+
+        assertTrue(expl.getRecursiveMatches().isEmpty());
+        assertEquals(2, expl.getWorstCaseFanOutExponent());
+    }
+
+    @Test
+    void testReport() {
+        String report = ClassifDSL.compile("match %e; @Unstable type %e=* {} @Stable * uses %e;").explain()
+                .toString();
+
+        assertTrue(report.contains("strategy: VARIABLE_BINDING"), report);
+        assertTrue(report.contains("worst-case bindings per deferred model: n^1"), report);
+        assertTrue(report.contains("recursive matches: uses %e"), report);
+    }
+
+    private static List<String> toStrings(List<?> objects) {
+        return objects.stream().map(Object::toString).collect(toList());
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.dsl;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.revapi.classif.MatcherSerialization;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.support.Tester;
+import org.revapi.classif.support.Tester.Hierarchy;
+import org.revapi.testjars.CompiledJar;
+import org.revapi.testjars.junit5.CompiledJarExtension;
+import org.revapi.testjars.junit5.JarSources;
+
+@TestInstance(PER_CLASS)
+@ExtendWith(CompiledJarExtension.class)
+class MatcherSerializationTest {
+
+    private static final List<String> PROGRAMS = asList(
+            "@a.Anno(a = 'x') ^;",
+            "!@a.Anno ^;",
+            "class ^!/p[kK]g/.* {}",
+            "type ^**./.*Private/ {}",
+            "match %e; @Unstable type %e=* {} @Stable * uses %e;",
+            "@Unstable type ^ usedby %c {} @Stable %c=*;",
+            "^ uses %impl; type %impl=* directly implements Iface {}",
+            "class * extends %b implements %i {\n  @%a\n  ^m(**);\n}\nclass %b=x.y.* extends java.io.InputStream {}\n"
+                    + "interface %i=* {\n  k(**);\n}\n@interface %a=* {\n    int attr() default = 3;\n}",
+            "@MyAnnotation(stringAttribute = 'val', intAttribute > 3, typeAttribute != java.lang.Object.class, "
+                    + "enumAttribute = MyEnum.VALUE, arrayAttribute = {1, 2}, "
+                    + "annotationAttribute = @MyOtherAnnotation(attribute = 42)) class * {}",
+            "@javax.persistence.Entity(name != default) class * {}",
+            "@com.acme.Acme(**) type * {}",
+            "@java.lang.annotation.Target(value = {java.lang.annotation.ElementType.TYPE, **}) @interface * {}",
+            "@A(d = 1.5, b = true, r = /x.*/) !public|static type * {}",
+            "type ^*<**, ? extends *[], **> {}",
+            "type ^* exactly implements java.io.Serializable, java.lang.Cloneable {}",
+            "#strictHierarchy;\ntype * {\n  type * {}\n}",
+            "class * {\n  !void /set.*/(*);\n  methodWithIntAndPossiblySomeOtherParameters(int, **);\n"
+                    + "  *(@javax.enterprise.event.Observes *);\n}",
+            "class * {\n  ^*(**) throws %e;\n}\nclass %e=* extends java.lang.RuntimeException {}",
+            "class * {\n  ^*(**) overrides from java.lang.Object;\n  ^*() default = {*, *, **};\n  public !final *;\n"
+                    + "  public ^*(**) uses sun.misc.Unsafe;\n  java.lang.String ^f uses %u;\n}\ntype %u=* {}",
+            "match %type | %method | %field;\n@Stable type %type=* uses %unstable {\n"
+                    + "  public %method=*(**) uses %unstable;\n  public %field=* uses %unstable;\n}\n"
+                    + "@Unstable public|protected type %unstable=* {}");
+
+    @JarSources(root = "/sources/examples/", sources = {"Anno.java", "Stable.java", "Unstable.java", "Iface.java",
+            "Example7.java", "Example8.java", "Example9.java", "Example10.java"})
+    private CompiledJar.Environment env;
+
+    @Test
+    void testRoundTrip() throws IOException {
+        List<StructuralMatcher> matchers = ClassifDSL.compileAll(PROGRAMS);
+
+        List<StructuralMatcher> loaded = MatcherSerialization.read(ByteBuffer.wrap(serialize(matchers)));
+
+        assertEquals(matchers.size(), loaded.size());
+        for (int i = 0; i < matchers.size(); ++i) {
+            assertEquals(statements(matchers.get(i)), statements(loaded.get(i)), PROGRAMS.get(i));
+            assertEquals(matchers.get(i).getConfiguration().isStrictHierarchy(),
+                    loaded.get(i).getConfiguration().isStrictHierarchy());
+        }
+    }
+
+    @Test
+    void testLoadedMatcherMatchesTheSame() throws IOException {
+        Hierarchy.RootBuilder hierarchy = Hierarchy.builder();
+        for (String type : asList("any.pkg.Example7", "Example8", "Example9", "Example10", "Stable", "Unstable")) {
+            TypeElement el = env.elements().getTypeElement(type);
+            Hierarchy.Builder<Hierarchy.RootBuilder> bld = hierarchy.start(el);
+            el.getEnclosedElements().forEach(bld::add);
+            bld.end();
+        }
+        Hierarchy tree = hierarchy.build();
+
+        boolean anyPassed = false;
+        for (String program : asList(PROGRAMS.get(4), PROGRAMS.get(5), PROGRAMS.get(6), PROGRAMS.get(19))) {
+            StructuralMatcher matcher = ClassifDSL.compile(program);
+            StructuralMatcher loaded = MatcherSerialization.read(ByteBuffer.wrap(serialize(singletonList(matcher))))
+                    .get(0);
+
+            Map<Element, TestResult> expected = Tester.test(env, matcher, tree);
+            assertEquals(expected, Tester.test(env, loaded, tree), program);
+            anyPassed |= expected.containsValue(TestResult.PASSED);
+        }
+
+        assertTrue(anyPassed);
+    }
+
+    @Test
+    void testReadFromMappedFile() throws IOException {
+        Path file = Files.createTempFile("matchers", ".bin");
+        try {
+            List<StructuralMatcher> matchers = ClassifDSL.compileAll(PROGRAMS);
+            Files.write(file, serialize(matchers));
+
+            List<StructuralMatcher> loaded = MatcherSerialization.read(file);
+
+            assertEquals(statements(matchers.get(7)), statements(loaded.get(7)));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void testInvalidDataRefused() throws IOException {
+        byte[] data = serialize(singletonList(ClassifDSL.compile(PROGRAMS.get(0))));
+
+        byte[] otherVersion = data.clone();
+        otherVersion[5]++;
+        assertThrows(IllegalArgumentException.class, () -> MatcherSerialization.read(ByteBuffer.wrap(otherVersion)));
+
+        assertThrows(IllegalArgumentException.class, () -> MatcherSerialization.read(ByteBuffer.wrap(new byte[3])));
+
+        byte[] truncated = new byte[data.length - 2];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(IllegalArgumentException.class, () -> MatcherSerialization.read(ByteBuffer.wrap(truncated)));
+    }
+
+    private static byte[] serialize(List<StructuralMatcher> matchers) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MatcherSerialization.write(matchers, out);
+        return out.toByteArray();
+    }
+
+    private static Set<String> statements(StructuralMatcher matcher) {
+        // the order of the independent statements in the string representation is not stable
+        return new HashSet<>(asList(matcher.toString().split("\n")));
+    }
+}
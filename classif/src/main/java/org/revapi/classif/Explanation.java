@@ -0,0 +1,388 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.revapi.classif.match.Match;
+import org.revapi.classif.progress.MatchingProgress;
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.execution.DependencyGraph;
+import org.revapi.classif.util.execution.Node;
+import org.revapi.classif.util.execution.StatementWrapper;
+
+/**
+ * Describes how a structural matcher is going to be evaluated so that the potentially expensive recipes can be
+ * recognized (and rejected or rewritten) before they are matched against large models. An instance can be obtained
+ * using {@link StructuralMatcher#explain()}.
+ *
+ * <p>The explanation is derived purely from the structure of the recipe. The actual cost of the matching depends on the
+ * models, which is why the worst case of the binding resolution is expressed in terms of the number of the candidates
+ * of each variable (see {@link #getWorstCaseCombinations(long)}).
+ *
+ * <p>The {@link #toString()} of the explanation is a human readable report of all the information.
+ */
+public final class Explanation {
+    private final Strategy strategy;
+    private final List<StatementExplanation> statements;
+
+    private Explanation(Strategy strategy, List<StatementExplanation> statements) {
+        this.strategy = strategy;
+        this.statements = unmodifiableList(statements);
+    }
+
+    static Explanation of(DependencyGraph graph) {
+        Collection<Node<StatementWrapper>> nodes = graph.getAllNodes();
+        Map<AbstractStatement, Node<StatementWrapper>> nodesByStatement = new IdentityHashMap<>(nodes.size());
+        nodes.forEach(n -> nodesByStatement.put(n.getObject().getStatement(), n));
+
+        Strategy strategy;
+        if (nodes.size() == 1) {
+            strategy = Strategy.SINGLE_STATEMENT;
+        } else if (nodes.stream().allMatch(n -> n.in().isEmpty() && n.out().isEmpty())) {
+            strategy = Strategy.HIERARCHY;
+        } else {
+            strategy = Strategy.VARIABLE_BINDING;
+        }
+
+        List<StatementExplanation> statements = new ArrayList<>(nodes.size());
+        collect(graph.getStatements(), 0, strategy, nodesByStatement, statements);
+
+        return new Explanation(strategy, statements);
+    }
+
+    private static void collect(Collection<AbstractStatement> statements, int depth, Strategy strategy,
+            Map<AbstractStatement, Node<StatementWrapper>> nodesByStatement, List<StatementExplanation> result) {
+        for (AbstractStatement st : statements) {
+            Node<StatementWrapper> node = nodesByStatement.get(st);
+            boolean returning = node.getObject().isReturn();
+
+            Deferral deferral;
+            List<String> bindingVariables = emptyList();
+            switch (strategy) {
+            case HIERARCHY:
+                deferral = node.getParent() == null ? Deferral.NONE : Deferral.UNTIL_PARENT_FINISHED;
+                break;
+            case VARIABLE_BINDING:
+                if (returning) {
+                    bindingVariables = bindingVariables(node);
+                }
+                deferral = returning || !node.in().isEmpty() || !node.out().isEmpty()
+                        ? Deferral.UNTIL_FINISH
+                        : node.getParent() == null ? Deferral.NONE : Deferral.UNTIL_PARENT_FINISHED;
+                break;
+            default:
+                deferral = Deferral.NONE;
+            }
+
+            List<Match> recursiveMatches = new ArrayList<>(2);
+            st.getElementMatches().forEach(m -> recursiveMatches.addAll(m.getRecursiveMatches()));
+
+            result.add(new StatementExplanation(st, depth, returning, deferral, bindingVariables,
+                    unmodifiableList(recursiveMatches)));
+
+            collect(st.getChildren(), depth + 1, strategy, nodesByStatement, result);
+        }
+    }
+
+    /**
+     * The variables that {@link MatchingProgress#finish()} needs to bind to resolve the models matched by a returning
+     * statement are the ones the statement can reach using its children, dependencies and dependents (and transitively
+     * their children, etc).
+     */
+    private static List<String> bindingVariables(Node<StatementWrapper> statement) {
+        Set<String> vars = new HashSet<>();
+        Set<Node<StatementWrapper>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node<StatementWrapper>> toVisit = new ArrayDeque<>();
+        toVisit.push(statement);
+
+        while (!toVisit.isEmpty()) {
+            Node<StatementWrapper> n = toVisit.pop();
+            if (!visited.add(n)) {
+                continue;
+            }
+
+            AbstractStatement st = n.getObject().getStatement();
+            if (st.getDefinedVariable() != null) {
+                vars.add(st.getDefinedVariable());
+            }
+            vars.addAll(st.getReferencedVariables());
+
+            n.getChildren().forEach(toVisit::push);
+            n.in().forEach(toVisit::push);
+            n.out().forEach(toVisit::push);
+        }
+
+        List<String> ret = new ArrayList<>(vars);
+        Collections.sort(ret);
+        return unmodifiableList(ret);
+    }
+
+    /**
+     * @return the strategy the matching progress uses to evaluate the recipe
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return all the statements of the recipe in the order of their declaration, i.e. the parent statements precede
+     * their children
+     */
+    public List<StatementExplanation> getStatements() {
+        return statements;
+    }
+
+    /**
+     * @return the statements whose results may be {@link TestResult#DEFERRED} when their models are finished during
+     * the tree walk
+     */
+    public List<StatementExplanation> getDeferredStatements() {
+        return statements.stream().filter(s -> s.getDeferral() != Deferral.NONE).collect(Collectors.toList());
+    }
+
+    /**
+     * @return the recursive matches of all the statements
+     * @see Match#getRecursiveMatches()
+     */
+    public List<Match> getRecursiveMatches() {
+        return statements.stream().flatMap(s -> s.getRecursiveMatches().stream()).collect(Collectors.toList());
+    }
+
+    /**
+     * The number of the variables that need to be bound at once to resolve a deferred model. The number of the
+     * combinations of their candidates that {@link MatchingProgress#finish()} might need to try for each deferred model
+     * grows exponentially with it.
+     *
+     * @return the maximum number of the variables bound together or 0 if the recipe doesn't need to bind any variables
+     */
+    public int getWorstCaseFanOutExponent() {
+        return statements.stream().mapToInt(s -> s.getBindingVariables().size()).max().orElse(0);
+    }
+
+    /**
+     * Estimates the maximum number of the combinations of the variable bindings that {@link MatchingProgress#finish()}
+     * might need to try to resolve a single deferred model, given the number of the candidates of each variable.
+     * The actual number is usually much lower, because the incompatible candidates are pruned before and during the
+     * search, but the recipes with a high worst case are the ones that can hit
+     * {@link StructuralMatcher.Configuration#withWorkBudget(long, int, java.time.Duration) the work budget}.
+     *
+     * @param candidatesPerVariable the expected number of the candidate models of each variable
+     * @return the worst case number of combinations, {@link Long#MAX_VALUE} if it doesn't fit into a long
+     */
+    public long getWorstCaseCombinations(long candidatesPerVariable) {
+        if (candidatesPerVariable < 0) {
+            throw new IllegalArgumentException("The number of candidates cannot be negative.");
+        }
+
+        long ret = 0;
+        for (StatementExplanation s : statements) {
+            if (!s.getBindingVariables().isEmpty()) {
+                ret = saturatedAdd(ret, saturatedPower(candidatesPerVariable, s.getBindingVariables().size()));
+            }
+        }
+
+        return ret;
+    }
+
+    private static long saturatedPower(long base, int exponent) {
+        long ret = 1;
+        for (int i = 0; i < exponent; ++i) {
+            if (base != 0 && ret > Long.MAX_VALUE / base) {
+                return Long.MAX_VALUE;
+            }
+            ret *= base;
+        }
+
+        return ret;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long ret = a + b;
+        return ret < 0 ? Long.MAX_VALUE : ret;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder bld = new StringBuilder("strategy: ").append(strategy).append("\nstatements:\n");
+        for (StatementExplanation s : statements) {
+            for (int i = 0; i <= s.getDepth(); ++i) {
+                bld.append("  ");
+            }
+            bld.append(s).append("\n");
+        }
+
+        int exponent = getWorstCaseFanOutExponent();
+        bld.append("worst-case bindings per deferred model: ").append(exponent == 0 ? "none" : "n^" + exponent);
+
+        List<Match> recursive = getRecursiveMatches();
+        if (!recursive.isEmpty()) {
+            bld.append("\nrecursive matches: ")
+                    .append(recursive.stream().map(Object::toString).collect(Collectors.joining(", ")));
+        }
+
+        return bld.toString();
+    }
+
+    /**
+     * The strategies of evaluating the recipes, from the cheapest to the most expensive one.
+     */
+    public enum Strategy {
+        /**
+         * The recipe consists of a single statement and each model is fully evaluated as soon as it is started.
+         */
+        SINGLE_STATEMENT,
+
+        /**
+         * The statements of the recipe only depend on each other through their nesting. The results are computed
+         * bottom-up during the tree walk without retaining any candidates.
+         */
+        HIERARCHY,
+
+        /**
+         * The statements depend on each other through variables. The candidates of all the statements are retained
+         * during the tree walk and the models are resolved by searching for the bindings of the variables that satisfy
+         * all the statements.
+         */
+        VARIABLE_BINDING
+    }
+
+    /**
+     * Describes when the result of a model matched by a statement becomes known.
+     */
+    public enum Deferral {
+        /**
+         * The result is known once the model is finished during the tree walk.
+         */
+        NONE,
+
+        /**
+         * The result may be {@link TestResult#DEFERRED} until the model matched by the parent statement is finished,
+         * because it depends on the siblings of the model.
+         */
+        UNTIL_PARENT_FINISHED,
+
+        /**
+         * The result depends on the bindings of the variables and may be {@link TestResult#DEFERRED} until the final
+         * {@link MatchingProgress#finish()}.
+         */
+        UNTIL_FINISH
+    }
+
+    /**
+     * The explanation of a single statement of the recipe.
+     */
+    public static final class StatementExplanation {
+        private final AbstractStatement statement;
+        private final int depth;
+        private final boolean returning;
+        private final Deferral deferral;
+        private final List<String> bindingVariables;
+        private final List<Match> recursiveMatches;
+
+        private StatementExplanation(AbstractStatement statement, int depth, boolean returning, Deferral deferral,
+                List<String> bindingVariables, List<Match> recursiveMatches) {
+            this.statement = statement;
+            this.depth = depth;
+            this.returning = returning;
+            this.deferral = deferral;
+            this.bindingVariables = bindingVariables;
+            this.recursiveMatches = recursiveMatches;
+        }
+
+        public AbstractStatement getStatement() {
+            return statement;
+        }
+
+        /**
+         * @return the nesting depth of the statement, 0 for the top level statements
+         */
+        public int getDepth() {
+            return depth;
+        }
+
+        /**
+         * @return true if the models matched by the statement are returned as the result of the recipe
+         */
+        public boolean isReturning() {
+            return returning;
+        }
+
+        public Deferral getDeferral() {
+            return deferral;
+        }
+
+        /**
+         * @return the variables bound together when resolving the models of this returning statement, empty if the
+         * models are resolved without binding any variables
+         */
+        public List<String> getBindingVariables() {
+            return bindingVariables;
+        }
+
+        /**
+         * @return the recursive matches used by this statement (not including its children)
+         */
+        public List<Match> getRecursiveMatches() {
+            return recursiveMatches;
+        }
+
+        @Override
+        public String toString() {
+            List<String> notes = new ArrayList<>(4);
+            if (returning) {
+                notes.add("returning");
+            }
+
+            if (deferral == Deferral.UNTIL_PARENT_FINISHED) {
+                notes.add("deferred until the parent is finished");
+            } else if (deferral == Deferral.UNTIL_FINISH) {
+                notes.add("deferred until finish()");
+            }
+
+            if (!statement.getReferencedVariables().isEmpty()) {
+                notes.add("depends on " + statement.getReferencedVariables().stream().map(v -> "%" + v)
+                        .collect(Collectors.joining(", ")));
+            }
+
+            if (!bindingVariables.isEmpty()) {
+                notes.add("binds " + bindingVariables.stream().map(v -> "%" + v)
+                        .collect(Collectors.joining(", ")));
+            }
+
+            if (!recursiveMatches.isEmpty()) {
+                notes.add("recursive: " + recursiveMatches.stream().map(Object::toString)
+                        .collect(Collectors.joining(", ")));
+            }
+
+            return statement + (notes.isEmpty() ? "" : "    -- " + String.join("; ", notes));
+        }
+    }
+}
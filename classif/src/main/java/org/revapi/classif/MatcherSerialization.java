@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.List;
+
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
+import org.revapi.classif.util.execution.DependencyGraph;
+
+/**
+ * Serializes compiled structural matchers into a compact binary form and reads them back. This makes it possible
+ * to compile the recipes once (e.g. at build time) and load them quickly later without parsing them again.
+ *
+ * <p>The data starts with a magic number and the version of the format. Data of a different version is refused
+ * when reading. Only the recipe part of the {@link StructuralMatcher.Configuration configuration} is serialized,
+ * the settings of the runtime behavior of the matching can be applied to the loaded matchers using
+ * {@link StructuralMatcher#withConfiguration(StructuralMatcher.Configuration)}.
+ */
+public final class MatcherSerialization {
+    /**
+     * The version of the serialization format written by this class.
+     */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] MAGIC = {'C', 'L', 'S', 'F'};
+
+    private MatcherSerialization() {
+        throw new AssertionError("I shall not be summoned.");
+    }
+
+    /**
+     * Writes the provided matchers to the output stream.
+     *
+     * @param matchers the matchers to write
+     * @param out the stream to write to
+     * @throws IOException on error writing to the stream
+     */
+    public static void write(Collection<StructuralMatcher> matchers, OutputStream out) throws IOException {
+        BinaryWriter writer = new BinaryWriter();
+        writer.writeList(matchers, MatcherSerialization::write);
+
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION >>> 8);
+        out.write(FORMAT_VERSION);
+        writer.writeTo(out);
+    }
+
+    /**
+     * Reads the matchers from the provided buffer, starting at its current position.
+     *
+     * @param data the serialized matchers
+     * @return the matchers in the order they were written
+     * @throws IllegalArgumentException if the data is not a serialized list of matchers or is of an unsupported format
+     * version
+     */
+    public static List<StructuralMatcher> read(ByteBuffer data) {
+        try {
+            for (byte b : MAGIC) {
+                if (data.get() != b) {
+                    throw new IllegalArgumentException("The data doesn't contain serialized structural matchers.");
+                }
+            }
+
+            int version = ((data.get() & 0xFF) << 8) | (data.get() & 0xFF);
+            if (version != FORMAT_VERSION) {
+                throw new IllegalArgumentException("Unsupported version of the serialized structural matchers: "
+                        + version + ". Only version " + FORMAT_VERSION + " is supported.");
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The data doesn't contain serialized structural matchers.");
+        }
+
+        return new BinaryReader(data).readList(MatcherSerialization::read);
+    }
+
+    /**
+     * Reads the matchers from the provided file. The file is memory-mapped for reading.
+     *
+     * @param file the file with the serialized matchers
+     * @return the matchers in the order they were written
+     * @throws IOException on error reading the file
+     * @throws IllegalArgumentException if the file doesn't contain serialized matchers or is of an unsupported format
+     * version
+     */
+    public static List<StructuralMatcher> read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(data);
+        }
+    }
+
+    private static void write(StructuralMatcher matcher, BinaryWriter out) {
+        DependencyGraph graph = matcher.getMatchTree();
+        out.writeBoolean(matcher.getConfiguration().isStrictHierarchy());
+        out.writeStrings(graph.getNamedMatches());
+        out.writeList(graph.getStatements(), AbstractStatement::writeTo);
+    }
+
+    private static StructuralMatcher read(BinaryReader in) {
+        boolean strictHierarchy = in.readBoolean();
+        List<String> namedMatches = in.readStrings();
+        List<AbstractStatement> statements = in.readList(AbstractStatement::readFrom);
+        return new StructuralMatcher(new StructuralMatcher.Configuration(strictHierarchy), namedMatches, statements);
+    }
+}
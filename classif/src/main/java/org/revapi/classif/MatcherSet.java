@@ -0,0 +1,89 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif;
+
+import static java.util.Collections.unmodifiableList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+import org.revapi.classif.progress.MatcherSetProgress;
+import org.revapi.classif.util.execution.DependencyGraph;
+
+/**
+ * A set of structural matchers that are matched against the models together, during a single tree walk.
+ *
+ * @see StructuralMatcher#combine(StructuralMatcher...)
+ */
+public final class MatcherSet {
+    private final List<StructuralMatcher> matchers;
+
+    private MatcherSet(List<StructuralMatcher> matchers) {
+        this.matchers = unmodifiableList(matchers);
+    }
+
+    /**
+     * Creates a new matcher set. Each matcher is only included once, even if it is present in the collection several
+     * times.
+     *
+     * @param matchers the structural matchers
+     * @return a new matcher set
+     */
+    public static MatcherSet of(Collection<StructuralMatcher> matchers) {
+        Set<StructuralMatcher> seen = Collections.newSetFromMap(new IdentityHashMap<>(matchers.size()));
+        List<StructuralMatcher> unique = new ArrayList<>(matchers.size());
+        for (StructuralMatcher m : matchers) {
+            if (seen.add(m)) {
+                unique.add(m);
+            }
+        }
+
+        return new MatcherSet(unique);
+    }
+
+    /**
+     * @return the structural matchers in this set
+     */
+    public List<StructuralMatcher> getMatchers() {
+        return matchers;
+    }
+
+    /**
+     * Starts a matching progress of all the matchers in this set using the provided model inspector.
+     *
+     * @param inspector the model inspector used when matching the model elements
+     * @param <M> the type of the model elements
+     * @return a matching progress that reports the results per matcher
+     */
+    public <M> MatcherSetProgress<M> with(ModelInspector<M> inspector) {
+        List<DependencyGraph> graphs = new ArrayList<>(matchers.size());
+        for (StructuralMatcher m : matchers) {
+            graphs.add(m.getMatchTree());
+        }
+
+        return MatcherSetProgress.of(matchers, graphs, inspector);
+    }
+
+    @Override
+    public String toString() {
+        return "MatcherSet" + matchers;
+    }
+}
@@ -127,4 +127,34 @@ public interface ModelInspector<M> {
      * @see javax.lang.model.util.Elements#overrides(ExecutableElement, ExecutableElement, TypeElement)
      */
     boolean overrides(ExecutableElement overrider, ExecutableElement overridden, TypeElement type);
+
+    /**
+     * Provides a string uniquely identifying the model element. Together with {@link #fromId(String)} this enables
+     * the matching progress to store the model elements outside of the heap, e.g. when the number of the candidate
+     * elements exceeds the limit set by {@link StructuralMatcher.Configuration#withCandidateSpilling(int,
+     * java.nio.file.Path)}.
+     *
+     * <p>By default, this method returns null, which means that the model elements cannot be identified this way and
+     * therefore are always kept in memory.
+     *
+     * @param model the model element
+     * @return the unique identifier of the model element or null if not supported
+     */
+    default @Nullable String toId(M model) {
+        return null;
+    }
+
+    /**
+     * Reconstructs the model element from its identifier obtained from {@link #toId(Object)}. The returned model must
+     * be equal to the model the identifier was obtained from.
+     *
+     * <p>This method is only called with identifiers obtained from {@link #toId(Object)} and therefore needs to be
+     * implemented only if that method doesn't return null.
+     *
+     * @param id the identifier of the model element
+     * @return the model element
+     */
+    default M fromId(String id) {
+        throw new UnsupportedOperationException("Model element identifiers not supported by " + this);
+    }
 }
@@ -16,10 +16,15 @@
  */
 package org.revapi.classif;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
 
+import org.revapi.classif.progress.CompletionStatus;
 import org.revapi.classif.progress.MatchingProgress;
 import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.Nullable;
 import org.revapi.classif.util.execution.DependencyGraph;
 
 /**
@@ -33,10 +38,43 @@ public final class StructuralMatcher {
     private final Configuration configuration;
 
     public StructuralMatcher(Configuration configuration, List<String> namedMatches, List<AbstractStatement> statements) {
-        this.matchTree = new DependencyGraph(namedMatches, statements);
+        this(configuration, new DependencyGraph(namedMatches, statements));
+    }
+
+    private StructuralMatcher(Configuration configuration, DependencyGraph matchTree) {
+        this.matchTree = matchTree;
         this.configuration = configuration;
     }
 
+    /**
+     * Combines the provided structural matchers so that they can be matched against the models during a single tree
+     * walk.
+     *
+     * @param matchers the matchers to combine
+     * @return the set of the provided matchers
+     */
+    public static MatcherSet combine(StructuralMatcher... matchers) {
+        return MatcherSet.of(Arrays.asList(matchers));
+    }
+
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    DependencyGraph getMatchTree() {
+        return matchTree;
+    }
+
+    /**
+     * Creates a new structural matcher with the same recipe as this one but a different configuration.
+     *
+     * @param configuration the configuration to use
+     * @return a new structural matcher
+     */
+    public StructuralMatcher withConfiguration(Configuration configuration) {
+        return new StructuralMatcher(configuration, matchTree);
+    }
+
     /**
      * Starts a matching progress using the provided model inspector.
      *
@@ -48,22 +86,151 @@ public final class StructuralMatcher {
         return MatchingProgress.of(matchTree, inspector, configuration);
     }
 
+    /**
+     * Explains how this matcher is going to be evaluated. This can be used to find out whether a recipe is potentially
+     * expensive to evaluate (e.g. because it makes the matching progress try many combinations of the variable bindings
+     * or because it uses many recursive matches) before it is matched against any models.
+     *
+     * @return the explanation of the evaluation of this matcher
+     */
+    public Explanation explain() {
+        return Explanation.of(matchTree);
+    }
+
     @Override
     public String toString() {
         return configuration.toString() + "\n" + matchTree.toString();
     }
 
+    /**
+     * The configuration of the matching. The {@link #toString()} of the configuration only contains the settings
+     * that are part of the recipe itself (i.e. the pragmas), not the settings of the runtime behavior of the matching.
+     */
     public static final class Configuration {
         private final boolean strictHierarchy;
+        private final int maxCandidatesInMemory;
+        private final @Nullable Path spillDirectory;
+        private final long maxCombinations;
+        private final int maxRecursionDepth;
+        private final @Nullable Duration timeout;
 
         public Configuration(boolean strictHierarchy) {
+            this(strictHierarchy, Integer.MAX_VALUE, null, Long.MAX_VALUE, Integer.MAX_VALUE, null);
+        }
+
+        private Configuration(boolean strictHierarchy, int maxCandidatesInMemory, @Nullable Path spillDirectory,
+                long maxCombinations, int maxRecursionDepth, @Nullable Duration timeout) {
             this.strictHierarchy = strictHierarchy;
+            this.maxCandidatesInMemory = maxCandidatesInMemory;
+            this.spillDirectory = spillDirectory;
+            this.maxCombinations = maxCombinations;
+            this.maxRecursionDepth = maxRecursionDepth;
+            this.timeout = timeout;
         }
 
         public boolean isStrictHierarchy() {
             return strictHierarchy;
         }
 
+        /**
+         * Returns a copy of this configuration that limits the number of the candidate model elements each statement
+         * keeps in memory during the matching. The candidates over the limit are stored in temporary files and
+         * are re-created using {@link ModelInspector#fromId(String)} once they are needed. This trades speed for
+         * a bounded memory usage when matching large numbers of elements. The temporary files are deleted once the
+         * matching progress is {@link MatchingProgress#reset() reset} or {@link MatchingProgress#close() closed}.
+         *
+         * <p>Note that the model inspector needs to support the {@link ModelInspector#toId(Object)} for this to have
+         * any effect.
+         *
+         * @param maxCandidatesInMemory the maximum number of candidates of a statement to keep in memory
+         * @param directory the directory to store the temporary files in or null to use the system temporary directory
+         * @return a new configuration
+         */
+        public Configuration withCandidateSpilling(int maxCandidatesInMemory, @Nullable Path directory) {
+            if (maxCandidatesInMemory < 0) {
+                throw new IllegalArgumentException("The maximum number of candidates in memory cannot be negative.");
+            }
+
+            return new Configuration(strictHierarchy, maxCandidatesInMemory, directory, maxCombinations,
+                    maxRecursionDepth, timeout);
+        }
+
+        /**
+         * @return the maximum number of candidates of a statement kept in memory
+         * @see #withCandidateSpilling(int, Path)
+         */
+        public int getMaxCandidatesInMemory() {
+            return maxCandidatesInMemory;
+        }
+
+        /**
+         * @return the directory to store the candidates not kept in memory in or null if the system temporary
+         * directory should be used
+         * @see #withCandidateSpilling(int, Path)
+         */
+        public @Nullable Path getSpillDirectory() {
+            return spillDirectory;
+        }
+
+        /**
+         * Returns a copy of this configuration that limits the amount of work done by a single round of matching
+         * (i.e. the walk of the models between the construction or {@link MatchingProgress#reset()} of the matching
+         * progress and the final {@link MatchingProgress#finish()}).
+         *
+         * <p>When the budget is exceeded the matching doesn't fail. Instead the models for which the result could not be
+         * determined are reported as {@link TestResult#DEFERRED} and {@link MatchingProgress#getCompletionStatus()}
+         * reports {@link CompletionStatus#BUDGET_EXCEEDED}.
+         *
+         * @param maxCombinations the maximum number of the combinations of the variable bindings tried while
+         *                        resolving the deferred models, {@link Long#MAX_VALUE} for no limit
+         * @param maxRecursionDepth the maximum depth of the recursion when evaluating a single model, e.g. of the
+         *                          dependencies of the statements or of the transitive uses,
+         *                          {@link Integer#MAX_VALUE} for no limit
+         * @param timeout the maximum duration of the round of matching or null for no limit
+         * @return a new configuration
+         */
+        public Configuration withWorkBudget(long maxCombinations, int maxRecursionDepth, @Nullable Duration timeout) {
+            if (maxCombinations < 0) {
+                throw new IllegalArgumentException("The maximum number of combinations cannot be negative.");
+            }
+
+            if (maxRecursionDepth < 0) {
+                throw new IllegalArgumentException("The maximum recursion depth cannot be negative.");
+            }
+
+            if (timeout != null && timeout.isNegative()) {
+                throw new IllegalArgumentException("The timeout cannot be negative.");
+            }
+
+            return new Configuration(strictHierarchy, maxCandidatesInMemory, spillDirectory, maxCombinations,
+                    maxRecursionDepth, timeout);
+        }
+
+        /**
+         * @return the maximum number of the combinations of the variable bindings tried during the resolution of the
+         * deferred models
+         * @see #withWorkBudget(long, int, Duration)
+         */
+        public long getMaxCombinations() {
+            return maxCombinations;
+        }
+
+        /**
+         * @return the maximum depth of the recursion when evaluating a single model
+         * @see #withWorkBudget(long, int, Duration)
+         */
+        public int getMaxRecursionDepth() {
+            return maxRecursionDepth;
+        }
+
+        /**
+         * @return the maximum duration of a round of matching or null if not limited
+         * @see #withWorkBudget(long, int, Duration)
+         */
+        public @Nullable Duration getTimeout() {
+            return timeout;
+        }
+
         @Override
         public String toString() {
             if (strictHierarchy) {
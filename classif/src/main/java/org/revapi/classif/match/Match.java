@@ -16,6 +16,11 @@
  */
 package org.revapi.classif.match;
 
+import static java.nio.charset.StandardCharsets.ISO_8859_1;
+import static java.util.Collections.emptyList;
+
+import java.util.List;
+
 import javax.lang.model.element.Element;
 import javax.lang.model.type.TypeMirror;
 
@@ -23,15 +28,27 @@ import org.revapi.classif.TestResult;
 import org.revapi.classif.match.declaration.DeclarationMatch;
 import org.revapi.classif.match.instance.TypeInstanceMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.util.BinaryWriter;
+import org.revapi.classif.util.Nullable;
 
 public abstract class Match {
+    private static final String NO_KEY = "";
+
+    private @Nullable String structuralKey;
 
     protected Match() {
 
     }
 
     public final <M> TestResult test(M model, MatchContext<M> ctx) {
-        return test(ctx.getModelInspector().toElement(model), ctx.getModelInspector().toMirror(model), ctx);
+        Element element = ctx.getModelInspector().toElement(model);
+        TypeMirror instance = ctx.getModelInspector().toMirror(model);
+
+        SharedMatchResults shared = ctx.getSharedMatchResults();
+        return shared == null
+                ? test(element, instance, ctx)
+                : shared.test(this, model, element, instance, ctx);
     }
 
     public final <M> TestResult test(Element declaration, TypeMirror instance, MatchContext<M> ctx) {
@@ -47,4 +64,47 @@ public abstract class Match {
     public abstract <M> TestResult testDeclaration(Element declaration, TypeMirror instance, MatchContext<M> ctx);
 
     public abstract <M> TestResult testInstance(TypeMirror instance, MatchContext<M> ctx);
+
+    /**
+     * Writes the compact binary form of this match.
+     *
+     * @param out the writer to write to
+     */
+    public abstract void writeTo(BinaryWriter out);
+
+    /**
+     * The recursive matches are the ones that may need to inspect an unbounded part of the model when tested, e.g. the
+     * transitive uses or super types, and therefore usually dominate the cost of the matching.
+     *
+     * @return the recursive matches among this match and the matches it is composed of
+     */
+    public List<Match> getRecursiveMatches() {
+        return emptyList();
+    }
+
+    /**
+     * The structurally equal matches have equal keys. The key is derived from the {@link #writeTo(BinaryWriter) binary
+     * form} of the match which, unlike the textual representation, tells apart e.g. the string and number annotation
+     * values that look the same.
+     *
+     * @return the key or null if the result of this match doesn't only depend on the tested element, i.e. if the match
+     * references any variables
+     */
+    public final @Nullable String getStructuralKey() {
+        String key = structuralKey;
+        if (key == null) {
+            // the variables are the only thing represented with "%"
+            if (toString().indexOf('%') >= 0) {
+                key = NO_KEY;
+            } else {
+                BinaryWriter out = new BinaryWriter();
+                writeTo(out);
+                // each byte maps to exactly one char in ISO-8859-1, so the key is as unique as the binary form
+                key = getClass().getName() + ":" + new String(out.toByteArray(), ISO_8859_1);
+            }
+            structuralKey = key;
+        }
+
+        return key == NO_KEY ? null : key;
+    }
 }
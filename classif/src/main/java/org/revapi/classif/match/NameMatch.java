@@ -22,10 +22,16 @@ import java.util.regex.Pattern;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
 
 public abstract class NameMatch implements Globbed {
     private static final Logger LOG = LogManager.getLogger(NameMatch.class);
+    private static final int TAG_EXACT = 0;
+    private static final int TAG_PATTERN = 1;
+    private static final int TAG_ANY = 2;
+    private static final int TAG_ALL = 3;
 
     private NameMatch() {
 
@@ -67,6 +73,36 @@ public abstract class NameMatch implements Globbed {
 
     public abstract boolean matches(String name);
 
+    public void writeTo(BinaryWriter out) {
+        if (isMatchAny()) {
+            out.writeByte(TAG_ANY);
+        } else if (isMatchAll()) {
+            out.writeByte(TAG_ALL);
+        } else if (getPattern() != null) {
+            out.writeByte(TAG_PATTERN);
+            out.writePattern(getPattern());
+        } else {
+            out.writeByte(TAG_EXACT);
+            out.writeString(getExactMatch());
+        }
+    }
+
+    public static NameMatch readFrom(BinaryReader in) {
+        int tag = in.readByte();
+        switch (tag) {
+        case TAG_EXACT:
+            return exact(in.readNonNullString());
+        case TAG_PATTERN:
+            return pattern(in.readPattern());
+        case TAG_ANY:
+            return any();
+        case TAG_ALL:
+            return all();
+        default:
+            throw in.malformed("unknown name match " + tag);
+        }
+    }
+
     private static final class MatchExact extends NameMatch {
         private final String match;
 
@@ -28,6 +28,8 @@ import org.apache.logging.log4j.Logger;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.NameMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.util.Nullable;
 
@@ -72,6 +74,20 @@ public final class AnnotationAttributeMatch implements Globbed {
                 }));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(isAny);
+        out.writeBoolean(isAll);
+        out.writeNullable(name, NameMatch::writeTo);
+        out.writeNullable(valueMatch, AnnotationValueMatch::writeTo);
+    }
+
+    public static AnnotationAttributeMatch readFrom(BinaryReader in) {
+        boolean isAny = in.readBoolean();
+        boolean isAll = in.readBoolean();
+        NameMatch name = in.readNullable(NameMatch::readFrom);
+        return new AnnotationAttributeMatch(isAny, isAll, name, in.readNullable(AnnotationValueMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         if (isAny) {
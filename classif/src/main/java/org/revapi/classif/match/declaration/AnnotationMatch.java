@@ -35,7 +35,10 @@ import org.apache.logging.log4j.message.EntryMessage;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
+import org.revapi.classif.util.Nullable;
 
 public final class AnnotationMatch {
     private static final Logger LOG = LogManager.getLogger(AnnotationMatch.class);
@@ -70,6 +73,26 @@ public final class AnnotationMatch {
         return negation;
     }
 
+    /**
+     * @return the fully qualified name of the only annotation type this match can match or null if it can match other
+     * annotation types or the absence of the annotation
+     */
+    public @Nullable String getExactTypeName() {
+        return negation ? null : type.getExactTypeName();
+    }
+
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(negation);
+        type.writeTo(out);
+        out.writeList(attributes.getMatches(), AnnotationAttributeMatch::writeTo);
+    }
+
+    public static AnnotationMatch readFrom(BinaryReader in) {
+        boolean negation = in.readBoolean();
+        TypeReferenceMatch type = TypeReferenceMatch.readFrom(in);
+        return new AnnotationMatch(negation, type, in.readList(AnnotationAttributeMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         StringBuilder bld = new StringBuilder();
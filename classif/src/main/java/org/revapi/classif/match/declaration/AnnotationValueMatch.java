@@ -27,6 +27,7 @@ import static org.revapi.classif.match.Operator.EQ;
 import static org.revapi.classif.match.Operator.NE;
 import static org.revapi.classif.util.LogUtil.traceParams;
 
+import java.math.BigDecimal;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -60,12 +61,28 @@ import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.NameMatch;
 import org.revapi.classif.match.instance.FqnMatch;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.match.Operator;
 
 public abstract class AnnotationValueMatch implements Globbed {
     private static final Logger LOG = LogManager.getLogger(AnnotationValueMatch.class);
+    private static final int TAG_STRING = 0;
+    private static final int TAG_PATTERN = 1;
+    private static final int TAG_NUMBER = 2;
+    private static final int TAG_BOOLEAN = 3;
+    private static final int TAG_ANY = 4;
+    private static final int TAG_ALL = 5;
+    private static final int TAG_ENUM = 6;
+    private static final int TAG_TYPE = 7;
+    private static final int TAG_ANNOTATION = 8;
+    private static final int TAG_ARRAY = 9;
+    private static final int TAG_DEFAULT = 10;
+    private static final int NUMBER_INTEGRAL = 0;
+    private static final int NUMBER_FLOATING = 1;
+    private static final int NUMBER_DECIMAL = 2;
 
     final Operator operator;
 
@@ -113,6 +130,67 @@ public abstract class AnnotationValueMatch implements Globbed {
         return new DefaultValue(operator);
     }
 
+    public abstract void writeTo(BinaryWriter out);
+
+    public static AnnotationValueMatch readFrom(BinaryReader in) {
+        int tag = in.readByte();
+        Operator operator = in.readEnum(Operator.class);
+        switch (tag) {
+        case TAG_STRING:
+            return string(operator, in.readNonNullString());
+        case TAG_PATTERN:
+            return regex(operator, in.readPattern());
+        case TAG_NUMBER:
+            return number(operator, readNumber(in));
+        case TAG_BOOLEAN:
+            return bool(operator, in.readBoolean());
+        case TAG_ANY:
+            return any(operator);
+        case TAG_ALL:
+            return all();
+        case TAG_ENUM:
+            FqnMatch fqn = FqnMatch.readFrom(in);
+            return enumConstant(operator, fqn, NameMatch.readFrom(in));
+        case TAG_TYPE:
+            return type(operator, TypeReferenceMatch.readFrom(in));
+        case TAG_ANNOTATION:
+            return annotation(operator, AnnotationMatch.readFrom(in));
+        case TAG_ARRAY:
+            return array(operator, in.readList(AnnotationValueMatch::readFrom));
+        case TAG_DEFAULT:
+            return defaultValue(operator);
+        default:
+            throw in.malformed("unknown annotation value match " + tag);
+        }
+    }
+
+    private static void writeNumber(Number number, BinaryWriter out) {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            out.writeByte(NUMBER_INTEGRAL);
+            out.writeLong(number.longValue());
+        } else if (number instanceof Double || number instanceof Float) {
+            out.writeByte(NUMBER_FLOATING);
+            out.writeDouble(number.doubleValue());
+        } else {
+            out.writeByte(NUMBER_DECIMAL);
+            out.writeString(number.toString());
+        }
+    }
+
+    private static Number readNumber(BinaryReader in) {
+        int kind = in.readByte();
+        switch (kind) {
+        case NUMBER_INTEGRAL:
+            return in.readLong();
+        case NUMBER_FLOATING:
+            return in.readDouble();
+        case NUMBER_DECIMAL:
+            return new BigDecimal(in.readNonNullString());
+        default:
+            throw in.malformed("unknown number kind " + kind);
+        }
+    }
+
     private AnnotationValueMatch(Operator operator) {
         this.operator = operator;
     }
@@ -159,6 +237,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return visitor.visit(value);
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_STRING);
+            out.writeEnum(operator);
+            out.writeString(stringMatch);
+        }
+
         @Override
         public String toString() {
             return operator + " " + stringMatch;
@@ -246,6 +331,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return operator == EQ ? match : match.negate();
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_PATTERN);
+            out.writeEnum(operator);
+            out.writePattern(pattern);
+        }
+
         @Override
         public String toString() {
             return operator + " /" + pattern + "/";
@@ -298,6 +390,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return visitor.visit(value);
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_NUMBER);
+            out.writeEnum(operator);
+            writeNumber(number, out);
+        }
+
         @Override
         public String toString() {
             return operator + " " + number;
@@ -318,6 +417,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return TestResult.fromBoolean(val instanceof Boolean && operator.satisfied((Boolean) val, matchValue));
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_BOOLEAN);
+            out.writeEnum(operator);
+            out.writeBoolean(matchValue);
+        }
+
         @Override
         public String toString() {
             return operator + " " + matchValue;
@@ -334,6 +440,12 @@ public abstract class AnnotationValueMatch implements Globbed {
             return TestResult.fromBoolean(operator == EQ);
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_ANY);
+            out.writeEnum(operator);
+        }
+
         @Override
         public String toString() {
             return operator + " *";
@@ -350,6 +462,12 @@ public abstract class AnnotationValueMatch implements Globbed {
             return TestResult.PASSED;
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_ALL);
+            out.writeEnum(operator);
+        }
+
         @Override
         public String toString() {
             return operator + " **";
@@ -385,6 +503,14 @@ public abstract class AnnotationValueMatch implements Globbed {
             return (operator == EQ) ? res : res.negate();
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_ENUM);
+            out.writeEnum(operator);
+            fqn.writeTo(out);
+            name.writeTo(out);
+        }
+
         @Override
         public String toString() {
             return operator + " " + fqn + "." + name;
@@ -417,6 +543,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return (operator == EQ) ? res : res.negate();
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_TYPE);
+            out.writeEnum(operator);
+            type.writeTo(out);
+        }
+
         @Override
         public String toString() {
             return operator + " " + type;
@@ -448,6 +581,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return (operator == EQ) ? res : res.negate();
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_ANNOTATION);
+            out.writeEnum(operator);
+            match.writeTo(out);
+        }
+
         @Override
         public String toString() {
             return operator + " " + match;
@@ -480,6 +620,13 @@ public abstract class AnnotationValueMatch implements Globbed {
             return (operator == EQ) ? res : res.negate();
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_ARRAY);
+            out.writeEnum(operator);
+            out.writeList(match.getMatches(), AnnotationValueMatch::writeTo);
+        }
+
         @Override
         public String toString() {
             return operator + " [" + match.getMatches().stream().map(Object::toString).collect(Collectors.joining(", "))
@@ -504,6 +651,12 @@ public abstract class AnnotationValueMatch implements Globbed {
             throw new IllegalStateException("Default value match should never be invoked this way.");
         }
 
+        @Override
+        public void writeTo(BinaryWriter out) {
+            out.writeByte(TAG_DEFAULT);
+            out.writeEnum(operator);
+        }
+
         @Override
         public String toString() {
             return operator + " default";
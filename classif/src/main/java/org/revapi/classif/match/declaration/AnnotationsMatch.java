@@ -27,6 +27,9 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
+import org.revapi.classif.util.Nullable;
 
 public final class AnnotationsMatch extends DeclarationMatch {
     private final List<AnnotationMatch> annotations;
@@ -39,6 +42,21 @@ public final class AnnotationsMatch extends DeclarationMatch {
         return annotations.isEmpty();
     }
 
+    /**
+     * @return the fully qualified name of an annotation type that the element needs to be annotated with in order to
+     * match or null if there's no such annotation type
+     */
+    public @Nullable String getRequiredAnnotationType() {
+        for (AnnotationMatch m : annotations) {
+            String type = m.getExactTypeName();
+            if (type != null) {
+                return type;
+            }
+        }
+
+        return null;
+    }
+
     @Override
     protected <M> TestResult defaultTest(Element e, TypeMirror inst, MatchContext<M> matchContext) {
         return testable(annotations).testAll(m -> {
@@ -51,6 +69,14 @@ public final class AnnotationsMatch extends DeclarationMatch {
                 });
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(annotations, AnnotationMatch::writeTo);
+    }
+
+    public static AnnotationsMatch readFrom(BinaryReader in) {
+        return new AnnotationsMatch(in.readList(AnnotationMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return annotations.stream().map(Object::toString).collect(Collectors.joining(" "));
@@ -22,6 +22,8 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class DefaultValueMatch extends DeclarationMatch {
@@ -46,6 +48,16 @@ public final class DefaultValueMatch extends DeclarationMatch {
                 : valueMatch.test(defaultValue, ctx);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(negation);
+        out.writeNullable(valueMatch, AnnotationValueMatch::writeTo);
+    }
+
+    public static DefaultValueMatch readFrom(BinaryReader in) {
+        boolean negation = in.readBoolean();
+        return new DefaultValueMatch(negation, in.readNullable(AnnotationValueMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         String ret = "default";
@@ -16,8 +16,13 @@
  */
 package org.revapi.classif.match.declaration;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
 import static javax.lang.model.type.TypeKind.NONE;
 
+import java.util.List;
+
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.ErrorType;
@@ -26,8 +31,11 @@ import javax.lang.model.type.TypeVisitor;
 import javax.lang.model.util.SimpleTypeVisitor8;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class ExtendsMatch extends DeclarationMatch {
     private static final TypeVisitor<TypeMirror, Void> GET_SUPER_CLASS = new SimpleTypeVisitor8<TypeMirror, Void>() {
@@ -59,6 +67,21 @@ public final class ExtendsMatch extends DeclarationMatch {
         }
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(onlyDirect);
+        superTypeMatch.writeTo(out);
+    }
+
+    public static ExtendsMatch readFrom(BinaryReader in) {
+        boolean onlyDirect = in.readBoolean();
+        return new ExtendsMatch(onlyDirect, TypeReferenceMatch.readFrom(in));
+    }
+
+    @Override
+    public List<Match> getRecursiveMatches() {
+        return onlyDirect ? emptyList() : singletonList(this);
+    }
+
     @Override
     public String toString() {
         return (onlyDirect ? "directly " : "") + "extends " + superTypeMatch.toString();
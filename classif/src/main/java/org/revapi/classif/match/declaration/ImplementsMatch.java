@@ -31,8 +31,11 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.ModelInspector;
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 import org.revapi.classif.util.Nullable;
 
@@ -58,6 +61,23 @@ public final class ImplementsMatch extends DeclarationMatch {
         }
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(onlyDirect);
+        out.writeBoolean(glob != null);
+        out.writeList(glob == null ? types : glob.getMatches(), TypeReferenceMatch::writeTo);
+    }
+
+    public static ImplementsMatch readFrom(BinaryReader in) {
+        boolean onlyDirect = in.readBoolean();
+        boolean exactList = in.readBoolean();
+        return new ImplementsMatch(onlyDirect, exactList, in.readList(TypeReferenceMatch::readFrom));
+    }
+
+    @Override
+    public List<Match> getRecursiveMatches() {
+        return onlyDirect ? Collections.emptyList() : Collections.singletonList(this);
+    }
+
     @Override
     public String toString() {
         List<?> list = types == null ? glob.getMatches() : types;
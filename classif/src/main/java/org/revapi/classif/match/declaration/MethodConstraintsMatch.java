@@ -18,6 +18,7 @@ package org.revapi.classif.match.declaration;
 
 import static org.revapi.classif.TestResult.TestableStream.testable;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -25,9 +26,17 @@ import javax.lang.model.element.Element;
 import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class MethodConstraintsMatch extends DeclarationMatch {
+    private static final int TAG_USES = 0;
+    private static final int TAG_THROWS = 1;
+    private static final int TAG_OVERRIDES = 2;
+    private static final int TAG_DEFAULT_VALUE = 3;
+
     private final List<DeclarationMatch> constraints;
 
     public MethodConstraintsMatch(List<DeclarationMatch> constraints) {
@@ -39,6 +48,51 @@ public final class MethodConstraintsMatch extends DeclarationMatch {
         return testable(constraints).testAll(m -> m.testDeclaration(declaration, instantiation, ctx));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(constraints, (c, o) -> {
+            if (c instanceof UsesMatch) {
+                o.writeByte(TAG_USES);
+                ((UsesMatch) c).writeTo(o);
+            } else if (c instanceof ThrowsMatch) {
+                o.writeByte(TAG_THROWS);
+                ((ThrowsMatch) c).writeTo(o);
+            } else if (c instanceof OverridesMatch) {
+                o.writeByte(TAG_OVERRIDES);
+                ((OverridesMatch) c).writeTo(o);
+            } else if (c instanceof DefaultValueMatch) {
+                o.writeByte(TAG_DEFAULT_VALUE);
+                ((DefaultValueMatch) c).writeTo(o);
+            } else {
+                throw new IllegalArgumentException("Unsupported method constraint: " + c);
+            }
+        });
+    }
+
+    public static MethodConstraintsMatch readFrom(BinaryReader in) {
+        return new MethodConstraintsMatch(in.readList(i -> {
+            int tag = i.readByte();
+            switch (tag) {
+            case TAG_USES:
+                return UsesMatch.readFrom(i);
+            case TAG_THROWS:
+                return ThrowsMatch.readFrom(i);
+            case TAG_OVERRIDES:
+                return OverridesMatch.readFrom(i);
+            case TAG_DEFAULT_VALUE:
+                return DefaultValueMatch.readFrom(i);
+            default:
+                throw i.malformed("unknown method constraint " + tag);
+            }
+        }));
+    }
+
+    @Override
+    public List<Match> getRecursiveMatches() {
+        List<Match> ret = new ArrayList<>();
+        constraints.forEach(m -> ret.addAll(m.getRecursiveMatches()));
+        return ret;
+    }
+
     @Override
     public String toString() {
         return constraints.stream().map(Object::toString).collect(Collectors.joining(" "));
@@ -24,6 +24,8 @@ import javax.lang.model.type.TypeMirror;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.util.Nullable;
 
@@ -53,6 +55,16 @@ public final class MethodParameterMatch extends DeclarationMatch implements Glob
         return type.isMatchAll();
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeNullable(annotations, AnnotationsMatch::writeTo);
+        type.writeTo(out);
+    }
+
+    public static MethodParameterMatch readFrom(BinaryReader in) {
+        AnnotationsMatch annotations = in.readNullable(AnnotationsMatch::readFrom);
+        return new MethodParameterMatch(annotations, TypeReferenceMatch.readFrom(in));
+    }
+
     @Override
     public String toString() {
         String ret = annotations == null ? "" : (annotations.toString() + " ");
@@ -26,6 +26,8 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class ModifierClusterMatch extends DeclarationMatch {
     private final Collection<ModifierMatch> modifiers;
@@ -39,6 +41,14 @@ public final class ModifierClusterMatch extends DeclarationMatch {
         return testable(modifiers).testAny(m -> m.testDeclaration(declaration, instance, ctx));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(modifiers, ModifierMatch::writeTo);
+    }
+
+    public static ModifierClusterMatch readFrom(BinaryReader in) {
+        return new ModifierClusterMatch(in.readList(ModifierMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return modifiers.stream().map(Object::toString).collect(Collectors.joining(" | "));
@@ -23,6 +23,8 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class ModifierMatch extends DeclarationMatch {
     private final boolean negation;
@@ -41,6 +43,16 @@ public final class ModifierMatch extends DeclarationMatch {
         return TestResult.fromBoolean(negation != ret);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(negation);
+        out.writeEnum(modifier);
+    }
+
+    public static ModifierMatch readFrom(BinaryReader in) {
+        boolean negation = in.readBoolean();
+        return new ModifierMatch(negation, in.readEnum(Modifier.class));
+    }
+
     @Override
     public String toString() {
         return modifier.toString();
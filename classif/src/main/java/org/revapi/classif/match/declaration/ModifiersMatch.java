@@ -26,6 +26,8 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class ModifiersMatch extends DeclarationMatch {
     private final Collection<ModifierClusterMatch> clusters;
@@ -43,6 +45,14 @@ public final class ModifiersMatch extends DeclarationMatch {
         return testable(clusters).testAll(m -> m.testDeclaration(declaration, instance, ctx));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(clusters, ModifierClusterMatch::writeTo);
+    }
+
+    public static ModifiersMatch readFrom(BinaryReader in) {
+        return new ModifiersMatch(in.readList(ModifierClusterMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return clusters.stream().map(Object::toString).collect(Collectors.joining(" "));
@@ -30,6 +30,8 @@ import org.revapi.classif.ModelInspector;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class OverridesMatch extends DeclarationMatch {
@@ -75,6 +77,14 @@ public final class OverridesMatch extends DeclarationMatch {
         return TestResult.NOT_PASSED;
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeNullable(declaringType, TypeReferenceMatch::writeTo);
+    }
+
+    public static OverridesMatch readFrom(BinaryReader in) {
+        return new OverridesMatch(in.readNullable(TypeReferenceMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         String ret = "overrides";
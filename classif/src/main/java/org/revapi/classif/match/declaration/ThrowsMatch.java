@@ -27,6 +27,8 @@ import javax.lang.model.type.TypeMirror;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 
 public final class ThrowsMatch extends DeclarationMatch {
@@ -49,6 +51,14 @@ public final class ThrowsMatch extends DeclarationMatch {
         return thrownTypes.testUnordered((m, t) -> m.testInstance(t, ctx), thrown);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(thrownTypes.getMatches(), TypeReferenceMatch::writeTo);
+    }
+
+    public static ThrowsMatch readFrom(BinaryReader in) {
+        return new ThrowsMatch(in.readList(TypeReferenceMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return "throws " + thrownTypes.getMatches().stream().map(Object::toString).collect(Collectors.joining(", "));
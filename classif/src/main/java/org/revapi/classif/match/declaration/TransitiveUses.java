@@ -0,0 +1,349 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.match.declaration;
+
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.TypeVariable;
+import javax.lang.model.type.WildcardType;
+
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.progress.WorkBudget;
+import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Computes the transitive closures of the types used by other types.
+ *
+ * <p>The transitive uses of a type are its direct uses (as found by {@link UseVisitor#findUses(ModelInspector)})
+ * together with the transitive uses of the types it uses as modelled by the inspector (see
+ * {@link ModelInspector#getUses(Object)}). The supertypes and type arguments of the used types are therefore considered
+ * used, but their own uses are only followed if they are also modelled uses of some type in the closure.
+ *
+ * <p>The closures are computed using the Tarjan's algorithm on the graph of the modelled uses, so that all the types in
+ * a cycle of uses are traversed only once and share the same closure. The complete closures are stored in the
+ * {@link TransitiveUsesCache} of the matching progress, so that they are computed only once for all the tests of all
+ * the statements of the progress. An instance of this class holds the state of a single computation and is not
+ * thread-safe.
+ */
+final class TransitiveUses {
+    /**
+     * The types nested deeper in the type arguments are identified just by their declarations. This keeps the number
+     * of the distinct types finite even for the expansive types like {@code C<T> implements Comparable<C<C<T>>>}.
+     */
+    private static final int MAX_TYPE_ARGUMENT_DEPTH = 8;
+
+    private final ModelInspector<?> inspector;
+    private final TransitiveUsesCache cache;
+    private final WorkBudget workBudget;
+
+    private final Map<TypeMirror, Object> keys = new IdentityHashMap<>();
+    private final Map<Object, Closure> closures = new HashMap<>();
+    private final Map<Object, List<DeclaredType>> directUses = new HashMap<>();
+    private final Map<Object, @Nullable List<DeclaredType>> modelledUses = new HashMap<>();
+    private final Map<Object, Integer> indices = new HashMap<>();
+    private final Map<Object, Integer> lowLinks = new HashMap<>();
+    private final Deque<Object> stack = new ArrayDeque<>();
+    private final Set<Object> onStack = new HashSet<>();
+
+    private TransitiveUses(ModelInspector<?> inspector, TransitiveUsesCache cache, WorkBudget workBudget) {
+        this.inspector = inspector;
+        this.cache = cache;
+        this.workBudget = workBudget;
+    }
+
+    static TransitiveUses of(MatchContext<?> ctx) {
+        TransitiveUsesCache cache = ctx.getTransitiveUses();
+        if (cache == null) {
+            // not matching within a progress, so there's no one to share the closures with
+            cache = new TransitiveUsesCache(TransitiveUsesCache.DEFAULT_MAXIMUM_SIZE);
+        }
+
+        return new TransitiveUses(ctx.getModelInspector(), cache, ctx.getWorkBudget());
+    }
+
+    /**
+     * Computes the transitive closure of the types used by the provided type, which may also be e.g. the type of
+     * a method.
+     *
+     * @param type the type to find the transitive uses of
+     * @return the closure
+     */
+    Closure of(TypeMirror type) {
+        Object rootKey = null;
+        if (type.getKind() == TypeKind.DECLARED) {
+            rootKey = new RootKey(keyOf((DeclaredType) type));
+            List<DeclaredType> cached = cache.get(rootKey);
+            if (cached != null) {
+                return new Closure(cached, true);
+            }
+        }
+
+        Stream<DeclaredType> uses = UseVisitor.findUses(inspector).visit(type);
+        if (uses == null) {
+            return new Closure(emptyList(), false);
+        }
+
+        Map<Object, DeclaredType> types = new LinkedHashMap<>();
+        boolean complete = true;
+        for (DeclaredType u : uses.collect(Collectors.toList())) {
+            Object key = keyOf(u);
+            types.putIfAbsent(key, u);
+            Closure c = closureOf(key, u);
+            addAll(types, c.types);
+            complete &= c.complete;
+        }
+
+        Closure ret = new Closure(new ArrayList<>(types.values()), complete);
+        if (rootKey != null && complete) {
+            cache.put(rootKey, ret.types);
+        }
+
+        return ret;
+    }
+
+    private Closure closureOf(Object key, DeclaredType type) {
+        Closure ret = lookup(key);
+        if (ret == null) {
+            strongConnect(key, type, 1);
+            ret = closures.get(key);
+        }
+
+        return ret;
+    }
+
+    private @Nullable Closure lookup(Object key) {
+        Closure ret = closures.get(key);
+        if (ret == null && !indices.containsKey(key)) {
+            List<DeclaredType> cached = cache.get(key);
+            if (cached != null) {
+                ret = new Closure(cached, true);
+                closures.put(key, ret);
+            }
+        }
+
+        return ret;
+    }
+
+    private void strongConnect(Object key, DeclaredType type, int depth) {
+        workBudget.checkRecursionDepth(depth);
+
+        int index = indices.size();
+        indices.put(key, index);
+        lowLinks.put(key, index);
+        stack.push(key);
+        onStack.add(key);
+
+        Stream<DeclaredType> hierarchyUses = UseVisitor.findUses(inspector, false).visit(type);
+        Stream<DeclaredType> modelledUsesStream = UseVisitor.findModelledUses(inspector, type);
+        List<DeclaredType> modelled = modelledUsesStream == null
+                ? null
+                : modelledUsesStream.collect(Collectors.toList());
+
+        List<DeclaredType> direct = hierarchyUses == null
+                ? new ArrayList<>()
+                : hierarchyUses.collect(Collectors.toCollection(ArrayList::new));
+        if (modelled != null) {
+            direct.addAll(modelled);
+        }
+
+        directUses.put(key, direct);
+        modelledUses.put(key, modelled);
+
+        if (modelled != null) {
+            for (DeclaredType u : modelled) {
+                Object useKey = keyOf(u);
+                if (lookup(useKey) != null) {
+                    continue;
+                }
+
+                if (!indices.containsKey(useKey)) {
+                    strongConnect(useKey, u, depth + 1);
+                    lowLinks.put(key, Math.min(lowLinks.get(key), lowLinks.get(useKey)));
+                } else if (onStack.contains(useKey)) {
+                    lowLinks.put(key, Math.min(lowLinks.get(key), indices.get(useKey)));
+                }
+            }
+        }
+
+        if (lowLinks.get(key) == index) {
+            List<Object> component = new ArrayList<>(2);
+            Object member;
+            do {
+                member = stack.pop();
+                onStack.remove(member);
+                component.add(member);
+            } while (member != key);
+
+            completeComponent(component);
+        }
+    }
+
+    /**
+     * All the members of a strongly connected component use each other and therefore share the same closure. It is
+     * cached only if it is complete, because the model inspector might know more of the uses later.
+     */
+    private void completeComponent(List<Object> component) {
+        Set<Object> members = new HashSet<>(component);
+        Map<Object, DeclaredType> types = new LinkedHashMap<>();
+        boolean complete = true;
+
+        for (Object m : component) {
+            for (DeclaredType u : directUses.get(m)) {
+                types.putIfAbsent(keyOf(u), u);
+            }
+
+            List<DeclaredType> modelled = modelledUses.get(m);
+            if (modelled == null) {
+                complete = false;
+                continue;
+            }
+
+            for (DeclaredType u : modelled) {
+                Object useKey = keyOf(u);
+                if (!members.contains(useKey)) {
+                    Closure c = closures.get(useKey);
+                    addAll(types, c.types);
+                    complete &= c.complete;
+                }
+            }
+        }
+
+        Closure closure = new Closure(new ArrayList<>(types.values()), complete);
+        for (Object m : component) {
+            closures.put(m, closure);
+            directUses.remove(m);
+            modelledUses.remove(m);
+            if (complete) {
+                cache.put(m, closure.types);
+            }
+        }
+    }
+
+    private void addAll(Map<Object, DeclaredType> types, List<DeclaredType> closure) {
+        for (DeclaredType t : closure) {
+            types.putIfAbsent(keyOf(t), t);
+        }
+    }
+
+    private Object keyOf(DeclaredType type) {
+        Object ret = keys.get(type);
+        if (ret == null) {
+            ret = typeKey(type, 0);
+            keys.put(type, ret);
+        }
+
+        return ret;
+    }
+
+    /**
+     * The structurally equal types have equal keys. The type mirrors themselves cannot be used as keys, because their
+     * equality is not defined and e.g. the compiler creates new instances for the same parameterized types.
+     */
+    private static Object typeKey(TypeMirror type, int depth) {
+        switch (type.getKind()) {
+        case DECLARED:
+            DeclaredType declared = (DeclaredType) type;
+            TypeMirror enclosing = declared.getEnclosingType();
+            boolean parameterizedEnclosing = enclosing.getKind() == TypeKind.DECLARED
+                    && !((DeclaredType) enclosing).getTypeArguments().isEmpty();
+
+            if (depth >= MAX_TYPE_ARGUMENT_DEPTH
+                    || (declared.getTypeArguments().isEmpty() && !parameterizedEnclosing)) {
+                return declared.asElement();
+            }
+
+            List<Object> key = new ArrayList<>(declared.getTypeArguments().size() + 2);
+            key.add(declared.asElement());
+            key.add(parameterizedEnclosing ? typeKey(enclosing, depth + 1) : null);
+            for (TypeMirror arg : declared.getTypeArguments()) {
+                key.add(typeKey(arg, depth + 1));
+            }
+            return key;
+        case TYPEVAR:
+            return ((TypeVariable) type).asElement();
+        case WILDCARD:
+            WildcardType wildcard = (WildcardType) type;
+            return Arrays.asList(TypeKind.WILDCARD,
+                    wildcard.getExtendsBound() == null ? null : typeKey(wildcard.getExtendsBound(), depth + 1),
+                    wildcard.getSuperBound() == null ? null : typeKey(wildcard.getSuperBound(), depth + 1));
+        case ARRAY:
+            return Arrays.asList(TypeKind.ARRAY, typeKey(((ArrayType) type).getComponentType(), depth + 1));
+        default:
+            return type.getKind().isPrimitive() ? type.getKind() : type;
+        }
+    }
+
+    /**
+     * The closure of a type tested by the match (as opposed to the closures of the types it uses) also follows the
+     * uses of its supertypes and type arguments, so it is cached under a different key.
+     */
+    private static final class RootKey {
+        private final Object typeKey;
+
+        private RootKey(Object typeKey) {
+            this.typeKey = typeKey;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof RootKey && typeKey.equals(((RootKey) o).typeKey);
+        }
+
+        @Override
+        public int hashCode() {
+            return typeKey.hashCode() * 31 + 1;
+        }
+    }
+
+    /**
+     * The transitive closure of the types used by some type.
+     */
+    static final class Closure {
+        final List<DeclaredType> types;
+
+        /**
+         * False if the model inspector didn't know the uses of some of the types, in which case some types may be
+         * missing from the closure.
+         */
+        final boolean complete;
+
+        Closure(List<DeclaredType> types, boolean complete) {
+            this.types = types;
+            this.complete = complete;
+        }
+    }
+}
@@ -19,6 +19,7 @@ package org.revapi.classif.match.declaration;
 import static org.revapi.classif.TestResult.PASSED;
 import static org.revapi.classif.TestResult.TestableStream.testable;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -26,7 +27,10 @@ import javax.lang.model.element.Element;
 import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class TypeConstraintsMatch extends DeclarationMatch {
@@ -51,6 +55,32 @@ public final class TypeConstraintsMatch extends DeclarationMatch {
                 .and(() -> extended == null ? PASSED : extended.testDeclaration(declaration, instantiation, ctx));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(implemented, ImplementsMatch::writeTo);
+        out.writeNullable(extended, ExtendsMatch::writeTo);
+        out.writeList(uses, UsesMatch::writeTo);
+        out.writeList(usedBys, UsedByMatch::writeTo);
+    }
+
+    public static TypeConstraintsMatch readFrom(BinaryReader in) {
+        List<ImplementsMatch> implemented = in.readList(ImplementsMatch::readFrom);
+        ExtendsMatch extended = in.readNullable(ExtendsMatch::readFrom);
+        List<UsesMatch> uses = in.readList(UsesMatch::readFrom);
+        return new TypeConstraintsMatch(implemented, extended, uses, in.readList(UsedByMatch::readFrom));
+    }
+
+    @Override
+    public List<Match> getRecursiveMatches() {
+        List<Match> ret = new ArrayList<>();
+        implemented.forEach(m -> ret.addAll(m.getRecursiveMatches()));
+        if (extended != null) {
+            ret.addAll(extended.getRecursiveMatches());
+        }
+        uses.forEach(m -> ret.addAll(m.getRecursiveMatches()));
+        usedBys.forEach(m -> ret.addAll(m.getRecursiveMatches()));
+        return ret;
+    }
+
     @Override
     public String toString() {
         StringBuilder bld = new StringBuilder();
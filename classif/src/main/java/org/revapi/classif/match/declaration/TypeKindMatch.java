@@ -23,6 +23,8 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class TypeKindMatch extends DeclarationMatch {
     private final boolean negation;
@@ -40,6 +42,16 @@ public final class TypeKindMatch extends DeclarationMatch {
         return TestResult.fromBoolean(negation != matches);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(negation);
+        out.writeEnum(kind);
+    }
+
+    public static TypeKindMatch readFrom(BinaryReader in) {
+        boolean negation = in.readBoolean();
+        return new TypeKindMatch(negation, in.readEnum(TypeKind.class));
+    }
+
     @Override
     public String toString() {
         StringBuilder bld = new StringBuilder();
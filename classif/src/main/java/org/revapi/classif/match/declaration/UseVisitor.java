@@ -25,7 +25,6 @@ import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import javax.lang.model.element.Element;
-import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.ArrayType;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.ErrorType;
@@ -57,6 +56,20 @@ final class UseVisitor {
      * @return a visitor returning a stream of direct uses of some element.
      */
     static <M> TypeVisitor<@Nullable Stream<DeclaredType>, ?> findUses(ModelInspector<M> insp) {
+        return findUses(insp, true);
+    }
+
+    /**
+     * Similar to {@link #findUses(ModelInspector)} but the uses of the types modelled by the inspector can be left out.
+     * Those can be obtained separately using {@link #findModelledUses(ModelInspector, DeclaredType)}.
+     *
+     * @param insp        the inspector to find uses of types
+     * @param includeModelledUses whether to include the uses modelled by the inspector
+     * @param <M>         the type of the model elements
+     * @return a visitor returning a stream of direct uses of some element.
+     */
+    static <M> TypeVisitor<@Nullable Stream<DeclaredType>, ?> findUses(ModelInspector<M> insp,
+            boolean includeModelledUses) {
         return new SimpleTypeVisitor8<Stream<DeclaredType>, Void>(empty()) {
             private HashSet<TypeMirror> visited = new HashSet<>();
             private int depth;
@@ -98,10 +111,13 @@ final class UseVisitor {
                             ret = concat(ret, visit(st, null));
                         }
 
+                        if (!includeModelledUses) {
+                            return ret;
+                        }
+
                         // we're looking for uses of the type, so just append anything the inspector wants us to consider
                         // a use on top of what we already know ourselves.
-                        TypeElement type = (TypeElement) t.asElement();
-                        Stream<DeclaredType> modelledUses = modelledUses(type);
+                        Stream<DeclaredType> modelledUses = findModelledUses(insp, t);
 
                         return modelledUses == null ? null : concat(ret, modelledUses);
                     } else {
@@ -154,10 +170,6 @@ final class UseVisitor {
                 });
             }
 
-            private Stream<DeclaredType> modelledUses(TypeElement t) {
-                return insp.getUses(insp.fromElement(t)).stream().map(type -> (DeclaredType) insp.toMirror(type));
-            }
-
             private <T> T nest(Supplier<T> fn) {
                 try {
                     depth++;
@@ -169,6 +181,20 @@ final class UseVisitor {
         };
     }
 
+    /**
+     * Returns the types used by the provided type as modelled by the inspector.
+     *
+     * @param insp the inspector to find the uses of the type
+     * @param type the type to find the uses of
+     * @param <M>  the type of the model elements
+     * @return the stream of the used types or null if the inspector doesn't know the uses of the type yet
+     * @see ModelInspector#getUses(Object)
+     */
+    static <M> @Nullable Stream<DeclaredType> findModelledUses(ModelInspector<M> insp, DeclaredType type) {
+        Set<M> uses = insp.getUses(insp.fromElement(type.asElement()));
+        return uses == null ? null : uses.stream().map(u -> (DeclaredType) insp.toMirror(u));
+    }
+
     /**
      * Returns a visitor to find out the stream of elements directly using the provided types.
      *
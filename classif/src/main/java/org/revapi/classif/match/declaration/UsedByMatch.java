@@ -16,6 +16,8 @@
  */
 package org.revapi.classif.match.declaration;
 
+import static java.util.Collections.singletonList;
+
 import static org.revapi.classif.TestResult.DEFERRED;
 import static org.revapi.classif.TestResult.NOT_PASSED;
 import static org.revapi.classif.TestResult.TestableStream.testable;
@@ -30,8 +32,11 @@ import javax.lang.model.type.TypeMirror;
 import javax.lang.model.type.TypeVisitor;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class UsedByMatch extends DeclarationMatch {
 
@@ -75,6 +80,21 @@ public final class UsedByMatch extends DeclarationMatch {
         }
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(onlyDirect);
+        out.writeStrings(referencedVariables);
+    }
+
+    public static UsedByMatch readFrom(BinaryReader in) {
+        boolean onlyDirect = in.readBoolean();
+        return new UsedByMatch(onlyDirect, in.readStrings());
+    }
+
+    @Override
+    public List<Match> getRecursiveMatches() {
+        return singletonList(this);
+    }
+
     @Override
     public String toString() {
         return "usedby " + (onlyDirect ? "directly " : "")
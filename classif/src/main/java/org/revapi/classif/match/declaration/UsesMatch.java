@@ -16,18 +16,23 @@
  */
 package org.revapi.classif.match.declaration;
 
+import static java.util.Collections.singletonList;
+
 import static org.revapi.classif.TestResult.TestableStream.testable;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeMirror;
-import javax.lang.model.type.TypeVisitor;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class UsesMatch extends DeclarationMatch {
 
@@ -41,31 +46,39 @@ public final class UsesMatch extends DeclarationMatch {
 
     @Override
     public <M> TestResult testAnyDeclaration(Element declaration, TypeMirror instantiation, MatchContext<M> ctx) {
-        TypeVisitor<Stream<DeclaredType>, ?> visitor = UseVisitor.findUses(ctx.getModelInspector());
+        if (onlyDirect) {
+            Stream<DeclaredType> directUses = UseVisitor.findUses(ctx.getModelInspector()).visit(instantiation);
 
-        Stream<DeclaredType> directUses = visitor.visit(instantiation);
+            return directUses == null
+                    ? TestResult.DEFERRED
+                    : testable(directUses).testAny(u -> type.testInstance(u, ctx));
+        } else {
+            // the closures of the used types are shared by all the tests in the matching progress
+            TransitiveUses.Closure closure = TransitiveUses.of(ctx).of(instantiation);
 
-        if (directUses == null) {
-            return TestResult.DEFERRED;
+            TestResult ret = testable(closure.types).testAny(u -> type.testInstance(u, ctx));
+            return closure.complete ? ret : ret.or(TestResult.DEFERRED);
         }
+    }
 
-        if (onlyDirect) {
-            return testable(directUses).testAny(u -> type.testInstance(u, ctx));
-        } else {
-            return testRecursively(directUses, ctx, UseVisitor.findUses(ctx.getModelInspector()));
-        }
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(onlyDirect);
+        type.writeTo(out);
     }
 
-    @Override
-    public String toString() {
-        return (onlyDirect ? "directly " : "") + "uses " + type;
+    public static UsesMatch readFrom(BinaryReader in) {
+        boolean onlyDirect = in.readBoolean();
+        return new UsesMatch(onlyDirect, TypeReferenceMatch.readFrom(in));
     }
 
-    private TestResult testRecursively(Stream<DeclaredType> types,
-            MatchContext<?> ctx, TypeVisitor<Stream<DeclaredType>, ?> visitor) {
+    @Override
+    public List<Match> getRecursiveMatches() {
+        return singletonList(this);
+    }
 
-        return types == null ? TestResult.DEFERRED : testable(types).testAny(t -> type.testInstance(t, ctx).or(() ->
-                testRecursively(visitor.visit(t), ctx, visitor)));
+    @Override
+    public String toString() {
+        return (onlyDirect ? "directly " : "") + "uses " + type;
     }
 
 }
@@ -16,10 +16,13 @@
  */
 package org.revapi.classif.match.instance;
 
+import static java.util.Collections.singletonList;
+
 import static org.revapi.classif.TestResult.NOT_PASSED;
 import static org.revapi.classif.TestResult.PASSED;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -33,6 +36,8 @@ import javax.lang.model.type.TypeMirror;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
 import org.revapi.classif.match.NameMatch;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.util.Nullable;
@@ -62,6 +67,41 @@ public final class FqnMatch extends TypeInstanceMatch implements Globbed {
         return matchAll;
     }
 
+    /**
+     * @return the names at the start of the fully qualified name that are matched exactly. The fully qualified names of
+     * all the types matched by this match start with these names. Empty if the match starts with a wildcard or a
+     * pattern.
+     */
+    public List<String> getExactPrefix() {
+        if (glob == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> ret = new ArrayList<>();
+        for (NameMatch m : glob.getMatches()) {
+            String name = m.getExactMatch();
+            if (name == null) {
+                break;
+            }
+            ret.add(name);
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the fully qualified name matched by this match if it is matched exactly or null if this match can match
+     * more than one name
+     */
+    public @Nullable String getExactName() {
+        if (glob == null) {
+            return null;
+        }
+
+        List<String> prefix = getExactPrefix();
+        return prefix.size() == glob.getMatches().size() ? String.join(".", prefix) : null;
+    }
+
     @Override
     public <M> TestResult testAnyInstance(TypeMirror instantiation, MatchContext<M> ctx) {
         // special case - * or ** are considered equal for the fqns...
@@ -87,6 +127,17 @@ public final class FqnMatch extends TypeInstanceMatch implements Globbed {
         return glob.test((m, n) -> TestResult.fromBoolean(m.matches(n)), split(fqn));
     }
 
+    public void writeTo(BinaryWriter out) {
+        List<NameMatch> names = glob == null
+                ? singletonList(matchAny ? NameMatch.any() : NameMatch.all())
+                : glob.getMatches();
+        out.writeList(names, NameMatch::writeTo);
+    }
+
+    public static FqnMatch readFrom(BinaryReader in) {
+        return new FqnMatch(in.readList(NameMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return glob == null
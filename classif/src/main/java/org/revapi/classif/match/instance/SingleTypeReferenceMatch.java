@@ -44,6 +44,8 @@ import javax.lang.model.util.SimpleTypeVisitor8;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.util.Nullable;
 
@@ -110,6 +112,15 @@ public final class SingleTypeReferenceMatch extends TypeInstanceMatch implements
         return variable;
     }
 
+    /**
+     * @return the fully qualified name of the only type this match can match or null if it can match other types, too
+     */
+    public @Nullable String getExactTypeName() {
+        return negation || variable != null || arrayDimension != 0 || fullyQualifiedName == null
+                ? null
+                : fullyQualifiedName.getExactName();
+    }
+
     @Override
     public <M> TestResult testAnyInstance(TypeMirror instance, MatchContext<M> ctx) {
         return instance.accept(new SimpleTypeVisitor8<TestResult, Void>(NOT_PASSED) {
@@ -180,6 +191,22 @@ public final class SingleTypeReferenceMatch extends TypeInstanceMatch implements
         }, null);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeNullable(fullyQualifiedName, FqnMatch::writeTo);
+        out.writeNullable(typeParameters, TypeParametersMatch::writeTo);
+        out.writeString(variable);
+        out.writeBoolean(negation);
+        out.writeInt(arrayDimension);
+    }
+
+    public static SingleTypeReferenceMatch readFrom(BinaryReader in) {
+        FqnMatch fqn = in.readNullable(FqnMatch::readFrom);
+        TypeParametersMatch typeParameters = in.readNullable(TypeParametersMatch::readFrom);
+        String variable = in.readString();
+        boolean negation = in.readBoolean();
+        return new SingleTypeReferenceMatch(fqn, typeParameters, variable, negation, in.readInt());
+    }
+
     @Override
     public String toString() {
         StringBuilder ret = new StringBuilder(negation ? "!" : "");
@@ -38,6 +38,8 @@ import javax.lang.model.type.WildcardType;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
 import org.revapi.classif.util.Nullable;
 
@@ -119,6 +121,16 @@ public final class TypeParameterMatch extends TypeInstanceMatch implements Globb
         }
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeNullable(wildcard, TypeParameterWildcardMatch::writeTo);
+        out.writeNullable(bounds, (bs, o) -> o.writeList(bs, TypeReferenceMatch::writeTo));
+    }
+
+    public static TypeParameterMatch readFrom(BinaryReader in) {
+        TypeParameterWildcardMatch wildcard = in.readNullable(TypeParameterWildcardMatch::readFrom);
+        return new TypeParameterMatch(wildcard, in.readNullable(i -> i.readList(TypeReferenceMatch::readFrom)));
+    }
+
     @Override
     public String toString() {
         return wildcard != null
@@ -26,6 +26,8 @@ import javax.lang.model.type.WildcardType;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 
 public final class TypeParameterWildcardMatch extends TypeInstanceMatch {
     private final boolean isExtends;
@@ -47,6 +49,16 @@ public final class TypeParameterWildcardMatch extends TypeInstanceMatch {
         return testable(bounds).testAll(m -> m.testInstance(b, matchContext));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeBoolean(isExtends);
+        out.writeList(bounds, TypeReferenceMatch::writeTo);
+    }
+
+    public static TypeParameterWildcardMatch readFrom(BinaryReader in) {
+        boolean isExtends = in.readBoolean();
+        return new TypeParameterWildcardMatch(isExtends, in.readList(TypeReferenceMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return "?" + (isExtends ? " extends " : " super ")
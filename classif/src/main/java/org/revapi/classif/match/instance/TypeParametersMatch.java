@@ -29,6 +29,8 @@ import javax.lang.model.type.TypeVariable;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 
 public final class TypeParametersMatch extends TypeInstanceMatch {
@@ -63,6 +65,14 @@ public final class TypeParametersMatch extends TypeInstanceMatch {
         return testInstance(t.getUpperBound(), matchContext);
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(glob.getMatches(), TypeParameterMatch::writeTo);
+    }
+
+    public static TypeParametersMatch readFrom(BinaryReader in) {
+        return new TypeParametersMatch(in.readList(TypeParameterMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return glob.getMatches().stream().map(Object::toString).collect(Collectors.joining(", "));
@@ -25,7 +25,10 @@ import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Globbed;
+import org.revapi.classif.util.Nullable;
 
 public final class TypeReferenceMatch extends TypeInstanceMatch implements Globbed {
     private final List<SingleTypeReferenceMatch> matches;
@@ -44,11 +47,26 @@ public final class TypeReferenceMatch extends TypeInstanceMatch implements Globb
         return matches.size() == 1 && matches.get(0).isMatchAny();
     }
 
+    /**
+     * @return the fully qualified name of the only type this match can match or null if it can match other types, too
+     */
+    public @Nullable String getExactTypeName() {
+        return matches.size() == 1 ? matches.get(0).getExactTypeName() : null;
+    }
+
     @Override
     public <M> TestResult testAnyInstance(TypeMirror instantiation, MatchContext<M> ctx) {
         return testable(matches).testAny(m -> m.testInstance(instantiation, ctx));
     }
 
+    public void writeTo(BinaryWriter out) {
+        out.writeList(matches, SingleTypeReferenceMatch::writeTo);
+    }
+
+    public static TypeReferenceMatch readFrom(BinaryReader in) {
+        return new TypeReferenceMatch(in.readList(SingleTypeReferenceMatch::readFrom));
+    }
+
     @Override
     public String toString() {
         return matches.stream().map(Object::toString).collect(Collectors.joining(" | "));
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.Objects;
+
+/**
+ * A feature of an element that a statement requires in order to match it. The elements without the feature can never
+ * match the statement so there is no need to test them with it.
+ */
+public final class Anchor {
+    private final Kind kind;
+    private final String name;
+
+    private Anchor(Kind kind, String name) {
+        this.kind = kind;
+        this.name = name;
+    }
+
+    /**
+     * @param fullyQualifiedName the fully qualified name of the required type
+     * @return an anchor of the type definitions with the provided name
+     */
+    public static Anchor typeName(String fullyQualifiedName) {
+        return new Anchor(Kind.TYPE_NAME, fullyQualifiedName);
+    }
+
+    /**
+     * @param simpleName the simple name of the required methods
+     * @return an anchor of the methods and constructors with the provided name
+     */
+    public static Anchor methodName(String simpleName) {
+        return new Anchor(Kind.METHOD_NAME, simpleName);
+    }
+
+    /**
+     * @param simpleName the simple name of the required fields
+     * @return an anchor of the fields (or other variables) with the provided name
+     */
+    public static Anchor variableName(String simpleName) {
+        return new Anchor(Kind.VARIABLE_NAME, simpleName);
+    }
+
+    /**
+     * @param fullyQualifiedName the fully qualified name of the annotation type
+     * @return an anchor of the elements annotated with the provided annotation type
+     */
+    public static Anchor annotationType(String fullyQualifiedName) {
+        return new Anchor(Kind.ANNOTATION_TYPE, fullyQualifiedName);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Anchor anchor = (Anchor) o;
+        return kind == anchor.kind && name.equals(anchor.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, name);
+    }
+
+    @Override
+    public String toString() {
+        return kind + ":" + name;
+    }
+
+    public enum Kind {
+        TYPE_NAME, METHOD_NAME, VARIABLE_NAME, ANNOTATION_TYPE
+    }
+}
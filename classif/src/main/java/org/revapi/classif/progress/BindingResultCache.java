@@ -0,0 +1,148 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.revapi.classif.TestResult;
+import org.revapi.classif.util.CacheStatistics;
+import org.revapi.classif.util.Nullable;
+import org.revapi.classif.util.execution.Node;
+
+/**
+ * Caches the results of testing a statement against a model with some binding of the variables.
+ *
+ * <p>The result of such test only depends on the variables the statement can reach through its children, dependencies
+ * and dependents. Therefore the results are keyed by the statement, the model and only the projection of the binding
+ * onto those variables. This makes the results reusable across all the bindings that only differ in the variables
+ * that are not relevant to the statement.
+ *
+ * <p>The cache is thread-safe so that it can be shared by the evaluations running in parallel.
+ *
+ * @param <M> the type of the model elements
+ */
+final class BindingResultCache<M> {
+    private static final Object UNBOUND = new Object() {
+        @Override
+        public String toString() {
+            return "<unbound>";
+        }
+    };
+
+    private final Map<Node<StatementMatch<M>>, List<String>> relevantVariables;
+    private final Map<Key, TestResult> results = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param relevantVariables the variables that can influence the result of each statement
+     */
+    BindingResultCache(Map<Node<StatementMatch<M>>, List<String>> relevantVariables) {
+        this.relevantVariables = relevantVariables;
+    }
+
+    Key keyOf(Node<StatementMatch<M>> statement, M model, Map<String, M> binding) {
+        List<String> vars = relevantVariables.get(statement);
+        Object[] values = new Object[vars.size()];
+        boolean complete = true;
+        for (int i = 0; i < values.length; ++i) {
+            String var = vars.get(i);
+            if (binding.containsKey(var)) {
+                values[i] = binding.get(var);
+            } else {
+                values[i] = UNBOUND;
+                complete = false;
+            }
+        }
+
+        return new Key(statement, model, values, complete);
+    }
+
+    @Nullable TestResult get(Key key) {
+        TestResult ret = results.get(key);
+        if (ret == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+
+        return ret;
+    }
+
+    void put(Key key, TestResult result) {
+        results.put(key, result);
+    }
+
+    CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.sum(), misses.sum());
+    }
+
+    static final class Key {
+        private final Node<?> statement;
+        private final Object model;
+        private final Object[] values;
+        private final boolean complete;
+        private final int hash;
+
+        private Key(Node<?> statement, Object model, Object[] values, boolean complete) {
+            this.statement = statement;
+            this.model = model;
+            this.values = values;
+            this.complete = complete;
+            this.hash = 31 * (31 * System.identityHashCode(statement) + Objects.hashCode(model))
+                    + Arrays.hashCode(values);
+        }
+
+        /**
+         * @return true if all the variables relevant to the statement are bound
+         */
+        boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            Key key = (Key) o;
+            return statement == key.statement && Objects.equals(model, key.model) && Arrays.equals(values, key.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return "Key{" +
+                    "statement=" + statement +
+                    ", model=" + model +
+                    ", values=" + Arrays.toString(values) +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.util.Collections.emptySet;
+
+import static org.revapi.classif.TestResult.DEFERRED;
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.TestResult.PASSED;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Predicate;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Finds out whether there is an assignment of candidate models to variables that satisfies some objective.
+ *
+ * <p>The objective is evaluated using the ternary logic of the {@link TestResult}. It is given a partial binding
+ * of the variables and must return {@link TestResult#NOT_PASSED} only if no completion of that binding can pass and
+ * {@link TestResult#PASSED} only if every completion of it passes. This is what makes it possible to prune the search
+ * space. Unbound variables are therefore to be treated as {@link TestResult#DEFERRED}.
+ *
+ * <p>The solver first prunes the candidates of each variable on their own (node consistency), then against the
+ * candidates of the neighbouring variables (arc consistency, AC-3) and then does a backtracking search with
+ * forward checking, always binding the most constrained variable (the one with the fewest remaining candidates)
+ * first.
+ *
+ * <p>The candidates are never copied. The pruned candidates are only remembered by their position in the iteration
+ * order of the candidates, so that the candidates that are not kept in memory (see {@link SpillingCandidateSet}) are
+ * only re-created one at a time while being iterated over. The candidates must therefore not change while the solver
+ * runs.
+ *
+ * @param <M> the type of the model elements
+ */
+final class BindingSolver<M> {
+    private static final Logger LOG = LogManager.getLogger(BindingSolver.class);
+
+    private final Map<String, ? extends Collection<M>> domains;
+    private final Map<String, Set<String>> neighbors;
+
+    /**
+     * @param domains the candidates of each variable. The iteration order of this map determines the order in which
+     *                the variables are bound when they are equally constrained.
+     * @param neighbors for each variable the set of variables it is directly constrained by
+     */
+    BindingSolver(Map<String, ? extends Collection<M>> domains, Map<String, Set<String>> neighbors) {
+        this.domains = domains;
+        this.neighbors = neighbors;
+    }
+
+    /**
+     * @param objective the objective to satisfy
+     * @return true if there exists a binding of all the variables for which the objective passes, false otherwise
+     */
+    boolean solve(Objective<M> objective) {
+        return new Search(objective).run();
+    }
+
+    @FunctionalInterface
+    interface Objective<M> {
+        /**
+         * @param binding the (partial) binding of the variables. Variables that are not bound are not present in the
+         *                map. Note that a variable can be bound to a null value.
+         * @param complete true if all the variables are bound
+         * @return the result of the test of the binding
+         */
+        TestResult test(Map<String, M> binding, boolean complete);
+    }
+
+    private final class Search {
+        final Objective<M> objective;
+        final Map<String, M> binding = new HashMap<>();
+        boolean solved;
+
+        Search(Objective<M> objective) {
+            this.objective = objective;
+        }
+
+        boolean run() {
+            if (domains.isEmpty()) {
+                return evaluate() == PASSED;
+            }
+
+            Map<String, Domain<M>> current = new LinkedHashMap<>();
+            domains.forEach((var, candidates) -> current.put(var, new Domain<>(candidates)));
+
+            if (!makeNodeConsistent(current) || !makeArcConsistent(current)) {
+                return solved;
+            }
+
+            return search(current);
+        }
+
+        private boolean makeNodeConsistent(Map<String, Domain<M>> candidates) {
+            for (Map.Entry<String, Domain<M>> e : candidates.entrySet()) {
+                String var = e.getKey();
+                e.getValue().removeIf(value -> !isViable(var, value));
+
+                if (solved) {
+                    return false;
+                }
+
+                if (e.getValue().isEmpty()) {
+                    LOG.trace("No candidate of variable {} is viable.", var);
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private boolean makeArcConsistent(Map<String, Domain<M>> candidates) {
+            Deque<String[]> arcs = new ArrayDeque<>();
+            candidates.keySet().forEach(v -> neighborsOf(v).forEach(w -> arcs.add(new String[]{v, w})));
+
+            while (!arcs.isEmpty()) {
+                String[] arc = arcs.poll();
+                String v = arc[0];
+                String w = arc[1];
+
+                if (revise(v, w, candidates)) {
+                    if (solved) {
+                        return false;
+                    }
+
+                    if (candidates.get(v).isEmpty()) {
+                        LOG.trace("Candidates of variable {} exhausted when checking against variable {}.", v, w);
+                        return false;
+                    }
+
+                    for (String u : neighborsOf(v)) {
+                        if (!u.equals(w)) {
+                            arcs.add(new String[]{u, v});
+                        }
+                    }
+                }
+            }
+
+            return !solved;
+        }
+
+        /**
+         * Removes the candidates of {@code v} that have no supporting candidate in {@code w}.
+         */
+        private boolean revise(String v, String w, Map<String, Domain<M>> candidates) {
+            Domain<M> supports = candidates.get(w);
+            if (supports == null) {
+                return false;
+            }
+
+            return candidates.get(v).removeIf(value -> {
+                if (solved) {
+                    return false;
+                }
+
+                binding.put(v, value);
+                try {
+                    for (M support : supports) {
+                        if (isViable(w, support)) {
+                            return false;
+                        }
+
+                        if (solved) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } finally {
+                    binding.remove(v);
+                }
+            });
+        }
+
+        private boolean search(Map<String, Domain<M>> candidates) {
+            String var = mostConstrainedVariable(candidates);
+            if (var == null) {
+                // all variables are bound and the last binding didn't pass, otherwise we'd have been solved
+                return false;
+            }
+
+            for (M value : candidates.get(var)) {
+                binding.put(var, value);
+
+                TestResult res = evaluate();
+                if (res == PASSED) {
+                    return true;
+                }
+
+                if (res == DEFERRED && !isComplete()) {
+                    Map<String, Domain<M>> reduced = forwardCheck(var, candidates);
+                    if (solved || (reduced != null && search(reduced))) {
+                        return true;
+                    }
+                }
+
+                binding.remove(var);
+            }
+
+            return false;
+        }
+
+        private @Nullable Map<String, Domain<M>> forwardCheck(String boundVariable, Map<String, Domain<M>> candidates) {
+            Map<String, Domain<M>> ret = new LinkedHashMap<>(candidates);
+
+            for (String w : neighborsOf(boundVariable)) {
+                if (binding.containsKey(w) || !candidates.containsKey(w)) {
+                    continue;
+                }
+
+                Domain<M> remaining = candidates.get(w).copy();
+                remaining.removeIf(value -> !solved && !isViable(w, value));
+
+                if (solved) {
+                    return ret;
+                }
+
+                if (remaining.isEmpty()) {
+                    return null;
+                }
+
+                ret.put(w, remaining);
+            }
+
+            return ret;
+        }
+
+        private @Nullable String mostConstrainedVariable(Map<String, Domain<M>> candidates) {
+            String ret = null;
+            int retSize = Integer.MAX_VALUE;
+            int retDegree = -1;
+
+            for (Map.Entry<String, Domain<M>> e : candidates.entrySet()) {
+                String var = e.getKey();
+                if (binding.containsKey(var)) {
+                    continue;
+                }
+
+                int size = e.getValue().size();
+                int degree = neighborsOf(var).size();
+                if (size < retSize || (size == retSize && degree > retDegree)) {
+                    ret = var;
+                    retSize = size;
+                    retDegree = degree;
+                }
+            }
+
+            return ret;
+        }
+
+        private boolean isViable(String var, M value) {
+            binding.put(var, value);
+            try {
+                TestResult res = evaluate();
+                return res == PASSED || (res == DEFERRED && !isComplete());
+            } finally {
+                binding.remove(var);
+            }
+        }
+
+        private TestResult evaluate() {
+            TestResult res = objective.test(binding, isComplete());
+            if (res == PASSED) {
+                LOG.trace("Binding {} passes.", binding);
+                solved = true;
+            }
+            return res;
+        }
+
+        private boolean isComplete() {
+            return binding.size() == domains.size();
+        }
+
+        private Set<String> neighborsOf(String var) {
+            return neighbors.getOrDefault(var, emptySet());
+        }
+    }
+
+    /**
+     * The candidates of a variable minus the pruned ones. The pruned candidates are identified by their position in
+     * the iteration order of the candidates.
+     */
+    private static final class Domain<M> implements Iterable<M> {
+        private final Collection<M> values;
+        private final BitSet pruned;
+        private int size;
+
+        Domain(Collection<M> values) {
+            this(values, new BitSet(), values.size());
+        }
+
+        private Domain(Collection<M> values, BitSet pruned, int size) {
+            this.values = values;
+            this.pruned = pruned;
+            this.size = size;
+        }
+
+        Domain<M> copy() {
+            return new Domain<>(values, (BitSet) pruned.clone(), size);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        boolean removeIf(Predicate<? super M> filter) {
+            boolean ret = false;
+            int idx = 0;
+            for (M value : values) {
+                if (!pruned.get(idx) && filter.test(value)) {
+                    pruned.set(idx);
+                    size--;
+                    ret = true;
+                }
+                idx++;
+            }
+            return ret;
+        }
+
+        @Override
+        public Iterator<M> iterator() {
+            Iterator<M> it = values.iterator();
+            return new Iterator<M>() {
+                int position;
+                @Nullable M next;
+                boolean hasNext = advance();
+
+                @Override
+                public boolean hasNext() {
+                    return hasNext;
+                }
+
+                @Override
+                public M next() {
+                    if (!hasNext) {
+                        throw new NoSuchElementException();
+                    }
+
+                    M ret = next;
+                    hasNext = advance();
+                    return ret;
+                }
+
+                private boolean advance() {
+                    next = null;
+                    while (it.hasNext()) {
+                        M value = it.next();
+                        if (!pruned.get(position++)) {
+                            next = value;
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "Domain{size=" + size + "}";
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+/**
+ * Can be used to cancel the matching from another thread. The matching progress checks the token regularly during
+ * the tree walk and during the resolution of the deferred models and stops as soon as it notices the cancellation.
+ *
+ * @see MatchingProgress#setCancellationToken(CancellationToken)
+ */
+public final class CancellationToken {
+    private volatile boolean cancelled;
+
+    /**
+     * Requests the cancellation of the matching.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
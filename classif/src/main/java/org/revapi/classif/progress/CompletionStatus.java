@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+/**
+ * Tells whether a round of matching was able to determine the results of all the models or whether it had to stop
+ * early.
+ *
+ * @see MatchingProgress#getCompletionStatus()
+ */
+public enum CompletionStatus {
+    /**
+     * All the models were fully evaluated.
+     */
+    COMPLETE,
+
+    /**
+     * The {@link org.revapi.classif.StructuralMatcher.Configuration#withWorkBudget(long, int, java.time.Duration) work
+     * budget} was exceeded. The results of the models that could not be evaluated are
+     * {@link org.revapi.classif.TestResult#DEFERRED}.
+     */
+    BUDGET_EXCEEDED,
+
+    /**
+     * The matching was cancelled using the {@link CancellationToken}. The results of the models that could not be
+     * evaluated are {@link org.revapi.classif.TestResult#DEFERRED}.
+     */
+    CANCELLED
+}
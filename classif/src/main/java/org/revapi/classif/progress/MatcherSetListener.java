@@ -0,0 +1,54 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+
+/**
+ * Receives the results of the individual structural matchers of a matcher set as soon as they are known. This is
+ * the counterpart of the {@link ResolutionListener} of a single matcher.
+ *
+ * @param <M> the type of the model elements
+ * @see MatcherSetProgress#setMatchListener(MatcherSetListener)
+ */
+@FunctionalInterface
+public interface MatcherSetListener<M> {
+
+    /**
+     * Called exactly once for each model and each structural matcher it matches.
+     *
+     * @param matcher the structural matcher the model matches
+     * @param model the matching model
+     * @see ResolutionListener#matched(Object)
+     */
+    void matched(StructuralMatcher matcher, M model);
+
+    /**
+     * Called once for each model that was {@link TestResult#DEFERRED} by a structural matcher when it was finished
+     * during the tree walk, as soon as its final result is known.
+     *
+     * <p>By default, this method does nothing.
+     *
+     * @param matcher the structural matcher that deferred the model
+     * @param model the previously deferred model
+     * @param result the final result of the model
+     * @see ResolutionListener#resolved(Object, TestResult)
+     */
+    default void resolved(StructuralMatcher matcher, M model, TestResult result) {
+    }
+}
@@ -0,0 +1,468 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static org.revapi.classif.TestResult.NOT_PASSED;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.Nullable;
+import org.revapi.classif.util.execution.DependencyGraph;
+
+/**
+ * Matches the models against several structural matchers during a single tree walk. The usage is the same as with
+ * the {@link MatchingProgress} of a single structural matcher, only the results are reported per matcher.
+ *
+ * <p>The matchers share the conversions of the models and the results of their structurally equal matches. The walk
+ * only descends into the children that at least one of the matchers is interested in and each matcher only sees
+ * the models it would see if it walked the tree alone.
+ *
+ * @param <M> the type of the model elements
+ */
+public final class MatcherSetProgress<M> implements AutoCloseable {
+    private static final Logger LOG = LogManager.getLogger(MatcherSetProgress.class);
+
+    private final StructuralMatcher[] matchers;
+    private final List<MatchingProgress<M>> progresses;
+    private final ModelInspector<M> modelInspector;
+    private final @Nullable SharedMatchResults sharedMatchResults;
+    private final List<Frame<M>> walkStack = new ArrayList<>();
+    private int walkDepth;
+    // the members with an anchor are only started on the elements having the anchor, regardless of the parent elements
+    private final boolean[] anchored;
+    private final boolean[] rootsOnly;
+    private final List<Map<String, int[]>> anchorIndex;
+    private final Set<ElementKind> anchoredChildKinds = EnumSet.noneOf(ElementKind.class);
+    private final Set<ElementKind> childKinds = EnumSet.noneOf(ElementKind.class);
+    private final Map<Set<ElementKind>, WalkInstruction[]> instructions = new HashMap<>();
+
+    /**
+     * Creates a matching progress for the provided structural matchers.
+     *
+     * @param matchers the structural matchers
+     * @param matchGraphs the match graphs of the structural matchers, in the same order
+     * @param modelInspector the model inspector to use
+     * @param <M> the type of the model elements
+     * @return a new matching progress of the set of structural matchers
+     */
+    public static <M> MatcherSetProgress<M> of(List<StructuralMatcher> matchers, List<DependencyGraph> matchGraphs,
+            ModelInspector<M> modelInspector) {
+        if (matchers.size() != matchGraphs.size()) {
+            throw new IllegalArgumentException("There must be exactly one match graph for each structural matcher.");
+        }
+
+        List<AbstractStatement> statements = new ArrayList<>();
+        for (DependencyGraph g : matchGraphs) {
+            statements.addAll(MatchingProgress.statementsOf(g));
+        }
+
+        SharedMatchResults shared = SharedMatchResults.of(statements);
+        ModelInspector<M> inspector = new MemoizingModelInspector<>(modelInspector);
+
+        // the transitive uses of the types don't depend on the recipe, so all the matchers can share them
+        TransitiveUsesCache transitiveUses = new TransitiveUsesCache(TransitiveUsesCache.DEFAULT_MAXIMUM_SIZE);
+
+        List<MatchingProgress<M>> progresses = new ArrayList<>(matchers.size());
+        for (int i = 0; i < matchers.size(); ++i) {
+            progresses.add(MatchingProgress.create(matchGraphs.get(i), inspector, matchers.get(i).getConfiguration(),
+                    shared, transitiveUses));
+        }
+
+        return new MatcherSetProgress<>(matchers.toArray(new StructuralMatcher[0]), progresses, inspector, shared);
+    }
+
+    private MatcherSetProgress(StructuralMatcher[] matchers, List<MatchingProgress<M>> progresses,
+            ModelInspector<M> modelInspector, @Nullable SharedMatchResults sharedMatchResults) {
+        this.matchers = matchers;
+        this.progresses = progresses;
+        this.modelInspector = modelInspector;
+        this.sharedMatchResults = sharedMatchResults;
+        this.anchored = new boolean[progresses.size()];
+        this.rootsOnly = new boolean[progresses.size()];
+
+        List<Map<String, List<Integer>>> index = new ArrayList<>();
+        for (Anchor.Kind k : Anchor.Kind.values()) {
+            index.add(new HashMap<>());
+        }
+
+        // only the single-statement progresses can be dispatched by the anchors, because they don't need to see
+        // the parents of the models to match them
+        for (int i = 0; i < progresses.size(); ++i) {
+            if (progresses.get(i) instanceof SimpleMatchingProgress) {
+                SimpleMatchingProgress<M> p = (SimpleMatchingProgress<M>) progresses.get(i);
+                Anchor anchor = p.getAnchor();
+                if (anchor != null) {
+                    anchored[i] = true;
+                    rootsOnly[i] = p.isRootsOnly();
+                    anchoredChildKinds.addAll(p.getChildKinds());
+                    index.get(anchor.getKind().ordinal()).computeIfAbsent(anchor.getName(), __ -> new ArrayList<>(2))
+                            .add(i);
+                }
+            }
+        }
+
+        this.anchorIndex = new ArrayList<>(index.size());
+        for (Map<String, List<Integer>> idx : index) {
+            Map<String, int[]> members = new HashMap<>(idx.size() * 4 / 3 + 1);
+            idx.forEach((name, ms) -> members.put(name, ms.stream().mapToInt(Integer::intValue).toArray()));
+            anchorIndex.add(members);
+        }
+    }
+
+    /**
+     * @return the number of structural matchers that are only tested on the elements having their
+     * {@link Anchor anchors}.
+     */
+    public int getAnchoredMatcherCount() {
+        int ret = 0;
+        for (boolean a : anchored) {
+            if (a) {
+                ret++;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Starts the tree-walk of the provided model. This has the same semantics as {@link MatchingProgress#start(Object)}.
+     * The test result of the returned instruction is the best of the results of the individual matchers, i.e.
+     * {@link TestResult#PASSED} if at least one matcher matches the model at this stage.
+     *
+     * @param model the model of the element
+     * @return the combined walk instruction of all the matchers
+     */
+    public WalkInstruction start(M model) {
+        return LOG.traceExit(walkStart(model));
+    }
+
+    private WalkInstruction walkStart(M model) {
+        Frame<M> parent = walkDepth == 0 ? null : walkStack.get(walkDepth - 1);
+        Frame<M> frame = push(model);
+
+        Element element = modelInspector.toElement(model);
+        ElementKind kind = element.getKind();
+
+        TestResult res = NOT_PASSED;
+        boolean descend = !anchoredChildKinds.isEmpty();
+        boolean allKinds = false;
+        childKinds.clear();
+        childKinds.addAll(anchoredChildKinds);
+
+        if (sharedMatchResults != null) {
+            sharedMatchResults.start(model);
+        }
+        try {
+            int candidates = parent == null ? progresses.size() : parent.size;
+            for (int c = 0; c < candidates; ++c) {
+                int i = parent == null ? c : parent.members[c];
+                if (anchored[i]) {
+                    // dispatched by the anchor index below
+                    continue;
+                }
+
+                if (parent != null) {
+                    WalkInstruction pi = parent.instructions[c];
+                    if (!pi.isDescend() || (pi.restrictsChildKinds() && !pi.isDescendInto(kind))) {
+                        // the matcher wouldn't have seen this model if it walked the tree alone
+                        continue;
+                    }
+                }
+
+                WalkInstruction wi = progresses.get(i).walkStart(model);
+                frame.add(i, wi);
+
+                res = res.or(wi.getTestResult());
+                if (wi.isDescend()) {
+                    descend = true;
+                    if (wi.restrictsChildKinds()) {
+                        childKinds.addAll(wi.getChildKinds());
+                    } else {
+                        allKinds = true;
+                    }
+                }
+            }
+
+            res = startAnchored(model, element, parent == null, frame, res);
+        } finally {
+            if (sharedMatchResults != null) {
+                sharedMatchResults.finish();
+            }
+        }
+
+        if (!descend || allKinds) {
+            return WalkInstruction.of(descend, res);
+        }
+
+        WalkInstruction[] ret = instructions.get(childKinds);
+        if (ret == null) {
+            Set<ElementKind> kinds = EnumSet.copyOf(childKinds);
+            ret = new WalkInstruction[TestResult.values().length];
+            for (TestResult r : TestResult.values()) {
+                ret[r.ordinal()] = WalkInstruction.of(r, kinds);
+            }
+            instructions.put(kinds, ret);
+        }
+
+        return ret[res.ordinal()];
+    }
+
+    private TestResult startAnchored(M model, Element element, boolean root, Frame<M> frame, TestResult res) {
+        if (element instanceof TypeElement) {
+            res = startAnchored(Anchor.Kind.TYPE_NAME, ((TypeElement) element).getQualifiedName(), model, root,
+                    frame, res);
+        } else if (element instanceof ExecutableElement) {
+            res = startAnchored(Anchor.Kind.METHOD_NAME, element.getSimpleName(), model, root, frame, res);
+        } else if (element instanceof VariableElement) {
+            res = startAnchored(Anchor.Kind.VARIABLE_NAME, element.getSimpleName(), model, root, frame, res);
+        }
+
+        if (!anchorIndex.get(Anchor.Kind.ANNOTATION_TYPE.ordinal()).isEmpty()) {
+            for (AnnotationMirror a : element.getAnnotationMirrors()) {
+                res = startAnchored(Anchor.Kind.ANNOTATION_TYPE,
+                        ((TypeElement) a.getAnnotationType().asElement()).getQualifiedName(), model, root, frame, res);
+            }
+        }
+
+        return res;
+    }
+
+    private TestResult startAnchored(Anchor.Kind anchorKind, CharSequence name, M model, boolean root,
+            Frame<M> frame, TestResult res) {
+        Map<String, int[]> index = anchorIndex.get(anchorKind.ordinal());
+        if (index.isEmpty()) {
+            return res;
+        }
+
+        int[] members = index.get(name.toString());
+        if (members == null) {
+            return res;
+        }
+
+        for (int i : members) {
+            if (rootsOnly[i] && !root) {
+                continue;
+            }
+
+            WalkInstruction wi = progresses.get(i).walkStart(model);
+            frame.add(i, wi);
+            res = res.or(wi.getTestResult());
+        }
+
+        return res;
+    }
+
+    private Frame<M> push(M model) {
+        Frame<M> frame;
+        if (walkDepth < walkStack.size()) {
+            frame = walkStack.get(walkDepth);
+        } else {
+            frame = new Frame<>(progresses.size());
+            walkStack.add(frame);
+        }
+        walkDepth++;
+        frame.model = model;
+        frame.size = 0;
+        return frame;
+    }
+
+    /**
+     * Finishes the tree-walk of the provided model. This has the same semantics as
+     * {@link MatchingProgress#finish(Object)}.
+     *
+     * @param model the model of the checked element
+     * @return the results of the matchers that either matched the model or for which the model is
+     * {@link TestResult#DEFERRED}. The matchers not present in the map don't match the model.
+     */
+    public Map<StructuralMatcher, TestResult> finish(M model) {
+        if (walkDepth == 0 || walkStack.get(walkDepth - 1).model != model) {
+            throw new IllegalArgumentException("Unbalanced start/finish call.");
+        }
+
+        Map<StructuralMatcher, TestResult> ret = null;
+
+        Frame<M> frame = walkStack.get(--walkDepth);
+        for (int c = 0; c < frame.size; ++c) {
+            int i = frame.members[c];
+            TestResult r = progresses.get(i).walkFinish(model, frame.instructions[c].getTestResult());
+            if (r != NOT_PASSED) {
+                if (ret == null) {
+                    ret = new LinkedHashMap<>();
+                }
+                ret.put(matchers[i], r);
+            }
+        }
+
+        frame.clear();
+
+        return LOG.traceExit(ret == null ? Collections.emptyMap() : ret);
+    }
+
+    /**
+     * Walks the whole tree of the models provided by the tree adapter. This is the equivalent of
+     * {@link MatchingProgress#walk(TreeAdapter)}. The matches are reported to the
+     * {@link #setMatchListener(MatcherSetListener) match listener}.
+     *
+     * @param tree the tree of the models to walk
+     */
+    public void walk(TreeAdapter<M> tree) {
+        TreeWalk.walk(tree, modelInspector, this::walkStart, (m, i) -> finish(m));
+    }
+
+    /**
+     * Finishes the matching of all the matchers. This has the same semantics as {@link MatchingProgress#finish()}.
+     *
+     * @return the results of the {@link TestResult#DEFERRED} models of the individual matchers. The matchers without
+     * any such models are not present in the map.
+     */
+    public Map<StructuralMatcher, Map<M, TestResult>> finish() {
+        Map<StructuralMatcher, Map<M, TestResult>> ret = new LinkedHashMap<>();
+        for (int i = 0; i < progresses.size(); ++i) {
+            Map<M, TestResult> results = progresses.get(i).finish();
+            if (!results.isEmpty()) {
+                ret.put(matchers[i], results);
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Sets the listener that receives the results of the individual matchers as soon as they are known. See
+     * {@link MatchingProgress#setResolutionListener(ResolutionListener)} for the details. Like there, the final
+     * {@link #finish()} returns an empty map while a listener is set.
+     *
+     * @param listener the listener or null to stop receiving the results
+     */
+    public void setMatchListener(@Nullable MatcherSetListener<M> listener) {
+        for (int i = 0; i < progresses.size(); ++i) {
+            StructuralMatcher matcher = matchers[i];
+            progresses.get(i).setResolutionListener(listener == null ? null : new ResolutionListener<M>() {
+                @Override
+                public void resolved(M model, TestResult result) {
+                    listener.resolved(matcher, model, result);
+                }
+
+                @Override
+                public void matched(M model) {
+                    listener.matched(matcher, model);
+                }
+            });
+        }
+    }
+
+    /**
+     * Sets the cancellation token of all the matchers.
+     *
+     * @param cancellationToken the cancellation token or null if the matching cannot be cancelled
+     * @see MatchingProgress#setCancellationToken(CancellationToken)
+     */
+    public void setCancellationToken(@Nullable CancellationToken cancellationToken) {
+        for (MatchingProgress<M> p : progresses) {
+            p.setCancellationToken(cancellationToken);
+        }
+    }
+
+    /**
+     * @return {@link CompletionStatus#COMPLETE} if all the matchers completed, otherwise the status of the first
+     * matcher that didn't
+     * @see MatchingProgress#getCompletionStatus()
+     */
+    public CompletionStatus getCompletionStatus() {
+        for (MatchingProgress<M> p : progresses) {
+            CompletionStatus status = p.getCompletionStatus();
+            if (status != CompletionStatus.COMPLETE) {
+                return status;
+            }
+        }
+
+        return CompletionStatus.COMPLETE;
+    }
+
+    /**
+     * Lose all state and get ready to start matching models anew.
+     */
+    public void reset() {
+        for (int i = 0; i < walkDepth; ++i) {
+            walkStack.get(i).clear();
+        }
+        walkDepth = 0;
+
+        for (MatchingProgress<M> p : progresses) {
+            p.reset();
+        }
+    }
+
+    /**
+     * Releases all the resources held by the matching progresses of the matchers and loses all state, like
+     * {@link #reset()} does.
+     *
+     * @see MatchingProgress#close()
+     */
+    @Override
+    public void close() {
+        reset();
+    }
+
+    /**
+     * The matchers walking a model together with their walk instructions.
+     */
+    private static final class Frame<M> {
+        @Nullable M model;
+        final int[] members;
+        final WalkInstruction[] instructions;
+        int size;
+
+        Frame(int capacity) {
+            members = new int[capacity];
+            instructions = new WalkInstruction[capacity];
+        }
+
+        void add(int member, WalkInstruction instruction) {
+            members[size] = member;
+            instructions[size++] = instruction;
+        }
+
+        void clear() {
+            Arrays.fill(instructions, 0, size, null);
+            size = 0;
+            model = null;
+        }
+    }
+}
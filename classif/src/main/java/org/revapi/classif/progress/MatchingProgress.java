@@ -25,8 +25,10 @@ import static org.revapi.classif.util.SizedCollections.toListWithSize;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -34,7 +36,12 @@ import org.apache.logging.log4j.message.EntryMessage;
 import org.revapi.classif.ModelInspector;
 import org.revapi.classif.StructuralMatcher;
 import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.context.SharedMatchResults;
 import org.revapi.classif.progress.context.StatementContext;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.CacheStatistics;
+import org.revapi.classif.util.Nullable;
 import org.revapi.classif.util.execution.DependencyGraph;
 import org.revapi.classif.util.execution.Node;
 import org.revapi.classif.util.execution.StatementWrapper;
@@ -45,35 +52,104 @@ import org.revapi.classif.util.execution.StatementWrapper;
  * The {@link #start(Object)} and {@link #finish(Object)} methods are used to instruct the caller on how to execute
  * the depth-first walk of the assumed tree structure of the model elements.
  *
+ * <p>The matching progress can hold resources outside of the heap, like the temporary files of the candidates that
+ * don't fit into memory (see {@link StructuralMatcher.Configuration#withCandidateSpilling(int, java.nio.file.Path)}).
+ * These are released by {@link #reset()} or {@link #close()}.
+ *
  * @param <M> the type of the representation of the java model elements used by the caller
  */
-public abstract class MatchingProgress<M> {
+public abstract class MatchingProgress<M> implements AutoCloseable {
     private static final Logger LOG = LogManager.getLogger(MatchingProgress.class);
 
+    private @Nullable ResolutionListener<M> resolutionListener;
+    final ModelInspector<M> modelInspector;
+    final WorkBudget workBudget;
+    private final @Nullable SharedMatchResults sharedMatchResults;
+    final TransitiveUsesCache transitiveUses;
+
     public static <M> MatchingProgress<M> of(DependencyGraph matchGraph, ModelInspector<M> modelInspector,
             StructuralMatcher.Configuration configuration) {
         EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "configuration", configuration, "matchGraph",
                 matchGraph));
 
+        // a single statement has nothing to share the results with
+        SharedMatchResults shared = matchGraph.getAllNodes().size() == 1
+                ? null
+                : SharedMatchResults.of(statementsOf(matchGraph));
+
+        return LOG.traceExit(methodTrace, create(matchGraph, modelInspector, configuration, shared,
+                new TransitiveUsesCache(TransitiveUsesCache.DEFAULT_MAXIMUM_SIZE)));
+    }
+
+    static List<AbstractStatement> statementsOf(DependencyGraph matchGraph) {
+        return matchGraph.getAllNodes().stream()
+                .map(n -> n.getObject().getStatement())
+                .collect(toListWithSize(matchGraph.getAllNodes().size()));
+    }
+
+    /**
+     * Creates the matching progress for the match graph.
+     *
+     * @param shared the results shared with the other statements (possibly of other recipes) or null if nothing is
+     *               shared
+     * @param transitiveUses the cache of the transitive uses of the types, possibly shared with other recipes
+     */
+    static <M> MatchingProgress<M> create(DependencyGraph matchGraph, ModelInspector<M> modelInspector,
+            StructuralMatcher.Configuration configuration, @Nullable SharedMatchResults shared,
+            TransitiveUsesCache transitiveUses) {
+        return create(matchGraph, modelInspector, configuration, shared, transitiveUses, true);
+    }
+
+    /**
+     * Creates the matching progress for the match graph.
+     *
+     * @param shared the results shared with the other statements (possibly of other recipes) or null if nothing is
+     *               shared
+     * @param transitiveUses the cache of the transitive uses of the types, possibly shared with other recipes
+     * @param variableFreeShortcut whether to evaluate the recipes without variables during the walk. If false, such
+     *                             recipes are evaluated the same way as the recipes with variables, which is the
+     *                             reference the shortcut needs to give the same results as
+     */
+    static <M> MatchingProgress<M> create(DependencyGraph matchGraph, ModelInspector<M> modelInspector,
+            StructuralMatcher.Configuration configuration, @Nullable SharedMatchResults shared,
+            TransitiveUsesCache transitiveUses, boolean variableFreeShortcut) {
+        WorkBudget budget = new WorkBudget(configuration);
+
         if (matchGraph.getAllNodes().size() == 1) {
-            return LOG.traceExit(methodTrace,
-                    new SimpleMatchingProgress<>(configuration, convert(matchGraph.getAllNodes().iterator().next(),
-                            modelInspector, new HashMap<>())
-                            .getObject()));
+            return new SimpleMatchingProgress<>(configuration, modelInspector, budget, shared, transitiveUses,
+                    convert(matchGraph.getAllNodes().iterator().next(), modelInspector, configuration, budget,
+                            shared, transitiveUses, new HashMap<>()).getObject());
         } else {
+
             IdentityHashMap<Node<StatementWrapper>, Node<StatementMatch<M>>> cache =
                     newIdentityHashMapWithExactSize(matchGraph.getAllNodes().size());
 
-            return LOG.traceExit(methodTrace, new MultiMatchingProgress<>(
-                    configuration,
-                    matchGraph.getAllNodes().stream()
-                            .map(n -> convert(n, modelInspector, cache))
-                            .collect(toListWithSize(matchGraph.getAllNodes().size()))));
+            List<Node<StatementMatch<M>>> statements = matchGraph.getAllNodes().stream()
+                    .map(n -> convert(n, modelInspector, configuration, budget, shared, transitiveUses, cache))
+                    .collect(toListWithSize(matchGraph.getAllNodes().size()));
+
+            if (variableFreeShortcut && statements.stream().allMatch(n -> n.in().isEmpty() && n.out().isEmpty())) {
+                // without variables, the statements only depend on each other through the hierarchy
+                return new VariableFreeMatchingProgress<>(configuration, modelInspector, budget, shared,
+                        transitiveUses, statements);
+            }
+
+            return new MultiMatchingProgress<>(configuration, modelInspector, budget, shared, transitiveUses,
+                    statements);
         }
     }
 
-    MatchingProgress() {
+    MatchingProgress(ModelInspector<M> modelInspector, WorkBudget workBudget) {
+        this(modelInspector, workBudget, null, new TransitiveUsesCache(TransitiveUsesCache.DEFAULT_MAXIMUM_SIZE));
+    }
+
+    MatchingProgress(ModelInspector<M> modelInspector, WorkBudget workBudget,
+            @Nullable SharedMatchResults sharedMatchResults, TransitiveUsesCache transitiveUses) {
         // package private constructor to prevent subclassing by 3rd parties
+        this.modelInspector = modelInspector;
+        this.workBudget = workBudget;
+        this.sharedMatchResults = sharedMatchResults;
+        this.transitiveUses = transitiveUses;
     }
 
     /**
@@ -101,30 +177,199 @@ public abstract class MatchingProgress<M> {
      *
      * <p>Note that the result can be different from the result obtained from the {@link #start(Object)} method because
      * it can be influenced by the executed tests on the children. It can still be {@link TestResult#DEFERRED} though
-     * if the structural match uses a variable that has not yet been successfully evaluated during the tree walk.
+     * if the structural match uses a variable that has not yet been successfully evaluated during the tree walk or if
+     * the match depends on the siblings of the model (or of its parents) that have not been visited yet.
      *
      * @param model the model of the checked element
      * @return the result of the test after all children have been visited
      */
     public abstract TestResult finish(M model);
 
+    /**
+     * Walks the whole tree of the models provided by the tree adapter. This is equivalent to calling
+     * {@link #start(Object)} and {@link #finish(Object)} on all the models in the depth-first-search manner, honoring
+     * the returned {@link WalkInstruction walk instructions}, but is cheaper and can walk trees of any depth.
+     *
+     * <p>The matching models are reported to the {@link ResolutionListener#matched(Object) resolution listener} as
+     * soon as they are known to match. The results of the models that remain {@link TestResult#DEFERRED} after the
+     * walk are obtained by calling {@link #finish()} afterwards, as usual.
+     *
+     * @param tree the tree of the models to walk
+     */
+    public void walk(TreeAdapter<M> tree) {
+        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "tree", tree));
+
+        TreeWalk.walk(tree, modelInspector, this::walkStart, (m, i) -> walkFinish(m, i.getTestResult()));
+
+        LOG.traceExit(methodTrace);
+    }
+
+    /**
+     * The implementation of {@link #start(Object)} that doesn't need to check the validity of the calls.
+     */
+    abstract WalkInstruction walkStart(M model);
+
+    /**
+     * The implementation of {@link #finish(Object)} that doesn't need to check the validity of the calls.
+     *
+     * @param model the finished model
+     * @param startResult the result of the {@link #walkStart(Object)} of the model
+     */
+    abstract TestResult walkFinish(M model, TestResult startResult);
+
     /**
      * Called after the whole tree has been walked. This method returns the results of any {@link TestResult#DEFERRED}
      * elements after everything has been evaluated.
      *
+     * <p>If a {@link #setResolutionListener(ResolutionListener) resolution listener} is set, the results are reported
+     * to it instead and the returned map is empty.
+     *
      * <p>After you also call {@link #reset()}, the matching progress is ready for receiving another round of models.
      *
-     * @return the test results for the elements that have previously been {@link TestResult#DEFERRED}.
+     * @return the test results for the elements that have previously been {@link TestResult#DEFERRED} or an empty map
+     * if there is a resolution listener
      */
     public abstract Map<M, TestResult> finish();
 
+    /**
+     * Same as {@link #finish()} but the deferred elements are resolved in parallel using the provided executor.
+     *
+     * <p>Once the tree walk is complete, the resolution of the individual deferred elements is independent, so this can
+     * be used to spread the work across multiple threads. Note that the {@link ModelInspector} used by this matching
+     * progress must be safe to use from multiple threads if the executor doesn't execute the tasks in the calling
+     * thread.
+     *
+     * <p>The returned map is the same as if the {@link #finish()} method was called. The order of the elements in it
+     * is the order in which they were finished during the tree walk, regardless of the order in which the executor
+     * ran the tasks.
+     *
+     * @param executor the executor to use for the resolution of the individual deferred elements
+     * @return the test results for the elements that have previously been {@link TestResult#DEFERRED}.
+     */
+    public Map<M, TestResult> finish(Executor executor) {
+        return finish();
+    }
+
+    /**
+     * Sets the listener that receives the results as soon as they are known.
+     *
+     * <p>With a listener set, the matching progress tries to resolve the deferred models already during the tree walk,
+     * as soon as the models seen so far are enough to prove the model passes. The models that could not be resolved
+     * early are reported to the listener during the final {@link #finish()}. The results are not collected, so
+     * the final {@link #finish()} returns an empty map.
+     *
+     * <p>Note that a model can only be resolved early if it passes. Whether a model fails can only be known after all
+     * the models have been seen.
+     *
+     * @param listener the listener or null to stop the early resolution and to collect the results again
+     * @see ResolutionListener#onMatch(java.util.function.Consumer)
+     */
+    public void setResolutionListener(@Nullable ResolutionListener<M> listener) {
+        this.resolutionListener = listener;
+    }
+
+    @Nullable ResolutionListener<M> getResolutionListener() {
+        return resolutionListener;
+    }
+
+    /**
+     * Reports a matching model to the resolution listener, if any.
+     */
+    void reportMatch(M model) {
+        if (resolutionListener != null) {
+            resolutionListener.matched(model);
+        }
+    }
+
+    /**
+     * Reports the final result of a deferred model to the resolution listener, if any, or collects it to the provided
+     * results otherwise.
+     */
+    void reportResolved(M model, TestResult result, Map<M, TestResult> results) {
+        if (resolutionListener != null) {
+            resolutionListener.resolved(model, result);
+        } else {
+            results.put(model, result);
+        }
+    }
+
+    /**
+     * Makes the statements share the results of their structurally equal matches on the provided model until
+     * {@link #stopSharingResults()} is called.
+     */
+    void startSharingResults(M model) {
+        if (sharedMatchResults != null) {
+            sharedMatchResults.start(model);
+        }
+    }
+
+    void stopSharingResults() {
+        if (sharedMatchResults != null) {
+            sharedMatchResults.finish();
+        }
+    }
+
+    /**
+     * Provides the statistics of the cache of the intermediate results of the tests used to resolve the
+     * {@link TestResult#DEFERRED} elements during the last call to {@link #finish()}.
+     *
+     * @return the cache statistics, empty if no deferred elements needed to be resolved
+     */
+    public CacheStatistics getFinishCacheStatistics() {
+        return CacheStatistics.empty();
+    }
+
+    /**
+     * Provides the statistics of the cache of the transitive uses of the types, which is used by the {@code uses}
+     * checks that are not limited to the direct uses. The cache lives until the progress is {@link #reset()}.
+     *
+     * @return the cache statistics
+     */
+    public CacheStatistics getTransitiveUsesCacheStatistics() {
+        return transitiveUses.getStatistics();
+    }
+
+    /**
+     * Sets the token that can be used to cancel the matching from another thread. Once cancelled, the matching
+     * progress stops evaluating the models, reports the results of the models not evaluated yet as
+     * {@link TestResult#DEFERRED} and {@link #getCompletionStatus()} returns {@link CompletionStatus#CANCELLED}.
+     *
+     * @param cancellationToken the cancellation token or null if the matching cannot be cancelled
+     */
+    public void setCancellationToken(@Nullable CancellationToken cancellationToken) {
+        workBudget.setCancellationToken(cancellationToken);
+    }
+
+    /**
+     * Tells whether the current round of matching evaluated all the models or whether it had to give up on some of
+     * them because the {@link StructuralMatcher.Configuration#withWorkBudget(long, int, java.time.Duration) work
+     * budget} was exceeded or the matching was {@link #setCancellationToken(CancellationToken) cancelled}. In the
+     * latter cases, the results of the models that could not be evaluated are {@link TestResult#DEFERRED} even after
+     * the final {@link #finish()}.
+     *
+     * @return the completion status of the current round of matching
+     */
+    public CompletionStatus getCompletionStatus() {
+        return workBudget.getStatus();
+    }
+
     /**
      * Lose all state and get ready to start matching models anew.
      */
     public abstract void reset();
 
+    /**
+     * Releases all the resources held by this matching progress and loses all state, like {@link #reset()} does. The
+     * matching progress can still be used afterwards.
+     */
+    @Override
+    public void close() {
+        reset();
+    }
+
     private static <M> Node<StatementMatch<M>> convert(Node<StatementWrapper> n, ModelInspector<M> inspector,
-            Map<Node<StatementWrapper>, Node<StatementMatch<M>>> cache) {
+            StructuralMatcher.Configuration configuration, WorkBudget budget, @Nullable SharedMatchResults shared,
+            TransitiveUsesCache transitiveUses, Map<Node<StatementWrapper>, Node<StatementMatch<M>>> cache) {
 
         Node<StatementMatch<M>> ret = cache.get(n);
 
@@ -143,15 +388,15 @@ public abstract class MatchingProgress<M> {
         Map<Node<StatementWrapper>, Node<StatementMatch<M>>> children = newIdentityHashMapWithExactSize(n.getChildren().size());
 
         for (Node<StatementWrapper> in : n.in()) {
-            ins.put(in, convert(in, inspector, cache));
+            ins.put(in, convert(in, inspector, configuration, budget, shared, transitiveUses, cache));
         }
 
         for (Node<StatementWrapper> out : n.out()) {
-            outs.put(out, convert(out, inspector, cache));
+            outs.put(out, convert(out, inspector, configuration, budget, shared, transitiveUses, cache));
         }
 
         for (Node<StatementWrapper> c : n.getChildren()) {
-            children.put(c, convert(c, inspector, cache));
+            children.put(c, convert(c, inspector, configuration, budget, shared, transitiveUses, cache));
         }
 
         ret.in().addAll(ins.values());
@@ -177,7 +422,17 @@ public abstract class MatchingProgress<M> {
         }
 
         ret.getObject().setContext(new StatementContext<>(inspector, wrapper.isReturn(),
-                wrapper.getStatement().getDefinedVariable(), referencedStatements));
+                wrapper.getStatement().getDefinedVariable(), referencedStatements, budget, shared, transitiveUses));
+
+        if (n.getParent() != null) {
+            ret.getObject().indexCandidatesByParent();
+        }
+
+        if (configuration.getMaxCandidatesInMemory() != Integer.MAX_VALUE) {
+            ret.getObject().limitCandidatesInMemory(configuration.getMaxCandidatesInMemory(),
+                    configuration.getSpillDirectory());
+        }
+
         return ret;
     }
 }
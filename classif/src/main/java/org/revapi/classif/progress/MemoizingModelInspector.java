@@ -0,0 +1,117 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Remembers the element and the type mirror of the last converted model so that the several matching progresses
+ * walking the same model don't need to convert it over and over again.
+ */
+final class MemoizingModelInspector<M> implements ModelInspector<M> {
+    private final ModelInspector<M> delegate;
+    private volatile @Nullable Converted<M, Element> lastElement;
+    private volatile @Nullable Converted<M, TypeMirror> lastMirror;
+
+    MemoizingModelInspector(ModelInspector<M> delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public TypeElement getJavaLangObjectElement() {
+        return delegate.getJavaLangObjectElement();
+    }
+
+    @Override
+    public Element toElement(M model) {
+        Converted<M, Element> last = lastElement;
+        if (last == null || last.model != model) {
+            last = new Converted<>(model, delegate.toElement(model));
+            lastElement = last;
+        }
+        return last.value;
+    }
+
+    @Override
+    public TypeMirror toMirror(M model) {
+        Converted<M, TypeMirror> last = lastMirror;
+        if (last == null || last.model != model) {
+            last = new Converted<>(model, delegate.toMirror(model));
+            lastMirror = last;
+        }
+        return last.value;
+    }
+
+    @Override
+    public @Nullable Set<M> getUses(M model) {
+        return delegate.getUses(model);
+    }
+
+    @Override
+    public @Nullable Set<M> getUseSites(M model) {
+        return delegate.getUseSites(model);
+    }
+
+    @Override
+    public M fromElement(Element element) {
+        return delegate.fromElement(element);
+    }
+
+    @Override
+    public List<? extends TypeMirror> directSupertypes(TypeMirror type) {
+        return delegate.directSupertypes(type);
+    }
+
+    @Override
+    public boolean overrides(ExecutableElement overrider, ExecutableElement overridden, TypeElement type) {
+        return delegate.overrides(overrider, overridden, type);
+    }
+
+    @Override
+    public @Nullable String toId(M model) {
+        return delegate.toId(model);
+    }
+
+    @Override
+    public M fromId(String id) {
+        return delegate.fromId(id);
+    }
+
+    @Override
+    public String toString() {
+        return "MemoizingModelInspector{" + delegate + "}";
+    }
+
+    private static final class Converted<M, T> {
+        final M model;
+        final T value;
+
+        Converted(M model, T value) {
+            this.model = model;
+            this.value = value;
+        }
+    }
+}
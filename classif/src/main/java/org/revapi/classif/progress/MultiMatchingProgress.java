@@ -18,14 +18,13 @@ package org.revapi.classif.progress;
 
 import static java.util.Collections.emptyMap;
 import static java.util.Objects.requireNonNull;
-import static java.util.function.Function.identity;
-import static java.util.stream.Collectors.toCollection;
-import static java.util.stream.Collectors.toList;
 
 import static org.revapi.classif.TestResult.DEFERRED;
 import static org.revapi.classif.TestResult.NOT_PASSED;
 import static org.revapi.classif.TestResult.PASSED;
 import static org.revapi.classif.util.LogUtil.traceParams;
+import static org.revapi.classif.util.SizedCollections.newLinkedHashMapWithExactSize;
+import static org.revapi.classif.util.SizedCollections.toListWithSize;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
@@ -33,22 +32,33 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.IdentityHashMap;
-import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import javax.lang.model.element.Element;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.message.EntryMessage;
+import org.revapi.classif.ModelInspector;
 import org.revapi.classif.StructuralMatcher;
 import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.WalkStateTable.WalkState;
+import org.revapi.classif.progress.WalkStateTable.WalkStep;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.progress.context.StatementContext;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.util.CacheStatistics;
 import org.revapi.classif.util.Nullable;
 import org.revapi.classif.util.execution.Node;
 
@@ -121,18 +131,31 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
     private static final Logger LOG = LogManager.getLogger(MultiMatchingProgress.class);
 
     private final List<Node<StatementMatch<M>>> roots;
-    private final Deque<WalkContext<M>> statementStack = new ArrayDeque<>();
+    // the contexts of the models currently being walked, reused across the walks so that we don't allocate per model
+    private final List<WalkContext<M>> walkStack = new ArrayList<>();
+    private int walkDepth;
+    private final WalkState<M> initialWalkState;
+    private final WalkState<M> abandonedWalkState;
+    private final @Nullable QualifiedNameFilter subtreeFilter;
     private final StructuralMatcher.Configuration config;
-    private final Set<WalkContext<M>> undecided;
+    private final List<M> undecided;
     private final List<Node<StatementMatch<M>>> returningStatements;
     private final Map<String, Node<StatementMatch<M>>> definingStatements;
-
-    MultiMatchingProgress(StructuralMatcher.Configuration configuration,
-            List<Node<StatementMatch<M>>> statements) {
+    private final Map<String, Set<String>> variableNeighbors;
+    private final Map<Node<StatementMatch<M>>, List<String>> relevantVariables;
+    private CacheStatistics finishCacheStatistics = CacheStatistics.empty();
+    private int undecidedAfterEarlyResolution;
+    private long candidatesAtEarlyResolution;
+
+    MultiMatchingProgress(StructuralMatcher.Configuration configuration, ModelInspector<M> modelInspector,
+            WorkBudget workBudget, @Nullable SharedMatchResults sharedMatchResults,
+            TransitiveUsesCache transitiveUses, List<Node<StatementMatch<M>>> statements) {
+        super(modelInspector, workBudget, sharedMatchResults, transitiveUses);
         config = configuration;
         roots = new ArrayList<>();
         returningStatements = new ArrayList<>();
         definingStatements = new HashMap<>();
+        variableNeighbors = new HashMap<>();
 
         statements.forEach(s -> {
             if (s.getParent() == null) {
@@ -147,148 +170,445 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
             if (var != null) {
                 definingStatements.put(var, s);
             }
+
+            // all the variables used in a single statement constrain each other
+            Set<String> vars = new HashSet<>(s.getObject().getContext().getMatchContext().getVariables());
+            if (var != null) {
+                vars.add(var);
+            }
+
+            for (String v : vars) {
+                for (String w : vars) {
+                    if (!v.equals(w)) {
+                        variableNeighbors.computeIfAbsent(v, __ -> new HashSet<>()).add(w);
+                    }
+                }
+            }
         });
-        undecided = Collections.newSetFromMap(new IdentityHashMap<>());
+        undecided = new ArrayList<>();
+
+        relevantVariables = new IdentityHashMap<>(statements.size());
+        statements.forEach(s -> relevantVariables.put(s, collectRelevantVariables(s)));
+
+        WalkStateTable<M> walkStates = new WalkStateTable<>(statements, roots, configuration.isStrictHierarchy());
+        initialWalkState = walkStates.initial;
+        abandonedWalkState = walkStates.abandoned;
+        subtreeFilter = QualifiedNameFilter.of(statements);
+    }
+
+    /**
+     * The result of testing a statement with some binding can only be influenced by the variables that the statement
+     * can reach using its children, dependencies and dependents (and transitively their children, etc).
+     */
+    private static <M> List<String> collectRelevantVariables(Node<StatementMatch<M>> statement) {
+        Set<String> vars = new HashSet<>();
+        Set<Node<StatementMatch<M>>> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<Node<StatementMatch<M>>> toVisit = new ArrayDeque<>();
+        toVisit.push(statement);
+
+        while (!toVisit.isEmpty()) {
+            Node<StatementMatch<M>> n = toVisit.pop();
+            if (!visited.add(n)) {
+                continue;
+            }
+
+            StatementContext<M> ctx = n.getObject().getContext();
+            if (ctx.getDefinedVariable() != null) {
+                vars.add(ctx.getDefinedVariable());
+            }
+            vars.addAll(ctx.getMatchContext().getVariables());
+
+            n.getChildren().forEach(toVisit::push);
+            n.in().forEach(toVisit::push);
+            n.out().forEach(toVisit::push);
+        }
+
+        List<String> ret = new ArrayList<>(vars);
+        Collections.sort(ret);
+        return ret;
     }
 
     @Override
     public WalkInstruction start(M model) {
         EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "model", model));
+        return LOG.traceExit(methodTrace, walkStart(model));
+    }
 
-        WalkContext<M> parentCtx = statementStack.isEmpty() ? null : requireNonNull(statementStack.peek());
-        Collection<Node<StatementMatch<M>>> currentStatements = parentCtx == null ? roots : parentCtx.nextStatements;
-        Collection<Node<StatementMatch<M>>> nextStatements = new ArrayList<>();
+    @Override
+    WalkInstruction walkStart(M model) {
+        WalkContext<M> parentCtx = walkDepth == 0 ? null : walkStack.get(walkDepth - 1);
+        WalkState<M> state = parentCtx == null ? initialWalkState : requireNonNull(parentCtx.state.next);
+
+        Element element = modelInspector.toElement(model);
+        if (subtreeFilter != null && !subtreeFilter.mayContainMatches(element)) {
+            LOG.trace("No statement can match anything in {}. Skipping it.", model);
+            push(parentCtx, model, NOT_PASSED, abandonedWalkState);
+            return WalkInstruction.of(false, NOT_PASSED);
+        }
 
-        boolean mustHaveChildren = true;
         TestResult res = NOT_PASSED;
-        for (Node<StatementMatch<M>> sm : currentStatements) {
-            TestResult sr = sm.getObject().independentTest(model);
+        startSharingResults(model);
+        try {
+            workBudget.check();
 
-            if (sm.getObject().getContext().isReturn()) {
-                res = res.or(sr);
-            }
+            for (WalkStep<M> step : state.stepsFor(element.getKind())) {
+                Node<StatementMatch<M>> sm = step.statement;
+                TestResult sr = step.applicable ? sm.getObject().independentTest(model) : NOT_PASSED;
 
-            if (!(sm.out().isEmpty() && sm.in().isEmpty())) {
-                // even though we're basically re-setting the result here to DEFERRED, we need to let all the tests
-                // go through so that we're collecting the match candidates at the individual statements
-                res = DEFERRED;
-            }
+                if (sm.getObject().getContext().isReturn()) {
+                    res = res.or(sr);
+                }
 
-            nextStatements.addAll(sm.getChildren());
-            mustHaveChildren = mustHaveChildren && !sm.getChildren().isEmpty();
+                if (!(sm.out().isEmpty() && sm.in().isEmpty())) {
+                    // even though we're basically re-setting the result here to DEFERRED, we need to let all the tests
+                    // go through so that we're collecting the match candidates at the individual statements
+                    res = DEFERRED;
+                }
+            }
+        } catch (WorkBudgetExceededException e) {
+            // we can't tell anything about this model and there's no point in looking at its children
+            LOG.debug("Giving up on model {}: {}", model, e.getMessage());
+            workBudget.exceeded(e);
+            push(parentCtx, model, DEFERRED, abandonedWalkState);
+            return WalkInstruction.of(false, DEFERRED);
+        } finally {
+            stopSharingResults();
         }
 
-        if (!config.isStrictHierarchy()) {
-            nextStatements.addAll(roots);
-        }
+        push(parentCtx, model, res, state);
 
-        boolean descend = !config.isStrictHierarchy() || !nextStatements.isEmpty();
+        return state.instruction(res);
+    }
+
+    private void push(@Nullable WalkContext<M> parent, M model, TestResult result, WalkState<M> state) {
+        WalkContext<M> ctx;
+        if (walkDepth == walkStack.size()) {
+            ctx = new WalkContext<>();
+            walkStack.add(ctx);
+        } else {
+            ctx = walkStack.get(walkDepth);
+        }
 
-        statementStack.push(new WalkContext<>(parentCtx, model, res, mustHaveChildren, nextStatements));
+        walkDepth++;
 
-        return LOG.traceExit(methodTrace, WalkInstruction.of(descend, res));
+        ctx.parent = parent;
+        ctx.model = model;
+        ctx.state = state;
+        ctx.finishResult = result;
+        ctx.childrenEncountered = false;
     }
 
     @Override
     public TestResult finish(M model) {
         EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "model", model));
 
-        if (statementStack.isEmpty()) {
+        if (walkDepth == 0) {
             throw LOG.traceExit(methodTrace, new IllegalStateException("Unbalanced start/finish calls."));
         }
 
-        WalkContext<M> ctx = statementStack.pop();
+        WalkContext<M> ctx = walkStack.get(walkDepth - 1);
 
         if (ctx.model != model) {
             throw LOG.traceExit(methodTrace, new IllegalStateException("Unbalanced start/finish calls."));
         }
 
-        if (ctx.mustHaveChildren && !ctx.childrenEncountered) {
-            ctx.finishResult = NOT_PASSED;
+        return LOG.traceExit(methodTrace, walkFinish(model, ctx.finishResult));
+    }
+
+    @Override
+    TestResult walkFinish(M model, TestResult startResult) {
+        WalkContext<M> ctx = walkStack.get(--walkDepth);
+
+        TestResult result = ctx.finishResult;
+        WalkContext<M> parent = ctx.parent;
+
+        // the context is going to be reused, so let's not keep the references around
+        ctx.model = null;
+        ctx.parent = null;
+
+        if (ctx.state.mustHaveChildren && !ctx.childrenEncountered) {
+            result = NOT_PASSED;
         }
 
-        if (ctx.finishResult == NOT_PASSED) {
+        if (result == NOT_PASSED) {
             LOG.trace("start of model {} didn't pass, so bailing out quickly.", model);
-            return LOG.traceExit(methodTrace, NOT_PASSED);
+            return NOT_PASSED;
+        }
+
+        if (parent != null) {
+            parent.finishResult = parent.finishResult.and(result);
+            parent.childrenEncountered = true;
         }
 
-        if (ctx.parent != null) {
-            ctx.parent.finishResult = ctx.parent.finishResult.and(ctx.finishResult);
-            ctx.parent.childrenEncountered = true;
+        if (result == DEFERRED) {
+            undecided.add(model);
         }
 
-        if (ctx.finishResult == DEFERRED) {
-            undecided.add(ctx);
+        if (result == PASSED) {
+            reportMatch(model);
         }
 
-        return ctx.finishResult;
+        if (walkDepth == 0 && getResolutionListener() != null) {
+            resolveEarly();
+        }
+
+        return result;
     }
 
     @Override
     public Map<M, TestResult> finish() {
-        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this));
+        return resolveUndecided(null);
+    }
+
+    @Override
+    public Map<M, TestResult> finish(Executor executor) {
+        return resolveUndecided(requireNonNull(executor));
+    }
+
+    /**
+     * Resolves the undecided models either sequentially in the calling thread if the executor is null or in parallel
+     * using the executor otherwise.
+     */
+    private Map<M, TestResult> resolveUndecided(@Nullable Executor executor) {
+        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "executor", executor));
 
-        // 1. Find all the statements defining variables
-        // 2. Build a context for each permutation of candidate models for those statements
-        // 3. for each undecided model, for each returning statement, for each context, compute the union of the results
-        // for the statement with the model and the context
+        // 1. Find all the statements defining variables, their candidates form the domains of the variables
+        // 2. for each undecided model and each returning statement, look for a binding of the variables to their
+        // candidates for which the statement passes with the model. Partial bindings are tested too so that we can
+        // prune the candidates that can never be part of a passing binding. Only the variables the returning
+        // statement can reach need to be bound, the rest can't influence its result.
 
         if (undecided.isEmpty()) {
+            finishCacheStatistics = CacheStatistics.empty();
             return LOG.traceExit(methodTrace, emptyMap());
         }
 
-        List<String> vars = new ArrayList<>(definingStatements.keySet());
-        List<Collection<M>> candidates = definingStatements.values().stream().map(n -> n.getObject().getCandidates())
-                .map(c -> c.isEmpty() ? Collections.<M>singleton(null) : c)
-                .collect(toList());
+        // If the walk gave up on some models, the statements are missing them as candidates. A model that fails with
+        // the candidates we have might have passed with the missing ones, so we can't tell it fails.
+        boolean candidatesIncomplete = workBudget.getStatus() != CompletionStatus.COMPLETE;
 
-        Map<M, TestResult> ret = undecided.stream().map(wc -> wc.model).collect(Collectors.toMap(identity(), model -> {
-            for (Node<StatementMatch<M>> st : returningStatements) {
-                Iterator<List<M>> combinations = combinations(candidates);
-                while (combinations.hasNext()) {
-                    List<M> combination = combinations.next();
-                    Map<String, M> binding = new HashMap<>(vars.size());
-                    for (int i = 0; i < vars.size(); ++i) {
-                        binding.put(vars.get(i), combination.get(i));
-                    }
+        workBudget.start();
+        workBudget.resetCombinations();
 
-                    StatementMatch<M> match = st.getObject();
-                    TestResult combinationResult = testBinding(st, model, binding, new IdentityHashMap<>());
-                    if (combinationResult == PASSED) {
-                        return PASSED;
-                    }
+        // the results of the statements are reused across the different bindings (and models) tested during this call
+        BindingResultCache<M> resultCache = new BindingResultCache<>(relevantVariables);
+        Function<M, TestResult> resolver = createResolver(resultCache, false);
+        Function<M, TestResult> resolve = candidatesIncomplete
+                ? model -> {
+                    TestResult result = resolver.apply(model);
+                    return result == NOT_PASSED ? DEFERRED : result;
                 }
+                : resolver;
+
+        // with a listener, the results are streamed to it and not collected
+        Map<M, TestResult> ret = getResolutionListener() == null
+                ? newLinkedHashMapWithExactSize(undecided.size())
+                : emptyMap();
+        if (executor == null) {
+            for (M model : undecided) {
+                resolved(model, resolveWithinBudget(resolve, model), ret);
             }
+        } else {
+            List<CompletableFuture<TestResult>> results = undecided.stream()
+                    .map(model -> CompletableFuture.supplyAsync(() -> resolveWithinBudget(resolve, model), executor))
+                    .collect(toListWithSize(undecided.size()));
 
-            return NOT_PASSED;
-        }));
+            for (int i = 0; i < undecided.size(); ++i) {
+                resolved(undecided.get(i), join(results.get(i)), ret);
+            }
+        }
+
+        finishCacheStatistics = resultCache.getStatistics();
+        LOG.debug("Binding result cache statistics: {}", finishCacheStatistics);
 
         return LOG.traceExit(methodTrace, ret);
     }
 
+    /**
+     * Resolves the model, considering it {@link TestResult#DEFERRED} if the work budget is exceeded while doing so.
+     */
+    private TestResult resolveWithinBudget(Function<M, TestResult> resolve, M model) {
+        try {
+            return resolve.apply(model);
+        } catch (WorkBudgetExceededException e) {
+            LOG.debug("Giving up on the resolution of model {}: {}", model, e.getMessage());
+            workBudget.exceeded(e);
+            return DEFERRED;
+        }
+    }
+
+    /**
+     * Creates a function that looks for a binding of the variables with which some returning statement passes with
+     * the model.
+     *
+     * <p>If {@code open} is true, the candidates of the statements are considered incomplete, because the tree walk
+     * is still in progress. In that case the function returns {@link TestResult#PASSED} only if the model is going to
+     * pass no matter what models are yet to come and returns {@link TestResult#DEFERRED} otherwise.
+     */
+    private Function<M, TestResult> createResolver(BindingResultCache<M> resultCache, boolean open) {
+        // the spilled candidates are re-created once here and not on every pass over them during the resolution
+        Map<Node<StatementMatch<M>>, Collection<M>> candidates = new IdentityHashMap<>(relevantVariables.size());
+        relevantVariables.keySet().forEach(st -> candidates.put(st, st.getObject().getCandidatesSnapshot()));
+
+        Map<Node<StatementMatch<M>>, BindingSolver<M>> solvers = new IdentityHashMap<>(returningStatements.size());
+        statements:
+        for (Node<StatementMatch<M>> st : returningStatements) {
+            Map<String, Collection<M>> domains = new LinkedHashMap<>();
+            for (String var : relevantVariables.get(st)) {
+                Collection<M> varCandidates = candidates.get(definingStatements.get(var));
+                if (varCandidates.isEmpty() && open) {
+                    // we can't tell anything about a variable until it has some candidates
+                    continue statements;
+                }
+                domains.put(var, varCandidates.isEmpty() ? Collections.singleton(null) : varCandidates);
+            }
+
+            solvers.put(st, new BindingSolver<>(domains, variableNeighbors));
+        }
+
+        TestResult unresolved = open ? DEFERRED : NOT_PASSED;
+
+        return model -> {
+            for (Map.Entry<Node<StatementMatch<M>>, BindingSolver<M>> e : solvers.entrySet()) {
+                Node<StatementMatch<M>> st = e.getKey();
+                boolean passed = e.getValue().solve((binding, complete) -> {
+                    workBudget.countCombination();
+                    return testBinding(st, model, binding, new Evaluation<>(resultCache, candidates, open));
+                });
+
+                if (passed) {
+                    return PASSED;
+                }
+            }
+
+            return unresolved;
+        };
+    }
+
+    /**
+     * Tries to resolve the undecided models using the candidates found so far. Because this can be costly, this is
+     * only attempted once there are new candidates and the number of undecided models at least doubled since the last
+     * attempt.
+     */
+    private void resolveEarly() {
+        if (undecided.size() < Math.max(1, 2 * undecidedAfterEarlyResolution)) {
+            return;
+        }
+
+        long candidates = relevantVariables.keySet().stream().mapToLong(n -> n.getObject().getCandidates().size())
+                .sum();
+        if (candidates == candidatesAtEarlyResolution) {
+            return;
+        }
+
+        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this));
+
+        Function<M, TestResult> resolve = createResolver(new BindingResultCache<>(relevantVariables), true);
+        workBudget.resetCombinations();
+
+        undecided.removeIf(model -> {
+            TestResult result;
+            try {
+                result = resolve.apply(model);
+            } catch (WorkBudgetExceededException e) {
+                // the early resolution is just an optimization, the model is going to be tried again in the end
+                LOG.trace("Early resolution of model {} gave up: {}", model, e.getMessage());
+                return false;
+            }
+
+            if (result == PASSED) {
+                LOG.trace("Model {} resolved early.", model);
+                resolved(model, PASSED, emptyMap());
+                return true;
+            } else {
+                return false;
+            }
+        });
+
+        undecidedAfterEarlyResolution = undecided.size();
+        candidatesAtEarlyResolution = candidates;
+
+        LOG.traceExit(methodTrace);
+    }
+
+    private void resolved(M model, TestResult result, Map<M, TestResult> results) {
+        reportResolved(model, result, results);
+
+        if (result == PASSED) {
+            reportMatch(model);
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public CacheStatistics getFinishCacheStatistics() {
+        return finishCacheStatistics;
+    }
+
+    /**
+     * Tests the model against the statement with the variables bound to the provided models.
+     *
+     * <p>If the binding is not complete, the unbound variables are considered {@link TestResult#DEFERRED}. In that
+     * case the result is only {@link TestResult#NOT_PASSED} or {@link TestResult#PASSED} if all the possible
+     * completions of the binding would give the same result. When all the variables relevant to the statement are
+     * bound, the result of this method is the same as if every statement was tested with all the variables bound.
+     */
     private TestResult testBinding(Node<StatementMatch<M>> statementNode, M model, Map<String, M> binding,
-            Map<Node<StatementMatch<M>>, Map<M, TestResult>> cache) {
+            Evaluation<M> evaluation) {
 
         EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "statementNode", statementNode, "model", model, "binding", binding));
 
-        TestResult cached = cache.computeIfAbsent(statementNode, __ -> new HashMap<>()).get(model);
+        Map<M, LocalResult> localResults = evaluation.results.computeIfAbsent(statementNode, __ -> new HashMap<>());
+        LocalResult local = localResults.get(model);
+        if (local != null) {
+            LOG.trace("Found cached result {} for {}", local.result, statementNode);
+            evaluation.dependOn(local);
+            return LOG.traceExit(methodTrace, local.result);
+        }
+
+        Integer inProgressDepth = evaluation.inProgress.computeIfAbsent(statementNode, __ -> new HashMap<>())
+                .get(model);
+        if (inProgressDepth != null) {
+            // the evaluation is in progress, yet we arrived here again... pretending a passing result basically
+            // cancels out the effect of this statement on the result. This assumption doesn't depend on the
+            // candidates, so it holds even if they are still incomplete.
+            LOG.trace("Evaluation loop detected on {}", statementNode);
+            evaluation.lowLink = Math.min(evaluation.lowLink, inProgressDepth);
+            return LOG.traceExit(methodTrace, PASSED);
+        }
+
+        BindingResultCache.Key key = evaluation.resultCache.keyOf(statementNode, model, binding);
+        TestResult cached = evaluation.resultCache.get(key);
         if (cached != null) {
-            LOG.trace("Found cached result {} for {}", cached, statementNode);
+            LOG.trace("Found result {} for {} cached by a previous binding", cached, statementNode);
             return LOG.traceExit(methodTrace, cached);
-        } else {
-            if (cache.get(statementNode).containsKey(model)) {
-                // the evaluation is in progress, yet we arrived here again... pretending a passing result basically
-                // cancels out the effect of this statement on the result
-                LOG.trace("Evaluation loop detected on {}", statementNode);
-                return LOG.traceExit(methodTrace, PASSED);
-            }
         }
 
-        cache.get(statementNode).put(model, null);
+        boolean complete = key.isComplete();
+
+        int depth = evaluation.enter();
+        workBudget.checkRecursionDepth(depth);
+        int outerLowLink = evaluation.lowLink;
+        evaluation.lowLink = Integer.MAX_VALUE;
+        evaluation.inProgress.get(statementNode).put(model, depth);
 
         StatementMatch<M> match = statementNode.getObject();
 
-        TestResult ret = match.test(model, match.getContext().require(binding).getMatchContext())
+        TestResult ret = match.test(model, bind(match, binding))
                 .and(() -> {
                     // match children
                     EntryMessage trace = LOG.traceEntry("Matching children");
@@ -298,28 +618,27 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
                         return LOG.traceExit(trace, PASSED);
                     }
 
+                    TestResult result = PASSED;
                     for (Node<StatementMatch<M>> child : statementNode.getChildren()) {
                         StatementMatch<M> childSt = child.getObject();
-                        boolean somePassed = false;
-                        for (M candidate : childSt.getCandidates()) {
-                            MatchContext<M> ctx = childSt.getContext().require(binding).getMatchContext();
-                            Element parent = ctx.getModelInspector().toElement(candidate).getEnclosingElement();
-                            if (parent == null || !model.equals(ctx.getModelInspector().fromElement(parent))) {
-                                continue;
-                            }
-                            if (testBinding(child, candidate, binding, cache) == PASSED) {
-                                somePassed = true;
+                        TestResult childResult = NOT_PASSED;
+                        for (M candidate : childSt.getCandidatesEnclosedBy(model)) {
+                            childResult = childResult.or(testBinding(child, candidate, binding, evaluation));
+                            if (childResult == PASSED) {
                                 break;
                             }
                         }
 
-                        if (!somePassed) {
+                        childResult = settle(childResult, complete, evaluation.open);
+                        if (childResult == NOT_PASSED) {
                             LOG.trace("No candidate on child {} passes with binding {}", child, binding);
                             return LOG.traceExit(trace, NOT_PASSED);
                         }
+
+                        result = result.and(childResult);
                     }
 
-                    return LOG.traceExit(trace, PASSED);
+                    return LOG.traceExit(trace, result);
                 })
                 .and(() -> {
                     // match dependencies
@@ -330,7 +649,7 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
                         return LOG.traceExit(trace, PASSED);
                     }
 
-                    TestResult result = requireDependencies(model, statementNode, binding, cache);
+                    TestResult result = requireDependencies(model, statementNode, binding, evaluation);
 
                     return LOG.traceExit(trace, result);
                 })
@@ -344,63 +663,127 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
                     }
 
                     String var = match.getContext().getDefinedVariable();
-                    if (model != binding.get(var)) {
+                    TestResult result;
+                    if (!binding.containsKey(var)) {
+                        result = DEFERRED;
+                    } else if (model != binding.get(var)) {
                         LOG.trace("Current model {} is not bound as {} on the current statement {}." +
                                 " Dependents cannot pass.", model, var, statementNode);
                         return LOG.traceExit(trace, NOT_PASSED);
+                    } else {
+                        result = PASSED;
                     }
 
-                    TestResult result = PASSED;
-
                     for (Node<StatementMatch<M>> dep : statementNode.out()) {
                         StatementMatch<M> depSt = dep.getObject();
-                        boolean someCandidatePasses = false;
-                        for (M depCandidate : depSt.getCandidates()) {
-                            if (testBinding(dep, depCandidate, binding, cache) == PASSED) {
-                                someCandidatePasses = true;
+                        TestResult depResult = NOT_PASSED;
+                        for (M depCandidate : evaluation.candidates.get(dep)) {
+                            depResult = depResult.or(testBinding(dep, depCandidate, binding, evaluation));
+                            if (depResult == PASSED) {
                                 break;
                             }
                         }
 
-                        if (!someCandidatePasses) {
+                        depResult = settle(depResult, complete, evaluation.open);
+                        if (depResult == NOT_PASSED) {
                             LOG.trace("No candidate match of {} matches with binding {}.", dep, binding);
-                            result = NOT_PASSED;
-                            break;
+                            return LOG.traceExit(trace, NOT_PASSED);
                         }
+
+                        result = result.and(depResult);
                     }
 
                     return LOG.traceExit(trace, result);
                 });
 
-        cache.get(statementNode).put(model, ret);
+        evaluation.inProgress.get(statementNode).remove(model);
+        evaluation.exit();
+
+        if (evaluation.lowLink >= depth) {
+            // the result didn't depend on any evaluation still in progress up the stack and therefore is the same
+            // for any other binding with the same values of the relevant variables
+            evaluation.resultCache.put(key, ret);
+            evaluation.lowLink = outerLowLink;
+        } else {
+            localResults.put(model, evaluation.localResult(ret));
+            evaluation.lowLink = Math.min(outerLowLink, evaluation.lowLink);
+        }
 
         return LOG.traceExit(methodTrace, ret);
     }
 
     private TestResult requireDependencies(M model, Node<StatementMatch<M>> statementNode, Map<String, M> binding,
-            Map<Node<StatementMatch<M>>, Map<M, TestResult>> cache) {
-        // potential optimization here is to as the statement whether it needs to process all the dependencies or
-        // if we can somehow short-circuit here - either if the statement requires all deps to pass and we find
-        // a non-matching or if the statement requires at least one dep to pass and we find such.
-        // This requires some complex logic in the matches though because we need to basically reconstruct the
-        Map<String, TestResult> results = new HashMap<>();
+            Evaluation<M> evaluation) {
+        // The dependencies are only evaluated once the statement's test actually asks for them. This way the test
+        // short-circuits the evaluation exactly as its structure dictates - e.g. once one of the alternatives in
+        // "uses %a | %b" passes or once one of the conjuncts in "extends %a implements %b" fails, the rest of the
+        // dependencies is not evaluated at all.
+        Map<String, Supplier<TestResult>> results = new HashMap<>();
         for (Node<StatementMatch<M>> dep : statementNode.in()) {
             String var = dep.getObject().getContext().getDefinedVariable();
-            if (dep.getObject().getCandidates().contains(binding.get(var))) {
-                results.put(var, testBinding(dep, binding.get(var), binding, cache));
+            if (!binding.containsKey(var)) {
+                results.put(var, () -> DEFERRED);
+            } else if (dep.getObject().getCandidates().contains(binding.get(var))) {
+                M depModel = binding.get(var);
+                results.put(var, () -> testBinding(dep, depModel, binding, evaluation));
             } else {
-                results.put(var, NOT_PASSED);
+                // with incomplete candidates, the bound model might still become one
+                TestResult result = evaluation.open ? DEFERRED : NOT_PASSED;
+                results.put(var, () -> result);
             }
         }
 
         return statementNode.getObject()
-                .test(model, statementNode.getObject().getContext().withResults(results).getMatchContext());
+                .test(model, statementNode.getObject().getContext().withLazyResults(results).getMatchContext());
+    }
+
+    /**
+     * Binds the variables referenced by the statement to the models in the binding. The referenced variables missing
+     * from the binding are considered undecided.
+     */
+    private MatchContext<M> bind(StatementMatch<M> match, Map<String, M> binding) {
+        StatementContext<M> ctx = match.getContext();
+        Map<String, TestResult> unbound = null;
+        for (String var : ctx.getMatchContext().getVariables()) {
+            if (!binding.containsKey(var)) {
+                if (unbound == null) {
+                    unbound = new HashMap<>(4);
+                }
+                unbound.put(var, DEFERRED);
+            }
+        }
+
+        ctx = ctx.require(binding);
+
+        return unbound == null ? ctx.getMatchContext() : ctx.withResults(unbound).getMatchContext();
+    }
+
+    /**
+     * Once all the relevant variables are bound, there is no point in waiting for anything anymore and whatever didn't
+     * pass, failed. With a partial binding, the undecided result might still pass once the rest of the variables is
+     * bound.
+     *
+     * <p>If the candidates are still incomplete (the evaluation is "open"), whatever didn't pass might still pass once
+     * more candidates are found.
+     */
+    private static TestResult settle(TestResult result, boolean complete, boolean open) {
+        if (open) {
+            return result == NOT_PASSED ? DEFERRED : result;
+        } else {
+            return complete && result == DEFERRED ? NOT_PASSED : result;
+        }
     }
 
     @Override
     public void reset() {
-        statementStack.clear();
+        walkStack.clear();
+        walkDepth = 0;
         undecided.clear();
+        workBudget.reset();
+        transitiveUses.clear();
+        finishCacheStatistics = CacheStatistics.empty();
+        undecidedAfterEarlyResolution = 0;
+        candidatesAtEarlyResolution = 0;
         roots.forEach(this::resetStatement);
     }
 
@@ -411,69 +794,74 @@ final class MultiMatchingProgress<M> extends MatchingProgress<M> {
         }
     }
 
-    private static class WalkContext<M> {
-        final @Nullable WalkContext<M> parent;
-        final M model;
-        final TestResult startResult;
-        TestResult finishResult;
-        final boolean mustHaveChildren;
-        boolean childrenEncountered;
-        final Collection<Node<StatementMatch<M>>> nextStatements;
-
-        private WalkContext(WalkContext<M> parent, M model, TestResult startResult, boolean shouldHaveChildren,
-                Collection<Node<StatementMatch<M>>> nextStatements) {
-            this.parent = parent;
-            this.model = model;
-            this.startResult = startResult;
-            this.nextStatements = nextStatements;
-            this.mustHaveChildren = shouldHaveChildren;
-            this.finishResult = startResult;
+    /**
+     * The state of a single evaluation of a returning statement with some binding.
+     *
+     * <p>The results that depend on some test still in progress higher up the stack (because of the loop detection)
+     * are only valid within the evaluation and are kept here. The rest is stored in the shared result cache. The
+     * "low link" is the shallowest depth of the in-progress tests that a result depended on.
+     */
+    private static final class Evaluation<M> {
+        final BindingResultCache<M> resultCache;
+        final Map<Node<StatementMatch<M>>, Collection<M>> candidates;
+        final boolean open;
+        final Map<Node<StatementMatch<M>>, Map<M, LocalResult>> results = new IdentityHashMap<>();
+        final Map<Node<StatementMatch<M>>, Map<M, Integer>> inProgress = new IdentityHashMap<>();
+        final List<Integer> frames = new ArrayList<>();
+        int nextFrame;
+        int lowLink = Integer.MAX_VALUE;
+
+        Evaluation(BindingResultCache<M> resultCache, Map<Node<StatementMatch<M>>, Collection<M>> candidates,
+                boolean open) {
+            this.resultCache = resultCache;
+            this.candidates = candidates;
+            this.open = open;
         }
-    }
 
-    private <T> Iterator<List<T>> combinations(Collection<? extends Collection<T>> source) {
-        return new Iterator<List<T>>() {
-            final List<Collection<T>> sources = new ArrayList<>(source);
-            final List<Iterator<T>> current = source.stream().map(Collection::iterator).collect(toList());
-            List<T> last = null;
-
-            @Override
-            public boolean hasNext() {
-                for (Iterator<?> it : current) {
-                    if (it.hasNext()) {
-                        return true;
-                    }
-                }
-                return false;
-            }
+        int enter() {
+            frames.add(nextFrame++);
+            return frames.size() - 1;
+        }
 
-            @Override
-            public List<T> next() {
-                if (last == null) {
-                    return first();
-                }
+        void exit() {
+            frames.remove(frames.size() - 1);
+        }
 
-                for (int i = 0; i < last.size(); ++i) {
-                    Iterator<T> it = current.get(i);
-                    if (it.hasNext()) {
-                        last.set(i, it.next());
-                        return last;
-                    } else {
-                        it = sources.get(i).iterator();
-                        current.set(i, it);
-                        last.set(i, it.next());
-                    }
-                }
+        LocalResult localResult(TestResult result) {
+            return lowLink < 0
+                    ? new LocalResult(result, -1, -1)
+                    : new LocalResult(result, lowLink, frames.get(lowLink));
+        }
 
-                throw new NoSuchElementException();
+        void dependOn(LocalResult result) {
+            if (result.lowLink >= 0 && result.lowLink < frames.size()
+                    && frames.get(result.lowLink) == result.lowFrame) {
+                lowLink = Math.min(lowLink, result.lowLink);
+            } else {
+                // the test the result depended on has already finished, so we can no longer tell in what context
+                // the result is valid. Let's just make sure nothing depending on it ends up in the shared cache.
+                lowLink = -1;
             }
+        }
+    }
 
-            private List<T> first() {
-                if (last == null) {
-                    last = current.stream().map(Iterator::next).collect(toCollection(ArrayList::new));
-                }
-                return last;
-            }
-        };
+    private static final class LocalResult {
+        final TestResult result;
+        final int lowLink;
+        final int lowFrame;
+
+        LocalResult(TestResult result, int lowLink, int lowFrame) {
+            this.result = result;
+            this.lowLink = lowLink;
+            this.lowFrame = lowFrame;
+        }
+    }
+
+    private static final class WalkContext<M> {
+        @Nullable WalkContext<M> parent;
+        @Nullable M model;
+        WalkState<M> state;
+        TestResult finishResult;
+        boolean childrenEncountered;
     }
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.QualifiedNameable;
+import javax.lang.model.element.TypeElement;
+
+import org.revapi.classif.util.Nullable;
+import org.revapi.classif.util.execution.Node;
+
+/**
+ * Tells whether a package or a type can contain any model that could influence the result of the matching, based on
+ * the {@link StatementMatch#getQualifiedNamePrefix() prefixes} of the root statements. If it can't, the whole subtree
+ * of the package or type doesn't need to be walked.
+ *
+ * <p>This is conservative. If any of the root statements can match elements with any name, or if any of the returning
+ * or variable-defining statements is not a root statement (the children of which could be matched regardless of the
+ * parent), there is no filter.
+ */
+final class QualifiedNameFilter {
+    private final String[] prefixes;
+
+    private QualifiedNameFilter(List<String> prefixes) {
+        this.prefixes = prefixes.toArray(new String[0]);
+    }
+
+    static <M> @Nullable QualifiedNameFilter of(List<Node<StatementMatch<M>>> statements) {
+        List<String> prefixes = new ArrayList<>();
+        for (Node<StatementMatch<M>> st : statements) {
+            if (st.getParent() == null) {
+                String prefix = st.getObject().getQualifiedNamePrefix();
+                if (prefix == null) {
+                    return null;
+                }
+                prefixes.add(prefix);
+            } else if (st.getObject().getContext().isReturn()
+                    || st.getObject().getContext().getDefinedVariable() != null) {
+                return null;
+            }
+        }
+
+        return prefixes.isEmpty() ? null : new QualifiedNameFilter(prefixes);
+    }
+
+    static <M> @Nullable QualifiedNameFilter of(StatementMatch<M> statement) {
+        String prefix = statement.getQualifiedNamePrefix();
+        return prefix == null ? null : new QualifiedNameFilter(Collections.singletonList(prefix));
+    }
+
+    /**
+     * @param element the element to check
+     * @return false if neither the element nor any of its enclosed elements can be matched by any of the statements
+     */
+    boolean mayContainMatches(Element element) {
+        if (!(element instanceof TypeElement || element instanceof PackageElement)) {
+            return true;
+        }
+
+        String name = ((QualifiedNameable) element).getQualifiedName().toString();
+        if (name.isEmpty()) {
+            // unnamed package or local and anonymous classes
+            return true;
+        }
+
+        for (String prefix : prefixes) {
+            if (isPrefix(name, prefix) || isPrefix(prefix, name)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * @return true if the dot-separated names in the prefix are at the start of the dot-separated names in the name
+     */
+    private static boolean isPrefix(String prefix, String name) {
+        return name.startsWith(prefix) && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.');
+    }
+}
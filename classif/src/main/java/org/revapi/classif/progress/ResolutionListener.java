@@ -0,0 +1,81 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.function.Consumer;
+
+import org.revapi.classif.TestResult;
+
+/**
+ * Receives the results of the matching as soon as they are known, both during the tree walk and during the final
+ * {@link MatchingProgress#finish()}.
+ *
+ * <p>While a listener is set, the final results are only ever reported to it and are not collected by the matching
+ * progress. The final {@link MatchingProgress#finish()} therefore returns an empty map.
+ *
+ * @param <M> the type of the model elements
+ * @see MatchingProgress#setResolutionListener(ResolutionListener)
+ */
+@FunctionalInterface
+public interface ResolutionListener<M> {
+
+    /**
+     * Creates a listener that is only interested in the matching models.
+     *
+     * @param consumer the consumer of the matching models
+     * @param <M> the type of the model elements
+     * @return the listener passing the matching models to the consumer
+     */
+    static <M> ResolutionListener<M> onMatch(Consumer<? super M> consumer) {
+        return new ResolutionListener<M>() {
+            @Override
+            public void resolved(M model, TestResult result) {
+            }
+
+            @Override
+            public void matched(M model) {
+                consumer.accept(model);
+            }
+        };
+    }
+
+    /**
+     * Called once for each model that was {@link TestResult#DEFERRED} when it was
+     * {@link MatchingProgress#finish(Object) finished} during the tree walk, as soon as its final result is known.
+     * This can happen either during the tree walk or during the final {@link MatchingProgress#finish()}.
+     *
+     * @param model the previously deferred model
+     * @param result the final result of the model, {@link TestResult#DEFERRED} only if the model could not be
+     *               evaluated within the {@link MatchingProgress#getCompletionStatus() work budget}
+     */
+    void resolved(M model, TestResult result);
+
+    /**
+     * Called exactly once for each model that matches, as soon as that is known. This includes both the models that
+     * passed already in {@link MatchingProgress#finish(Object)} and the deferred models that resolved to
+     * {@link TestResult#PASSED}, which are therefore reported to both this method and
+     * {@link #resolved(Object, TestResult)}.
+     *
+     * <p>This is the only way of learning about the matches found by {@link MatchingProgress#walk(TreeAdapter)}.
+     *
+     * <p>By default, this method does nothing.
+     *
+     * @param model the matching model
+     */
+    default void matched(M model) {
+    }
+}
@@ -17,13 +17,22 @@
 package org.revapi.classif.progress;
 
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.ElementKind;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.revapi.classif.ModelInspector;
 import org.revapi.classif.StructuralMatcher;
 import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.util.Nullable;
 
 final class SimpleMatchingProgress<M> extends MatchingProgress<M> {
     private static final Logger LOG = LogManager.getLogger(SimpleMatchingProgress.class);
@@ -31,17 +40,95 @@ final class SimpleMatchingProgress<M> extends MatchingProgress<M> {
     private final StatementMatch<M> statementMatch;
     private final StructuralMatcher.Configuration configuration;
     private final Map<M, TestResult> activeTestResults = new IdentityHashMap<>();
+    // the models that could not be evaluated within the work budget
+    private final Map<M, TestResult> unresolved = new LinkedHashMap<>();
+    private final @Nullable QualifiedNameFilter subtreeFilter;
+    private final WalkInstruction[] instructions = new WalkInstruction[TestResult.values().length];
 
-    SimpleMatchingProgress(StructuralMatcher.Configuration configuration, StatementMatch<M> statementMatch) {
+    SimpleMatchingProgress(StructuralMatcher.Configuration configuration, ModelInspector<M> modelInspector,
+            WorkBudget workBudget, @Nullable SharedMatchResults sharedMatchResults,
+            TransitiveUsesCache transitiveUses, StatementMatch<M> statementMatch) {
+        super(modelInspector, workBudget, sharedMatchResults, transitiveUses);
         this.configuration = configuration;
         this.statementMatch = statementMatch;
+        this.subtreeFilter = QualifiedNameFilter.of(statementMatch);
+
+        // the children of any element are tested with the same statement, so the relevant kinds are the ones the
+        // statement applies to and the ones that can contain them
+        Set<ElementKind> childKinds = EnumSet.noneOf(ElementKind.class);
+        for (ElementKind kind : ElementKind.values()) {
+            if (statementMatch.isApplicableTo(kind)) {
+                childKinds.add(kind);
+            }
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (ElementKind kind : ElementKind.values()) {
+                if (!childKinds.contains(kind) && WalkInstruction.canContainAnyOf(kind, childKinds)) {
+                    childKinds.add(kind);
+                    changed = true;
+                }
+            }
+        }
+
+        for (TestResult r : TestResult.values()) {
+            instructions[r.ordinal()] = configuration.isStrictHierarchy()
+                    ? WalkInstruction.of(false, r)
+                    : WalkInstruction.of(r, childKinds);
+        }
+    }
+
+    /**
+     * @return the anchor of the statement, if any
+     * @see StatementMatch#getAnchor()
+     */
+    @Nullable Anchor getAnchor() {
+        return statementMatch.getAnchor();
+    }
+
+    /**
+     * @return true if only the roots of the walked trees are tested
+     */
+    boolean isRootsOnly() {
+        return configuration.isStrictHierarchy();
+    }
+
+    /**
+     * @return the kinds of the children of any element that this progress needs to walk
+     */
+    Set<ElementKind> getChildKinds() {
+        return instructions[TestResult.NOT_PASSED.ordinal()].getChildKinds();
     }
 
     @Override
     public WalkInstruction start(M model) {
-        TestResult res = statementMatch.test(model, statementMatch.getContext().getMatchContext());
-        activeTestResults.put(model, res);
-        return LOG.traceExit(WalkInstruction.of(!configuration.isStrictHierarchy(), res));
+        WalkInstruction ret = walkStart(model);
+        activeTestResults.put(model, ret.getTestResult());
+        return LOG.traceExit(ret);
+    }
+
+    @Override
+    WalkInstruction walkStart(M model) {
+        if (subtreeFilter != null && !subtreeFilter.mayContainMatches(modelInspector.toElement(model))) {
+            return WalkInstruction.of(false, TestResult.NOT_PASSED);
+        }
+
+        TestResult res;
+        startSharingResults(model);
+        try {
+            workBudget.check();
+            res = statementMatch.test(model, statementMatch.getContext().getMatchContext());
+        } catch (WorkBudgetExceededException e) {
+            LOG.debug("Giving up on model {}: {}", model, e.getMessage());
+            workBudget.exceeded(e);
+            res = TestResult.DEFERRED;
+        } finally {
+            stopSharingResults();
+        }
+
+        return instructions[res.ordinal()];
     }
 
     @Override
@@ -50,18 +137,41 @@ final class SimpleMatchingProgress<M> extends MatchingProgress<M> {
         if (res == null) {
             throw new IllegalArgumentException("Unbalanced start/finish call.");
         } else {
-            return res;
+            return walkFinish(model, res);
+        }
+    }
+
+    @Override
+    TestResult walkFinish(M model, TestResult startResult) {
+        if (startResult == TestResult.PASSED) {
+            reportMatch(model);
+        } else if (startResult == TestResult.DEFERRED) {
+            unresolved.put(model, startResult);
         }
+        return startResult;
     }
 
     @Override
     public Map<M, TestResult> finish() {
+        if (unresolved.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        ResolutionListener<M> listener = getResolutionListener();
+        if (listener == null) {
+            return new LinkedHashMap<>(unresolved);
+        }
+
+        unresolved.forEach(listener::resolved);
         return Collections.emptyMap();
     }
 
     @Override
     public void reset() {
         activeTestResults.clear();
+        unresolved.clear();
+        workBudget.reset();
+        transitiveUses.clear();
         statementMatch.reset();
     }
 }
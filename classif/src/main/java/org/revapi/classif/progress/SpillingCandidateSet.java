@@ -0,0 +1,507 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * A set of candidate models that keeps at most a configured number of the models in memory. The rest is "spilled" to
+ * a temporary file in the form of the model identifiers (see {@link ModelInspector#toId(Object)}) and re-created
+ * when iterated over.
+ *
+ * <p>Only the 64bit hashes of the identifiers of the spilled models and the positions of the identifiers in the file
+ * are kept in memory. The hashes are enough to answer most of the {@link #contains(Object)} calls without reading the
+ * file. Only if the hash of the identifier matches, the identifier is read from the file and compared.
+ *
+ * <p>The models for which the model inspector doesn't provide an identifier are always kept in memory.
+ *
+ * <p>The file is mapped into memory when the set is iterated over and the mapping is reused by all the iterations
+ * until another model is spilled.
+ *
+ * <p>The temporary file is deleted once the set is {@link #clear() cleared}. Where the operating system allows it, it
+ * is not visible in the file system at all and is deleted even if the set is never cleared.
+ *
+ * <p>The set is safe to read from multiple threads but must not be modified while it is being iterated over.
+ *
+ * @param <M> the type of the model elements
+ */
+final class SpillingCandidateSet<M> extends AbstractSet<M> {
+    /**
+     * Returned from {@link #addAndLocate(Object)} if the model is kept in memory.
+     */
+    static final long IN_MEMORY = -1;
+
+    /**
+     * Returned from {@link #addAndLocate(Object)} if the model already is in the set.
+     */
+    static final long NOT_ADDED = -2;
+
+    private static final Logger LOG = LogManager.getLogger(SpillingCandidateSet.class);
+    private static final int BUFFER_SIZE = 8192;
+
+    private final ModelInspector<M> inspector;
+    private final int maxInMemory;
+    private final @Nullable Path directory;
+    private final ToLongFunction<String> hashFunction;
+    private final Set<M> inMemory = new HashSet<>();
+    private final IdTable spilled = new IdTable();
+    private @Nullable FileChannel file;
+    private @Nullable ByteBuffer writeBuffer;
+    private @Nullable MappedByteBuffer mapping;
+    private long fileSize;
+
+    SpillingCandidateSet(ModelInspector<M> inspector, int maxInMemory, @Nullable Path directory) {
+        this(inspector, maxInMemory, directory, SpillingCandidateSet::hash);
+    }
+
+    // visible for testing
+    SpillingCandidateSet(ModelInspector<M> inspector, int maxInMemory, @Nullable Path directory,
+            ToLongFunction<String> hashFunction) {
+        this.inspector = inspector;
+        this.maxInMemory = maxInMemory;
+        this.directory = directory;
+        this.hashFunction = hashFunction;
+    }
+
+    /**
+     * @return true if some of the models are not kept in memory
+     */
+    synchronized boolean isSpilled() {
+        return spilled.size() > 0;
+    }
+
+    @Override
+    public boolean add(M model) {
+        return addAndLocate(model) != NOT_ADDED;
+    }
+
+    /**
+     * Adds the model to the set and tells where it ended up, so that the callers can refer to the spilled models
+     * without keeping them in memory.
+     *
+     * @param model the model to add
+     * @return the position of the spilled model to be passed to {@link #get(Positions)}, {@link #IN_MEMORY} if the
+     * model is kept in memory or {@link #NOT_ADDED} if the model already is in the set
+     */
+    synchronized long addAndLocate(M model) {
+        if (inMemory.contains(model)) {
+            return NOT_ADDED;
+        }
+
+        if (inMemory.size() < maxInMemory) {
+            return inMemory.add(model) ? IN_MEMORY : NOT_ADDED;
+        }
+
+        String id = inspector.toId(model);
+        if (id == null) {
+            return inMemory.add(model) ? IN_MEMORY : NOT_ADDED;
+        }
+
+        long hash = hashFunction.applyAsLong(id);
+        if (isSpilled(id, hash)) {
+            return NOT_ADDED;
+        }
+
+        long position = write(id);
+        spilled.add(hash, position);
+        mapping = null;
+
+        return position;
+    }
+
+    /**
+     * @param positions the positions obtained from {@link #addAndLocate(Object)}
+     * @return the spilled models at the provided positions
+     */
+    synchronized List<M> get(Positions positions) {
+        List<M> ret = new ArrayList<>(positions.size());
+        for (int i = 0; i < positions.size(); ++i) {
+            ret.add(inspector.fromId(read(positions.get(i))));
+        }
+        return ret;
+    }
+
+    @Override
+    public synchronized boolean contains(Object o) {
+        if (inMemory.contains(o)) {
+            return true;
+        }
+
+        if (!isSpilled()) {
+            return false;
+        }
+
+        @SuppressWarnings("unchecked")
+        String id = inspector.toId((M) o);
+        return id != null && isSpilled(id, hashFunction.applyAsLong(id));
+    }
+
+    @Override
+    public synchronized Iterator<M> iterator() {
+        Iterator<M> memory = inMemory.iterator();
+        Iterator<M> disk = isSpilled() ? new SpilledIterator(map().duplicate()) : null;
+
+        return new Iterator<M>() {
+            @Override
+            public boolean hasNext() {
+                return memory.hasNext() || (disk != null && disk.hasNext());
+            }
+
+            @Override
+            public M next() {
+                if (memory.hasNext()) {
+                    return memory.next();
+                } else if (disk != null) {
+                    return disk.next();
+                } else {
+                    throw new NoSuchElementException();
+                }
+            }
+        };
+    }
+
+    @Override
+    public synchronized int size() {
+        return inMemory.size() + spilled.size();
+    }
+
+    @Override
+    public synchronized void clear() {
+        inMemory.clear();
+        spilled.clear();
+        writeBuffer = null;
+        mapping = null;
+        fileSize = 0;
+
+        if (file != null) {
+            try {
+                file.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close the candidate storage file.", e);
+            } finally {
+                file = null;
+            }
+        }
+    }
+
+    private boolean isSpilled(String id, long hash) {
+        IdTable.Probe probe = spilled.probe(hash);
+        while (probe.next()) {
+            if (id.equals(read(probe.position()))) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Appends the identifier to the file.
+     *
+     * @return the position of the identifier in the file
+     */
+    private long write(String id) {
+        byte[] bytes = id.getBytes(UTF_8);
+        try {
+            ByteBuffer buffer = writeBuffer();
+            if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                flush();
+            }
+
+            long position = fileSize;
+            if (buffer.remaining() < Integer.BYTES + bytes.length) {
+                // doesn't fit into the buffer at all
+                ByteBuffer data = ByteBuffer.allocate(Integer.BYTES + bytes.length);
+                data.putInt(bytes.length).put(bytes).flip();
+                writeFully(data, position);
+            } else {
+                buffer.putInt(bytes.length).put(bytes);
+            }
+
+            fileSize += Integer.BYTES + bytes.length;
+            return position;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store a candidate.", e);
+        }
+    }
+
+    private String read(long position) {
+        if (mapping != null) {
+            ByteBuffer data = mapping.duplicate();
+            data.position((int) position);
+            byte[] bytes = new byte[data.getInt()];
+            data.get(bytes);
+            return new String(bytes, UTF_8);
+        }
+
+        try {
+            flush();
+
+            ByteBuffer length = ByteBuffer.allocate(Integer.BYTES);
+            readFully(length, position);
+            ByteBuffer data = ByteBuffer.allocate(length.getInt(0));
+            readFully(data, position + Integer.BYTES);
+
+            return new String(data.array(), UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read a candidate.", e);
+        }
+    }
+
+    private ByteBuffer map() {
+        if (mapping != null) {
+            return mapping;
+        }
+
+        try {
+            flush();
+            mapping = requireFile().map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            return mapping;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read the candidates.", e);
+        }
+    }
+
+    private ByteBuffer writeBuffer() throws IOException {
+        if (file == null) {
+            Path path = directory == null
+                    ? Files.createTempFile("classif-candidates", ".bin")
+                    : Files.createTempFile(directory, "classif-candidates", ".bin");
+
+            // on the systems that allow it, the file is unlinked right away and disappears once the channel is closed
+            file = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+            writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+            fileSize = 0;
+            LOG.debug("Spilling candidates over {} to {}", maxInMemory, path);
+        }
+
+        return writeBuffer;
+    }
+
+    private void flush() throws IOException {
+        if (writeBuffer == null || writeBuffer.position() == 0) {
+            return;
+        }
+
+        writeBuffer.flip();
+        writeFully(writeBuffer, fileSize - writeBuffer.remaining());
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer data, long position) throws IOException {
+        FileChannel channel = requireFile();
+        while (data.hasRemaining()) {
+            position += channel.write(data, position);
+        }
+    }
+
+    private void readFully(ByteBuffer data, long position) throws IOException {
+        FileChannel channel = requireFile();
+        while (data.hasRemaining()) {
+            int read = channel.read(data, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of the candidate storage file.");
+            }
+            position += read;
+        }
+    }
+
+    private FileChannel requireFile() {
+        if (file == null) {
+            throw new IllegalStateException("The candidate storage file is not open.");
+        }
+        return file;
+    }
+
+    private static long hash(String id) {
+        // FNV-1a
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); ++i) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private final class SpilledIterator implements Iterator<M> {
+        private final ByteBuffer data;
+
+        SpilledIterator(ByteBuffer data) {
+            this.data = data;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return data.hasRemaining();
+        }
+
+        @Override
+        public M next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            byte[] bytes = new byte[data.getInt()];
+            data.get(bytes);
+            return inspector.fromId(new String(bytes, UTF_8));
+        }
+    }
+
+    /**
+     * The positions of some of the spilled models as returned from {@link #addAndLocate(Object)}.
+     */
+    static final class Positions {
+        private long[] values = new long[2];
+        private int size;
+
+        void add(long position) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = position;
+        }
+
+        long get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A minimal open-addressing hash table from the hashes of the identifiers to their positions in the file, so that
+     * we don't need to box the values. Several identifiers can have the same hash.
+     */
+    private static final class IdTable {
+        private long[] hashes = new long[16];
+        private long[] positions = new long[16];
+        private boolean[] used = new boolean[16];
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        Probe probe(long hash) {
+            return new Probe(hash);
+        }
+
+        void add(long hash, long position) {
+            int idx = freeIndex(hash, hashes, used);
+            hashes[idx] = hash;
+            positions[idx] = position;
+            used[idx] = true;
+            if (++size > hashes.length / 2) {
+                grow();
+            }
+        }
+
+        void clear() {
+            hashes = new long[16];
+            positions = new long[16];
+            used = new boolean[16];
+            size = 0;
+        }
+
+        private void grow() {
+            long[] newHashes = new long[hashes.length * 2];
+            long[] newPositions = new long[positions.length * 2];
+            boolean[] newUsed = new boolean[used.length * 2];
+            for (int i = 0; i < hashes.length; ++i) {
+                if (used[i]) {
+                    int idx = freeIndex(hashes[i], newHashes, newUsed);
+                    newHashes[idx] = hashes[i];
+                    newPositions[idx] = positions[i];
+                    newUsed[idx] = true;
+                }
+            }
+            hashes = newHashes;
+            positions = newPositions;
+            used = newUsed;
+        }
+
+        private static int indexOf(long hash, int length) {
+            return (int) (hash ^ (hash >>> 32)) & (length - 1);
+        }
+
+        private static int freeIndex(long hash, long[] hashes, boolean[] used) {
+            int mask = hashes.length - 1;
+            int idx = indexOf(hash, hashes.length);
+            while (used[idx]) {
+                idx = (idx + 1) & mask;
+            }
+            return idx;
+        }
+
+        /**
+         * Iterates over the positions of the identifiers with the given hash.
+         */
+        final class Probe {
+            private final long hash;
+            private int idx;
+            private int current = -1;
+
+            Probe(long hash) {
+                this.hash = hash;
+                this.idx = indexOf(hash, hashes.length);
+            }
+
+            boolean next() {
+                int mask = hashes.length - 1;
+                while (used[idx]) {
+                    int candidate = idx;
+                    idx = (idx + 1) & mask;
+                    if (hashes[candidate] == hash) {
+                        current = candidate;
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            long position() {
+                return positions[current];
+            }
+        }
+    }
+}
@@ -16,19 +16,26 @@
  */
 package org.revapi.classif.progress;
 
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+
 import static org.revapi.classif.TestResult.PASSED;
 import static org.revapi.classif.util.LogUtil.traceParams;
 
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import javax.lang.model.element.Element;
-import javax.lang.model.element.ElementVisitor;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.element.VariableElement;
-import javax.lang.model.util.SimpleElementVisitor8;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -43,7 +50,13 @@ public abstract class StatementMatch<M> {
 
     // never access these directly - always use the property accessors
     private StatementContext<M> ctx;
-    private Map<M, TestResult> matchCandidates = new HashMap<>();
+    private Set<M> matchCandidates = new HashSet<>();
+    private @Nullable SpillingCandidateSet<M> spillingCandidates;
+    private boolean indexByParent;
+    private @Nullable Map<M, List<M>> candidatesByParent;
+    private @Nullable Map<M, SpillingCandidateSet.Positions> spilledCandidatesByParent;
+    private int maxCandidatesInMemory = Integer.MAX_VALUE;
+    private @Nullable Path spillDirectory;
 
     protected StatementContext<M> getContext() {
         return ctx;
@@ -53,28 +66,144 @@ public abstract class StatementMatch<M> {
         this.ctx = ctx;
     }
 
+    /**
+     * Makes this statement match index its candidates by their enclosing models so that
+     * {@link #getCandidatesEnclosedBy(Object)} is cheap. This is only worth it for the statements that are children of
+     * other statements.
+     */
+    void indexCandidatesByParent() {
+        indexByParent = true;
+        candidatesByParent = new HashMap<>();
+        spilledCandidatesByParent = new HashMap<>();
+    }
+
+    /**
+     * Limits the number of candidates kept in memory. The rest is stored in a temporary file in the provided directory.
+     *
+     * @see org.revapi.classif.StructuralMatcher.Configuration#withCandidateSpilling(int, Path)
+     */
+    void limitCandidatesInMemory(int maxCandidatesInMemory, @Nullable Path spillDirectory) {
+        this.maxCandidatesInMemory = maxCandidatesInMemory;
+        this.spillDirectory = spillDirectory;
+        reset();
+    }
+
     public void reset() {
-        matchCandidates = new HashMap<>();
+        matchCandidates.clear();
+        if (maxCandidatesInMemory == Integer.MAX_VALUE) {
+            spillingCandidates = null;
+            matchCandidates = new HashSet<>();
+        } else {
+            spillingCandidates = new SpillingCandidateSet<>(getContext().getModelInspector(), maxCandidatesInMemory,
+                    spillDirectory);
+            matchCandidates = spillingCandidates;
+        }
+
+        if (indexByParent) {
+            candidatesByParent = new HashMap<>();
+            spilledCandidatesByParent = new HashMap<>();
+        }
     }
 
     public final TestResult test(M model, MatchContext<M> ctx) {
-        return forwardTest(model, ctx, tester(model, ctx));
+        return forwardTest(model, ctx);
+    }
+
+    /**
+     * Tells whether this statement can ever match an element of the provided kind. The matching progress doesn't
+     * test the models with the statements that are not applicable to them.
+     *
+     * <p>By default, the statements are applicable to any kind of element.
+     *
+     * @param kind the kind of the element
+     * @return false if this statement never matches an element of the provided kind, true otherwise
+     */
+    public boolean isApplicableTo(ElementKind kind) {
+        return true;
     }
 
     public TestResult independentTest(M model) {
         EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "model", model));
 
         MatchContext<M> ctx = getContext().getMatchContext();
-        TestResult ret = forwardTest(model, ctx, tester(model, ctx));
+        TestResult ret = forwardTest(model, ctx);
         if (ret == PASSED) {
-            matchCandidates.put(model, ret);
+            addCandidate(model, ctx);
         }
 
         return LOG.traceExit(methodTrace, ret);
     }
 
+    private void addCandidate(M model, MatchContext<M> ctx) {
+        long position;
+        if (spillingCandidates == null) {
+            position = matchCandidates.add(model) ? SpillingCandidateSet.IN_MEMORY : SpillingCandidateSet.NOT_ADDED;
+        } else {
+            position = spillingCandidates.addAndLocate(model);
+        }
+
+        if (position == SpillingCandidateSet.NOT_ADDED || candidatesByParent == null
+                || spilledCandidatesByParent == null) {
+            return;
+        }
+
+        M parent = parentOf(model, ctx);
+        if (parent == null) {
+            return;
+        }
+
+        if (position == SpillingCandidateSet.IN_MEMORY) {
+            candidatesByParent.computeIfAbsent(parent, __ -> new ArrayList<>(2)).add(model);
+        } else {
+            // only the position is indexed so that the index doesn't keep the spilled candidates in memory
+            spilledCandidatesByParent.computeIfAbsent(parent, __ -> new SpillingCandidateSet.Positions())
+                    .add(position);
+        }
+    }
+
     public Set<M> getCandidates() {
-        return matchCandidates.keySet();
+        return matchCandidates;
+    }
+
+    /**
+     * Unlike {@link #getCandidates()}, this re-creates the spilled candidates only once, so that they can be iterated
+     * over repeatedly. The returned collection must not be used once more candidates are added.
+     *
+     * @return the current candidates
+     */
+    Collection<M> getCandidatesSnapshot() {
+        return spillingCandidates != null && spillingCandidates.isSpilled()
+                ? new ArrayList<>(spillingCandidates)
+                : matchCandidates;
+    }
+
+    /**
+     * @param parent the model to look for the candidates in
+     * @return the candidates that are directly enclosed by the provided parent model
+     */
+    public Collection<M> getCandidatesEnclosedBy(M parent) {
+        if (candidatesByParent != null && spilledCandidatesByParent != null) {
+            List<M> inMemory = candidatesByParent.getOrDefault(parent, emptyList());
+            SpillingCandidateSet.Positions spilled = spilledCandidatesByParent.get(parent);
+            if (spilled == null || spillingCandidates == null) {
+                return inMemory;
+            }
+
+            List<M> ret = new ArrayList<>(inMemory.size() + spilled.size());
+            ret.addAll(inMemory);
+            ret.addAll(spillingCandidates.get(spilled));
+            return ret;
+        }
+
+        MatchContext<M> ctx = getContext().getMatchContext();
+        return matchCandidates.stream()
+                .filter(c -> parent.equals(parentOf(c, ctx)))
+                .collect(toList());
+    }
+
+    private static <M> @Nullable M parentOf(M model, MatchContext<M> ctx) {
+        Element parent = ctx.getModelInspector().toElement(model).getEnclosingElement();
+        return parent == null ? null : ctx.getModelInspector().fromElement(parent);
     }
 
     @Override
@@ -100,34 +229,74 @@ public abstract class StatementMatch<M> {
         return TestResult.NOT_PASSED;
     }
 
-    private @Nullable TestResult forwardTest(M model, MatchContext<M> ctx,
-            ElementVisitor<TestResult, MatchContext<M>> tester) {
-        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "model", model, "ctx", ctx));
-        return LOG.traceExit(methodTrace, tester.visit(ctx.getModelInspector().toElement(model),
-                ctx));
+    /**
+     * If this statement can only ever match the types (or their members) the qualified names of which start with some
+     * fixed prefix, this returns that prefix. This is used to avoid walking the parts of the model tree that can never
+     * contain a match.
+     *
+     * @return the prefix of the qualified names of the matching elements or null if the statement can match elements
+     * with any name
+     */
+    public @Nullable String getQualifiedNamePrefix() {
+        return null;
     }
 
-    private ElementVisitor<TestResult, MatchContext<M>> tester(M model, MatchContext<M> ctx) {
-        return new SimpleElementVisitor8<TestResult, MatchContext<M>>() {
-            @Override
-            protected TestResult defaultAction(Element e, MatchContext<M> ctx) {
-                return TestResult.NOT_PASSED;
-            }
+    /**
+     * If this statement can only match the elements with some specific feature, like an exact name or an annotation,
+     * this returns that feature. This is used to only test the elements having the feature with this statement.
+     *
+     * @return the feature the matching elements need to have or null if there is no such feature
+     */
+    public @Nullable Anchor getAnchor() {
+        return null;
+    }
 
-            @Override
-            public TestResult visitVariable(VariableElement e, MatchContext<M> ctx) {
-                return testVariable(model, ctx);
-            }
+    protected static boolean isTypeKind(ElementKind kind) {
+        return kind.isClass() || kind.isInterface();
+    }
 
-            @Override
-            public TestResult visitType(TypeElement e, MatchContext<M> ctx) {
-                return testType(model, ctx);
-            }
+    protected static boolean isExecutableKind(ElementKind kind) {
+        switch (kind) {
+            case METHOD:
+            case CONSTRUCTOR:
+            case STATIC_INIT:
+            case INSTANCE_INIT:
+                return true;
+            default:
+                return false;
+        }
+    }
 
-            @Override
-            public TestResult visitExecutable(ExecutableElement e, MatchContext<M> ctx) {
-                return testMethod(model, ctx);
-            }
-        };
+    protected static boolean isVariableKind(ElementKind kind) {
+        switch (kind) {
+            case FIELD:
+            case ENUM_CONSTANT:
+            case PARAMETER:
+            case LOCAL_VARIABLE:
+            case EXCEPTION_PARAMETER:
+            case RESOURCE_VARIABLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private TestResult forwardTest(M model, MatchContext<M> ctx) {
+        EntryMessage methodTrace = LOG.traceEntry(traceParams(LOG, "this", this, "model", model, "ctx", ctx));
+
+        Element element = ctx.getModelInspector().toElement(model);
+
+        TestResult ret;
+        if (element instanceof TypeElement) {
+            ret = testType(model, ctx);
+        } else if (element instanceof ExecutableElement) {
+            ret = testMethod(model, ctx);
+        } else if (element instanceof VariableElement) {
+            ret = testVariable(model, ctx);
+        } else {
+            ret = TestResult.NOT_PASSED;
+        }
+
+        return LOG.traceExit(methodTrace, ret);
     }
 }
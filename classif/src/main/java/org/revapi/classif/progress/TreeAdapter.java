@@ -0,0 +1,55 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.Set;
+
+import javax.lang.model.element.ElementKind;
+
+/**
+ * Gives the {@link MatchingProgress#walk(TreeAdapter)} access to the tree of the models to walk.
+ *
+ * @param <M> the type of the model elements
+ */
+public interface TreeAdapter<M> {
+
+    /**
+     * @return the models at the top of the tree, e.g. the top-level types
+     */
+    Iterable<? extends M> getRoots();
+
+    /**
+     * @param model the model to return the children of
+     * @return the models directly enclosed by the provided model
+     */
+    Iterable<? extends M> getChildren(M model);
+
+    /**
+     * Returns the children of the provided model. Only the children of the provided kinds can influence the results of
+     * the matching, so the implementations that find it expensive to create the models of the children are encouraged
+     * to only return the children of the provided kinds. The children of other kinds are skipped by the walk anyway.
+     *
+     * <p>By default, this returns all the children as obtained from {@link #getChildren(Object)}.
+     *
+     * @param model the model to return the children of
+     * @param kinds the kinds of the children that are worth walking
+     * @return the models directly enclosed by the provided model
+     */
+    default Iterable<? extends M> getChildren(M model, Set<ElementKind> kinds) {
+        return getChildren(model);
+    }
+}
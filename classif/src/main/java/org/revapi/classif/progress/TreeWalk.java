@@ -0,0 +1,106 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * The iterative depth-first walk of a {@link TreeAdapter tree of models} that honors the {@link WalkInstruction}s
+ * returned when starting the individual models.
+ */
+final class TreeWalk {
+
+    private TreeWalk() {
+
+    }
+
+    static <M> void walk(TreeAdapter<M> tree, ModelInspector<M> inspector, Function<M, WalkInstruction> start,
+            BiConsumer<M, WalkInstruction> finish) {
+        List<WalkFrame<M>> stack = new ArrayList<>();
+        int depth = 0;
+
+        for (M root : tree.getRoots()) {
+            WalkFrame<M> frame = frame(stack, depth++);
+            frame.start(root, start.apply(root), tree);
+
+            while (depth > 0) {
+                frame = stack.get(depth - 1);
+                M child = frame.nextChild(inspector);
+                if (child == null) {
+                    finish.accept(frame.model, frame.instruction);
+                    frame.clear();
+                    depth--;
+                } else {
+                    frame(stack, depth++).start(child, start.apply(child), tree);
+                }
+            }
+        }
+    }
+
+    private static <M> WalkFrame<M> frame(List<WalkFrame<M>> stack, int depth) {
+        if (depth == stack.size()) {
+            WalkFrame<M> frame = new WalkFrame<>();
+            stack.add(frame);
+            return frame;
+        } else {
+            return stack.get(depth);
+        }
+    }
+
+    private static final class WalkFrame<M> {
+        @Nullable M model;
+        @Nullable WalkInstruction instruction;
+        @Nullable Iterator<? extends M> children;
+
+        void start(M model, WalkInstruction instruction, TreeAdapter<M> tree) {
+            this.model = model;
+            this.instruction = instruction;
+            this.children = instruction.isDescend()
+                    ? tree.getChildren(model, instruction.getChildKinds()).iterator()
+                    : null;
+        }
+
+        @Nullable M nextChild(ModelInspector<M> inspector) {
+            if (children == null) {
+                return null;
+            }
+
+            while (children.hasNext()) {
+                M child = children.next();
+                if (!instruction.restrictsChildKinds()
+                        || instruction.isDescendInto(inspector.toElement(child).getKind())) {
+                    return child;
+                }
+            }
+
+            return null;
+        }
+
+        void clear() {
+            model = null;
+            instruction = null;
+            children = null;
+        }
+    }
+}
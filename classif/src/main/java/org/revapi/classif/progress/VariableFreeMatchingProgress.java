@@ -0,0 +1,227 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.util.Collections.emptyMap;
+import static java.util.Objects.requireNonNull;
+
+import static org.revapi.classif.TestResult.DEFERRED;
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.TestResult.PASSED;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.WalkStateTable.WalkState;
+import org.revapi.classif.progress.WalkStateTable.WalkStep;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.util.Nullable;
+import org.revapi.classif.util.execution.Node;
+
+/**
+ * The matching progress for the recipes with more than one statement that don't use any variables. Such statements
+ * can only depend on each other through the hierarchy, so the results can be computed bottom-up during the tree walk
+ * without retaining any candidates.
+ *
+ * <p>The results are the same as the ones of the {@link MultiMatchingProgress}. The models are walked through the same
+ * {@link WalkStateTable states} and a model passes if one of the returning statements of its state passes on it and,
+ * if all the statements of its state have children, at least one of its children passes. Only the returning
+ * statements need to be tested, because the rest can only ever contribute match candidates for the variables.
+ *
+ * <p>The result of each model is therefore known in its {@link #finish(Object)}. The only exception are the models
+ * the walk gave up on because the work budget was exceeded and the models containing them. These stay
+ * {@link TestResult#DEFERRED}, because there are no candidates to resolve them with later, and are reported again by
+ * the final {@link #finish()}.
+ */
+final class VariableFreeMatchingProgress<M> extends MatchingProgress<M> {
+    private static final Logger LOG = LogManager.getLogger(VariableFreeMatchingProgress.class);
+
+    private final List<Node<StatementMatch<M>>> statements;
+    private final WalkState<M> initialWalkState;
+    private final WalkState<M> abandonedWalkState;
+    private final @Nullable QualifiedNameFilter subtreeFilter;
+    private final List<Frame<M>> walkStack = new ArrayList<>();
+    private int walkDepth;
+    private final List<M> undecided = new ArrayList<>();
+
+    VariableFreeMatchingProgress(StructuralMatcher.Configuration configuration, ModelInspector<M> modelInspector,
+            WorkBudget workBudget, @Nullable SharedMatchResults sharedMatchResults,
+            TransitiveUsesCache transitiveUses, List<Node<StatementMatch<M>>> statements) {
+        super(modelInspector, workBudget, sharedMatchResults, transitiveUses);
+        this.statements = statements;
+
+        List<Node<StatementMatch<M>>> roots = new ArrayList<>();
+        for (Node<StatementMatch<M>> st : statements) {
+            if (st.getParent() == null) {
+                roots.add(st);
+            }
+        }
+
+        WalkStateTable<M> walkStates = new WalkStateTable<>(statements, roots, configuration.isStrictHierarchy());
+        initialWalkState = walkStates.initial;
+        abandonedWalkState = walkStates.abandoned;
+        subtreeFilter = QualifiedNameFilter.of(statements);
+    }
+
+    @Override
+    public WalkInstruction start(M model) {
+        return LOG.traceExit(walkStart(model));
+    }
+
+    @Override
+    WalkInstruction walkStart(M model) {
+        Frame<M> parent = walkDepth == 0 ? null : walkStack.get(walkDepth - 1);
+        WalkState<M> state = parent == null ? initialWalkState : requireNonNull(parent.state.next);
+
+        Element element = modelInspector.toElement(model);
+
+        if (subtreeFilter != null && !subtreeFilter.mayContainMatches(element)) {
+            LOG.trace("No statement can match anything in {}. Skipping it.", model);
+            push(model, NOT_PASSED, abandonedWalkState);
+            return WalkInstruction.of(false, NOT_PASSED);
+        }
+
+        TestResult res = NOT_PASSED;
+        startSharingResults(model);
+        try {
+            workBudget.check();
+
+            for (WalkStep<M> step : state.stepsFor(element.getKind())) {
+                StatementMatch<M> match = step.statement.getObject();
+                if (match.getContext().isReturn()) {
+                    res = res.or(match.test(model, match.getContext().getMatchContext()));
+                    if (res == PASSED) {
+                        break;
+                    }
+                }
+            }
+        } catch (WorkBudgetExceededException e) {
+            LOG.debug("Giving up on model {}: {}", model, e.getMessage());
+            workBudget.exceeded(e);
+            push(model, DEFERRED, abandonedWalkState);
+            return WalkInstruction.of(false, DEFERRED);
+        } finally {
+            stopSharingResults();
+        }
+
+        push(model, res, state);
+        return state.instruction(res);
+    }
+
+    private void push(M model, TestResult result, WalkState<M> state) {
+        Frame<M> frame;
+        if (walkDepth < walkStack.size()) {
+            frame = walkStack.get(walkDepth);
+        } else {
+            frame = new Frame<>();
+            walkStack.add(frame);
+        }
+        walkDepth++;
+        frame.model = model;
+        frame.state = state;
+        frame.result = result;
+        frame.childrenEncountered = false;
+    }
+
+    @Override
+    public TestResult finish(M model) {
+        if (walkDepth == 0 || walkStack.get(walkDepth - 1).model != model) {
+            throw new IllegalArgumentException("Unbalanced start/finish call.");
+        }
+
+        return LOG.traceExit(walkFinish(model, walkStack.get(walkDepth - 1).result));
+    }
+
+    @Override
+    TestResult walkFinish(M model, TestResult startResult) {
+        if (walkDepth == 0 || walkStack.get(walkDepth - 1).model != model) {
+            throw new IllegalArgumentException("Unbalanced start/finish call.");
+        }
+
+        Frame<M> frame = walkStack.get(--walkDepth);
+        Frame<M> parent = walkDepth == 0 ? null : walkStack.get(walkDepth - 1);
+        TestResult result = frame.result;
+        frame.model = null;
+
+        if (frame.state.mustHaveChildren && !frame.childrenEncountered) {
+            result = NOT_PASSED;
+        }
+
+        if (result == NOT_PASSED) {
+            return NOT_PASSED;
+        }
+
+        if (parent != null) {
+            parent.result = parent.result.and(result);
+            parent.childrenEncountered = true;
+        }
+
+        if (result == DEFERRED) {
+            undecided.add(model);
+        } else {
+            reportMatch(model);
+        }
+
+        return result;
+    }
+
+    @Override
+    public Map<M, TestResult> finish() {
+        if (undecided.isEmpty()) {
+            return emptyMap();
+        }
+
+        // with a listener, the results are streamed to it and not collected
+        Map<M, TestResult> ret = getResolutionListener() == null ? new LinkedHashMap<>() : emptyMap();
+        for (M model : undecided) {
+            reportResolved(model, DEFERRED, ret);
+        }
+
+        return ret;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < walkDepth; ++i) {
+            walkStack.get(i).model = null;
+        }
+        walkDepth = 0;
+        undecided.clear();
+        workBudget.reset();
+        transitiveUses.clear();
+        for (Node<StatementMatch<M>> st : statements) {
+            st.getObject().reset();
+        }
+    }
+
+    private static final class Frame<M> {
+        @Nullable M model;
+        WalkState<M> state;
+        TestResult result;
+        boolean childrenEncountered;
+    }
+}
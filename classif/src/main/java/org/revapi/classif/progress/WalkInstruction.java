@@ -20,6 +20,12 @@ import static org.revapi.classif.TestResult.DEFERRED;
 import static org.revapi.classif.TestResult.NOT_PASSED;
 import static org.revapi.classif.TestResult.PASSED;
 
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+import javax.lang.model.element.ElementKind;
+
 import org.revapi.classif.TestResult;
 
 /**
@@ -28,6 +34,9 @@ import org.revapi.classif.TestResult;
  * but also instructs the caller on how to proceed with the depth-first-search walk.
  */
 public final class WalkInstruction {
+    private static final Set<ElementKind> ALL_KINDS = Collections.unmodifiableSet(EnumSet.allOf(ElementKind.class));
+    private static final Set<ElementKind> NO_KINDS = Collections.unmodifiableSet(EnumSet.noneOf(ElementKind.class));
+
     private static final WalkInstruction DESCEND_PASSED = new WalkInstruction(true, PASSED);
     private static final WalkInstruction DESCEND_NOT_PASSED = new WalkInstruction(true, NOT_PASSED);
     private static final WalkInstruction DESCEND_DEFERRED = new WalkInstruction(true, DEFERRED);
@@ -37,6 +46,7 @@ public final class WalkInstruction {
 
     private final boolean descend;
     private final TestResult testResult;
+    private final Set<ElementKind> childKinds;
 
     public static WalkInstruction of(boolean descend, TestResult testResult) {
         switch (testResult) {
@@ -51,9 +61,32 @@ public final class WalkInstruction {
         }
     }
 
+    /**
+     * Creates a walk instruction that tells the caller to only descend into the children of the provided kinds.
+     *
+     * <p>Note that unlike {@link #of(boolean, TestResult)}, this creates a new instance on each call, so the callers on
+     * the hot paths should cache the instances.
+     *
+     * @param testResult the result of the test of the model
+     * @param childKinds the kinds of the children that can influence the results of the matching
+     * @return a walk instruction
+     */
+    public static WalkInstruction of(TestResult testResult, Set<ElementKind> childKinds) {
+        return childKinds.isEmpty()
+                ? of(false, testResult)
+                : new WalkInstruction(testResult, Collections.unmodifiableSet(EnumSet.copyOf(childKinds)));
+    }
+
     private WalkInstruction(boolean descend, TestResult testResult) {
         this.descend = descend;
         this.testResult = testResult;
+        this.childKinds = descend ? ALL_KINDS : NO_KINDS;
+    }
+
+    private WalkInstruction(TestResult testResult, Set<ElementKind> childKinds) {
+        this.descend = true;
+        this.testResult = testResult;
+        this.childKinds = childKinds;
     }
 
     public boolean isDescend() {
@@ -64,11 +97,55 @@ public final class WalkInstruction {
         return testResult;
     }
 
+    /**
+     * Tells the caller whether it needs to descend into the children of given kind. If the walk is to descend (see
+     * {@link #isDescend()}) but the children of some kind can't influence the results of the matching (e.g. the methods
+     * of a type if the matcher only contains type statements), the caller can skip them - which can save it from
+     * having to create the models of such elements in the first place.
+     *
+     * @param kind the kind of the child element
+     * @return true if the caller should descend into the children of the provided kind, false otherwise
+     */
+    public boolean isDescendInto(ElementKind kind) {
+        return childKinds.contains(kind);
+    }
+
+    /**
+     * @return the kinds of the children the caller should descend into, empty if the caller shouldn't descend at all
+     * @see #isDescendInto(ElementKind)
+     */
+    public Set<ElementKind> getChildKinds() {
+        return childKinds;
+    }
+
+    /**
+     * @return true if not all the children are worth descending into
+     */
+    boolean restrictsChildKinds() {
+        return descend && childKinds != ALL_KINDS;
+    }
+
+    /**
+     * @return true if an element of the provided kind can contain (directly or indirectly) an element of any of
+     * the provided kinds
+     */
+    static boolean canContainAnyOf(ElementKind kind, Set<ElementKind> kinds) {
+        if (StatementMatch.isVariableKind(kind) || kind == ElementKind.TYPE_PARAMETER) {
+            return false;
+        } else if (StatementMatch.isExecutableKind(kind)) {
+            return kinds.contains(ElementKind.PARAMETER) || kinds.contains(ElementKind.TYPE_PARAMETER);
+        } else {
+            // types, packages and whatever else can contain anything
+            return !kinds.isEmpty();
+        }
+    }
+
     @Override
     public String toString() {
         return "WalkInstruction{" +
                 "descend=" + descend +
                 ", testResult=" + testResult +
+                (descend && childKinds != ALL_KINDS ? ", childKinds=" + childKinds : "") +
                 '}';
     }
 }
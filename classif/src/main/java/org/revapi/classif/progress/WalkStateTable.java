@@ -0,0 +1,239 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.ElementKind;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.util.Nullable;
+import org.revapi.classif.util.execution.Node;
+
+/**
+ * Computes all the walk states reachable from the root statements. The states are interned by the set of their
+ * statements, so there is only a finite number of them even though the walk can go arbitrarily deep in the
+ * non-strict hierarchy mode.
+ *
+ * <p>The {@link MultiMatchingProgress} and the {@link VariableFreeMatchingProgress} both walk the models using these
+ * states, so that they agree on which statements each model is tested with.
+ */
+final class WalkStateTable<M> {
+    private static final Logger LOG = LogManager.getLogger(WalkStateTable.class);
+
+    final WalkState<M> initial;
+    final WalkState<M> abandoned;
+
+    private final Map<Node<StatementMatch<M>>, Integer> indices;
+    private final Map<BitSet, WalkState<M>> states = new HashMap<>();
+    private final Deque<WalkState<M>> unlinked = new ArrayDeque<>();
+
+    WalkStateTable(List<Node<StatementMatch<M>>> statements, List<Node<StatementMatch<M>>> roots,
+            boolean strictHierarchy) {
+        indices = new IdentityHashMap<>(statements.size());
+        for (Node<StatementMatch<M>> st : statements) {
+            indices.put(st, indices.size());
+        }
+
+        initial = intern(roots);
+
+        // the walk doesn't test the children of the models it gave up on or that can't contain any matches, but
+        // the caller might still descend into them
+        abandoned = new WalkState<>(emptyList(), false);
+        abandoned.next = intern(emptyList());
+
+        while (!unlinked.isEmpty()) {
+            WalkState<M> state = unlinked.pop();
+
+            List<Node<StatementMatch<M>>> next = new ArrayList<>();
+            for (Node<StatementMatch<M>> st : state.statements) {
+                next.addAll(st.getChildren());
+            }
+
+            if (!strictHierarchy) {
+                next.addAll(roots);
+            }
+
+            state.next = intern(next);
+            state.descend = !strictHierarchy || !next.isEmpty();
+        }
+
+        computeChildKinds();
+        abandoned.setChildKinds(emptySet());
+
+        LOG.debug("The tree walk has {} states.", states.size());
+    }
+
+    /**
+     * An element of some kind is worth visiting in some state if one of the statements of the state can match it
+     * or if it can contain some element worth visiting in the next state.
+     */
+    private void computeChildKinds() {
+        Map<WalkState<M>, Set<ElementKind>> relevantKinds = new IdentityHashMap<>(states.size());
+        for (WalkState<M> state : states.values()) {
+            relevantKinds.put(state, state.applicableKinds());
+        }
+
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (WalkState<M> state : states.values()) {
+                if (!state.descend) {
+                    continue;
+                }
+
+                Set<ElementKind> relevant = relevantKinds.get(state);
+                Set<ElementKind> relevantInNext = relevantKinds.get(state.next);
+                for (ElementKind kind : ElementKind.values()) {
+                    if (!relevant.contains(kind) && WalkInstruction.canContainAnyOf(kind, relevantInNext)) {
+                        relevant.add(kind);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        for (WalkState<M> state : states.values()) {
+            Set<ElementKind> childKinds = relevantKinds.get(state.next);
+            state.descend = state.descend && !childKinds.isEmpty();
+            state.setChildKinds(childKinds);
+        }
+    }
+
+    private WalkState<M> intern(List<Node<StatementMatch<M>>> statements) {
+        BitSet key = new BitSet(indices.size());
+        List<Node<StatementMatch<M>>> distinct = new ArrayList<>(statements.size());
+        boolean mustHaveChildren = true;
+        for (Node<StatementMatch<M>> st : statements) {
+            int idx = indices.get(st);
+            if (!key.get(idx)) {
+                key.set(idx);
+                distinct.add(st);
+                mustHaveChildren = mustHaveChildren && !st.getChildren().isEmpty();
+            }
+        }
+
+        WalkState<M> state = states.get(key);
+        if (state == null) {
+            state = new WalkState<>(distinct, mustHaveChildren);
+            states.put(key, state);
+            unlinked.push(state);
+        }
+
+        return state;
+    }
+
+    /**
+     * The statements to test the models with at some level of the tree walk. Because the statements to test the
+     * children of a model with only depend on the statements the model was tested with, the states of the walk can be
+     * computed up front from the statement graph and the walk merely moves from a state to its {@link #next} state.
+     */
+    static final class WalkState<M> {
+        final List<Node<StatementMatch<M>>> statements;
+        final boolean mustHaveChildren;
+        @Nullable WalkState<M> next;
+        boolean descend;
+        private final Map<ElementKind, List<WalkStep<M>>> stepsByKind = new EnumMap<>(ElementKind.class);
+        private final WalkInstruction[] instructions = new WalkInstruction[TestResult.values().length];
+
+        WalkState(List<Node<StatementMatch<M>>> statements, boolean mustHaveChildren) {
+            this.statements = statements;
+            this.mustHaveChildren = mustHaveChildren;
+        }
+
+        /**
+         * The walk instruction for a model in this state. The instructions are precomputed for each result by
+         * {@link #setChildKinds(Set)}, so that this doesn't allocate.
+         *
+         * @param result the result of the start of the model
+         * @return the instruction telling whether and into which kinds of the children of the model to descend
+         */
+        WalkInstruction instruction(TestResult result) {
+            return instructions[result.ordinal()];
+        }
+
+        void setChildKinds(Set<ElementKind> childKinds) {
+            for (TestResult r : TestResult.values()) {
+                instructions[r.ordinal()] = descend
+                        ? WalkInstruction.of(r, childKinds)
+                        : WalkInstruction.of(false, r);
+            }
+        }
+
+        /**
+         * @return the kinds of elements at least one of the statements of this state is applicable to
+         */
+        Set<ElementKind> applicableKinds() {
+            Set<ElementKind> ret = EnumSet.noneOf(ElementKind.class);
+            for (ElementKind kind : ElementKind.values()) {
+                for (Node<StatementMatch<M>> st : statements) {
+                    if (st.getObject().isApplicableTo(kind)) {
+                        ret.add(kind);
+                        break;
+                    }
+                }
+            }
+            return ret;
+        }
+
+        /**
+         * The statements a model of the provided kind needs to be tested with. Only the applicable statements are
+         * tested, the rest is only included if it has dependencies or dependents, because that still makes the result
+         * of the model {@link TestResult#DEFERRED}.
+         */
+        List<WalkStep<M>> stepsFor(ElementKind kind) {
+            List<WalkStep<M>> steps = stepsByKind.get(kind);
+            if (steps == null) {
+                steps = new ArrayList<>(statements.size());
+                for (Node<StatementMatch<M>> st : statements) {
+                    boolean applicable = st.getObject().isApplicableTo(kind);
+                    if (applicable || !(st.in().isEmpty() && st.out().isEmpty())) {
+                        steps.add(new WalkStep<>(st, applicable));
+                    }
+                }
+                stepsByKind.put(kind, steps);
+            }
+
+            return steps;
+        }
+    }
+
+    static final class WalkStep<M> {
+        final Node<StatementMatch<M>> statement;
+        final boolean applicable;
+
+        WalkStep(Node<StatementMatch<M>> statement, boolean applicable) {
+            this.statement = statement;
+            this.applicable = applicable;
+        }
+    }
+}
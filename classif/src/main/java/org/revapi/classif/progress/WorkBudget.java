@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Keeps track of the work done during a single round of matching and aborts the evaluation once the limits set in
+ * the {@link StructuralMatcher.Configuration#withWorkBudget(long, int, Duration) configuration} are exceeded or the
+ * matching is {@link CancellationToken cancelled}.
+ *
+ * <p>The checks throw an exception that is caught by the matching progress. The model being evaluated at that time
+ * is then considered {@link org.revapi.classif.TestResult#DEFERRED}.
+ */
+public final class WorkBudget {
+    private final long maxCombinations;
+    private final int maxRecursionDepth;
+    private final long timeoutNanos;
+    private final AtomicLong combinations = new AtomicLong();
+    private volatile long deadline;
+    private volatile boolean started;
+    private volatile @Nullable CancellationToken cancellationToken;
+    private final AtomicReference<CompletionStatus> status = new AtomicReference<>(CompletionStatus.COMPLETE);
+
+    /**
+     * @return a new budget that never runs out
+     */
+    public static WorkBudget unlimited() {
+        return new WorkBudget(Long.MAX_VALUE, Integer.MAX_VALUE, null);
+    }
+
+    WorkBudget(StructuralMatcher.Configuration configuration) {
+        this(configuration.getMaxCombinations(), configuration.getMaxRecursionDepth(), configuration.getTimeout());
+    }
+
+    private WorkBudget(long maxCombinations, int maxRecursionDepth, @Nullable Duration timeout) {
+        this.maxCombinations = maxCombinations;
+        this.maxRecursionDepth = maxRecursionDepth;
+        this.timeoutNanos = timeout == null ? Long.MAX_VALUE : timeout.toNanos();
+    }
+
+    /**
+     * Checks that the matching has not been cancelled and that the deadline has not passed.
+     */
+    public void check() {
+        CancellationToken token = cancellationToken;
+        if (token != null && token.isCancelled()) {
+            throw new WorkBudgetExceededException(CompletionStatus.CANCELLED, "Matching cancelled.");
+        }
+
+        if (timeoutNanos != Long.MAX_VALUE) {
+            if (!started) {
+                start();
+            }
+
+            if (System.nanoTime() - deadline > 0) {
+                throw new WorkBudgetExceededException(CompletionStatus.BUDGET_EXCEEDED,
+                        "The deadline of the matching passed.");
+            }
+        }
+    }
+
+    /**
+     * Checks that the recursion of a test didn't go too deep.
+     *
+     * @param depth the current depth of the recursion
+     */
+    public void checkRecursionDepth(int depth) {
+        if (depth > maxRecursionDepth) {
+            throw new WorkBudgetExceededException(CompletionStatus.BUDGET_EXCEEDED,
+                    "Maximum recursion depth of " + maxRecursionDepth + " exceeded.");
+        }
+
+        check();
+    }
+
+    /**
+     * Counts a new combination of the variable bindings tried and checks that there weren't too many of them.
+     */
+    void countCombination() {
+        if (maxCombinations != Long.MAX_VALUE && combinations.incrementAndGet() > maxCombinations) {
+            throw new WorkBudgetExceededException(CompletionStatus.BUDGET_EXCEEDED,
+                    "Maximum number of " + maxCombinations + " combinations exceeded.");
+        }
+
+        check();
+    }
+
+    void setCancellationToken(@Nullable CancellationToken cancellationToken) {
+        this.cancellationToken = cancellationToken;
+    }
+
+    /**
+     * Records that the budget was exceeded. The first reason "wins".
+     */
+    void exceeded(WorkBudgetExceededException e) {
+        status.compareAndSet(CompletionStatus.COMPLETE, e.getStatus());
+    }
+
+    CompletionStatus getStatus() {
+        return status.get();
+    }
+
+    /**
+     * Starts measuring the time for the deadline, unless already started. The walk doesn't need to call this,
+     * because {@link #check()} starts the clock on its first call.
+     */
+    synchronized void start() {
+        if (!started) {
+            deadline = System.nanoTime() + timeoutNanos;
+            started = true;
+        }
+    }
+
+    /**
+     * Prepares the budget for a new round of matching.
+     */
+    void reset() {
+        combinations.set(0);
+        started = false;
+        status.set(CompletionStatus.COMPLETE);
+    }
+
+    /**
+     * Resets the count of the combinations tried. Each resolution of the deferred models has the full number of
+     * combinations available.
+     */
+    void resetCombinations() {
+        combinations.set(0);
+    }
+}
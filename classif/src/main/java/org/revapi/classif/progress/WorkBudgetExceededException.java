@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+/**
+ * Thrown when the work budget of the matching is exceeded. This never leaves the matching progress - it is used to
+ * unwind the evaluation of a model, the result of which is then considered {@link org.revapi.classif.TestResult#DEFERRED}.
+ */
+final class WorkBudgetExceededException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    private final CompletionStatus status;
+
+    WorkBudgetExceededException(CompletionStatus status, String message) {
+        super(message, null, false, false);
+        this.status = status;
+    }
+
+    CompletionStatus getStatus() {
+        return status;
+    }
+}
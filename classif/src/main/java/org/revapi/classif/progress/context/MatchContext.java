@@ -24,25 +24,41 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.revapi.classif.ModelInspector;
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.StatementMatch;
+import org.revapi.classif.progress.WorkBudget;
 import org.revapi.classif.util.Nullable;
 
 public final class MatchContext<M> {
 
     private final ModelInspector<M> modelInspector;
     private final Map<String, StatementMatch<M>> referencedStatements;
+    private final WorkBudget workBudget;
+    private final @Nullable SharedMatchResults sharedMatchResults;
+    private final @Nullable TransitiveUsesCache transitiveUses;
 
     public MatchContext(ModelInspector<M> modelInspector, Set<String> variables) {
+        this(modelInspector, variables, WorkBudget.unlimited(), null, null);
+    }
+
+    MatchContext(ModelInspector<M> modelInspector, Set<String> variables, WorkBudget workBudget,
+            @Nullable SharedMatchResults sharedMatchResults, @Nullable TransitiveUsesCache transitiveUses) {
         this(requireNonNull(modelInspector),
-                requireNonNull(variables).stream().collect(toMap(identity(), __ -> AlwaysMatch.instance())));
+                requireNonNull(variables).stream().collect(toMap(identity(), __ -> AlwaysMatch.instance())),
+                requireNonNull(workBudget), sharedMatchResults, transitiveUses);
     }
 
-    private MatchContext(ModelInspector<M> modelInspector, Map<String, StatementMatch<M>> referencedStatements) {
+    private MatchContext(ModelInspector<M> modelInspector, Map<String, StatementMatch<M>> referencedStatements,
+            WorkBudget workBudget, @Nullable SharedMatchResults sharedMatchResults,
+            @Nullable TransitiveUsesCache transitiveUses) {
         this.modelInspector = modelInspector;
         this.referencedStatements = referencedStatements;
+        this.workBudget = workBudget;
+        this.sharedMatchResults = sharedMatchResults;
+        this.transitiveUses = transitiveUses;
     }
 
     // null model means that that value is not determined and therefore never passes any test
@@ -50,19 +66,57 @@ public final class MatchContext<M> {
         Map<String, StatementMatch<M>> newVars = new HashMap<>(referencedStatements);
         mapping.forEach((var, requiredModel) -> newVars.put(var, new ExactMatch<>(requiredModel)));
 
-        return new MatchContext<>(modelInspector, newVars);
+        return new MatchContext<>(modelInspector, newVars, workBudget, sharedMatchResults, transitiveUses);
     }
 
     public MatchContext<M> withResults(Map<String, TestResult> mapping) {
         Map<String, StatementMatch<M>> newVars = new HashMap<>(referencedStatements);
         mapping.forEach((var, result) -> newVars.put(var, new DefinedMatch<>(result)));
-        return new MatchContext<>(modelInspector, newVars);
+        return new MatchContext<>(modelInspector, newVars, workBudget, sharedMatchResults, transitiveUses);
+    }
+
+    /**
+     * Similar to {@link #withResults(Map)} but the results of the variables are only computed once some test actually
+     * needs them. This makes it possible for the tests to avoid computing the results of the variables that can no
+     * longer influence the outcome, e.g. the second variable in {@code uses %a | %b} if {@code %a} already passed or
+     * the second variable in {@code extends %a implements %b} if {@code %a} didn't pass.
+     *
+     * <p>Each of the suppliers is called at most once.
+     *
+     * @param mapping the suppliers of the results of the variables
+     * @return a new match context with the variables matching according to the results of the suppliers
+     */
+    public MatchContext<M> withLazyResults(Map<String, Supplier<TestResult>> mapping) {
+        Map<String, StatementMatch<M>> newVars = new HashMap<>(referencedStatements);
+        mapping.forEach((var, result) -> newVars.put(var, new LazyMatch<>(result)));
+        return new MatchContext<>(modelInspector, newVars, workBudget, sharedMatchResults, transitiveUses);
     }
 
     public ModelInspector<M> getModelInspector() {
         return modelInspector;
     }
 
+    /**
+     * The budget of the current round of matching. The tests that can recurse deeply are expected to check it.
+     */
+    public WorkBudget getWorkBudget() {
+        return workBudget;
+    }
+
+    /**
+     * The results of the matches shared by several statements of the recipe, if any.
+     */
+    public @Nullable SharedMatchResults getSharedMatchResults() {
+        return sharedMatchResults;
+    }
+
+    /**
+     * The cache of the transitive uses of the types shared by the whole matching progress, if any.
+     */
+    public @Nullable TransitiveUsesCache getTransitiveUses() {
+        return transitiveUses;
+    }
+
     public StatementMatch<M> getVariableMatcher(String variable) {
         return referencedStatements.getOrDefault(variable, AlwaysMatch.instance());
     }
@@ -130,4 +184,23 @@ public final class MatchContext<M> {
             return result;
         }
     }
+
+    private static final class LazyMatch<M> extends StatementMatch<M> {
+        private @Nullable Supplier<TestResult> supplier;
+        private @Nullable TestResult result;
+
+        LazyMatch(Supplier<TestResult> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        protected TestResult defaultElementTest(M model, MatchContext<M> ctx) {
+            if (result == null) {
+                result = requireNonNull(supplier).get();
+                supplier = null;
+            }
+
+            return result;
+        }
+    }
 }
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress.context;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.type.TypeMirror;
+
+import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Shares the results of the structurally equal matches used by different statements. Each distinct match is only
+ * evaluated once on a model while the model is being {@link #start(Object) started}.
+ *
+ * <p>Only the matches that are tested directly on the elements of the statements and that don't reference any
+ * variables are shared, because only their results are determined solely by the model.
+ */
+public final class SharedMatchResults {
+    // the hash-consed ids of the shared matches, the structurally equal matches have the same id
+    private final Map<Match, Integer> ids;
+    private final @Nullable TestResult[] results;
+    private @Nullable Object currentModel;
+    private int depth;
+    private long hits;
+    private long misses;
+
+    private SharedMatchResults(Map<Match, Integer> ids, int nofDistinctMatches) {
+        this.ids = ids;
+        this.results = new TestResult[nofDistinctMatches];
+    }
+
+    /**
+     * Finds the structurally equal matches of the provided statements.
+     *
+     * @param statements the statements of the recipe
+     * @return the shared results or null if no match is shared by more than one statement
+     */
+    public static @Nullable SharedMatchResults of(Collection<AbstractStatement> statements) {
+        Map<String, Integer> idsByKey = new HashMap<>();
+        Map<Match, Integer> ids = new IdentityHashMap<>();
+        boolean shared = false;
+
+        for (AbstractStatement st : statements) {
+            for (Match m : st.getElementMatches()) {
+                String key = m.getStructuralKey();
+                if (key == null) {
+                    continue;
+                }
+
+                Integer id = idsByKey.get(key);
+                if (id == null) {
+                    id = idsByKey.size();
+                    idsByKey.put(key, id);
+                } else {
+                    shared = true;
+                }
+
+                ids.put(m, id);
+            }
+        }
+
+        return shared ? new SharedMatchResults(ids, idsByKey.size()) : null;
+    }
+
+    /**
+     * Starts sharing the results on the provided model. The results of the previous model are forgotten.
+     *
+     * <p>The calls can be nested, e.g. when several matching progresses share the results. In that case only the
+     * outermost call has any effect and the results are shared until the outermost {@link #finish()}.
+     *
+     * @param model the model to share the results on
+     */
+    public void start(Object model) {
+        if (depth++ == 0) {
+            currentModel = model;
+            Arrays.fill(results, null);
+        }
+    }
+
+    /**
+     * Stops sharing the results. The matches are evaluated directly until the next {@link #start(Object)}.
+     */
+    public void finish() {
+        if (--depth == 0) {
+            currentModel = null;
+        }
+    }
+
+    /**
+     * Tests the match on the model, reusing the result of a structurally equal match if it was already tested on
+     * the model since the last {@link #start(Object)}.
+     */
+    public <M> TestResult test(Match match, M model, Element element, TypeMirror instance, MatchContext<M> ctx) {
+        Integer id = model == currentModel ? ids.get(match) : null;
+        if (id == null) {
+            return match.test(element, instance, ctx);
+        }
+
+        TestResult ret = results[id];
+        if (ret == null) {
+            misses++;
+            ret = match.test(element, instance, ctx);
+            results[id] = ret;
+        } else {
+            hits++;
+        }
+
+        return ret;
+    }
+
+    /**
+     * @return the number of distinct matches among the shared ones
+     */
+    public int getDistinctMatchCount() {
+        return results.length;
+    }
+
+    /**
+     * @return the number of tests answered from the shared results
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of tests that needed to be evaluated
+     */
+    public long getMisses() {
+        return misses;
+    }
+}
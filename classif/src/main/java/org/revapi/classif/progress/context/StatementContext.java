@@ -18,9 +18,11 @@ package org.revapi.classif.progress.context;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Supplier;
 
 import org.revapi.classif.ModelInspector;
 import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.WorkBudget;
 import org.revapi.classif.util.Nullable;
 
 public final class StatementContext<M> {
@@ -39,7 +41,14 @@ public final class StatementContext<M> {
 
     public StatementContext(ModelInspector<M> modelInspector, boolean isReturn, @Nullable String definedVariable,
             Set<String> variables) {
-        this(new MatchContext<>(modelInspector, variables), definedVariable, isReturn);
+        this(modelInspector, isReturn, definedVariable, variables, WorkBudget.unlimited(), null, null);
+    }
+
+    public StatementContext(ModelInspector<M> modelInspector, boolean isReturn, @Nullable String definedVariable,
+            Set<String> variables, WorkBudget workBudget, @Nullable SharedMatchResults sharedMatchResults,
+            @Nullable TransitiveUsesCache transitiveUses) {
+        this(new MatchContext<>(modelInspector, variables, workBudget, sharedMatchResults, transitiveUses),
+                definedVariable, isReturn);
     }
 
     private StatementContext(MatchContext<M> ctx, @Nullable String definedVariable, boolean isReturn) {
@@ -56,6 +65,10 @@ public final class StatementContext<M> {
         return new StatementContext<>(matchContext.withResults(mapping), definedVariable, isReturn);
     }
 
+    public StatementContext<M> withLazyResults(Map<String, Supplier<TestResult>> mapping) {
+        return new StatementContext<>(matchContext.withLazyResults(mapping), definedVariable, isReturn);
+    }
+
     public boolean isReturn() {
         return isReturn;
     }
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress.context;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.lang.model.type.DeclaredType;
+
+import org.revapi.classif.util.CacheStatistics;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * A bounded cache of the transitive closures of the types used by other types. It is shared by all the statements
+ * of a matching progress so that the transitive uses of a type are only computed once, no matter how many models
+ * use it.
+ *
+ * <p>The keys identify the types. Only the closures that are complete (i.e. the model inspector knew all the uses of
+ * all the types involved) are supposed to be cached. The least recently used closures are evicted once the cache grows
+ * over its maximum size.
+ *
+ * <p>The size of the cache is the number of the keys plus the number of the types in the distinct closures. The closures
+ * of the types using each other transitively contain each other, so their total size can grow quadratically with
+ * the number of the cached types. Bounding the number of the types in them rather than just the number of the keys
+ * keeps the memory used by the cache bounded, too. A closure cached under several keys (like the shared closure of
+ * the types in a cycle of uses) is counted only once.
+ *
+ * <p>The cache is thread-safe, because the deferred models may be resolved in parallel.
+ */
+public final class TransitiveUsesCache {
+    /**
+     * The maximum size of the cache used by the matching progresses. That is about a million references to the types,
+     * i.e. several megabytes at most.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1 << 20;
+
+    private final int maximumSize;
+    private final Map<Object, List<DeclaredType>> closures = new LinkedHashMap<>(16, 0.75f, true);
+    // the number of the keys each of the distinct closures is cached under
+    private final Map<List<DeclaredType>, Integer> references = new IdentityHashMap<>();
+    private long size;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maximumSize the maximum number of the keys and the types in the distinct closures kept in the cache
+     */
+    public TransitiveUsesCache(int maximumSize) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("The maximum size of the cache must be positive.");
+        }
+
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @param key the key of the type
+     * @return the transitive closure of the types used by the type or null if not cached
+     */
+    public @Nullable List<DeclaredType> get(Object key) {
+        List<DeclaredType> ret;
+        synchronized (closures) {
+            ret = closures.get(key);
+        }
+
+        (ret == null ? misses : hits).incrementAndGet();
+
+        return ret;
+    }
+
+    /**
+     * Caches the transitive closure of the types used by the type with the provided key. The types in a cycle of uses
+     * have the same closure, so the same list is usually put under several keys.
+     *
+     * <p>A closure larger than the maximum size of the cache is not cached at all.
+     *
+     * @param key the key of the type
+     * @param closure the complete transitive closure of the types used by the type
+     */
+    public void put(Object key, List<DeclaredType> closure) {
+        synchronized (closures) {
+            if (closure.size() + 1 > maximumSize && !references.containsKey(closure)) {
+                // it would only evict everything else and then itself
+                return;
+            }
+
+            List<DeclaredType> previous = closures.put(key, closure);
+            if (previous != null) {
+                release(previous);
+                size--;
+            }
+            size++;
+            retain(closure);
+
+            Iterator<List<DeclaredType>> eldest = closures.values().iterator();
+            while (size > maximumSize) {
+                release(eldest.next());
+                eldest.remove();
+                size--;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private void retain(List<DeclaredType> closure) {
+        if (references.merge(closure, 1, Integer::sum) == 1) {
+            size += closure.size();
+        }
+    }
+
+    private void release(List<DeclaredType> closure) {
+        if (references.merge(closure, -1, Integer::sum) == 0) {
+            references.remove(closure);
+            size -= closure.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of the keys and the types in the distinct closures kept in the cache
+     */
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * @return the number of the keys and the types in the distinct closures currently cached
+     */
+    public int size() {
+        synchronized (closures) {
+            // never more than the maximum size outside of put()
+            return (int) size;
+        }
+    }
+
+    /**
+     * Removes all the closures from the cache and resets the statistics.
+     */
+    public void clear() {
+        synchronized (closures) {
+            closures.clear();
+            references.clear();
+            size = 0;
+        }
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * @return the number of closures evicted from the cache because it was full
+     */
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * @return the statistics of the lookups in the cache
+     */
+    public CacheStatistics getStatistics() {
+        return new CacheStatistics(hits.get(), misses.get());
+    }
+
+    @Override
+    public String toString() {
+        return "TransitiveUsesCache{size=" + size() + ", maximumSize=" + maximumSize + ", evictions=" + evictions
+                + ", " + getStatistics() + "}";
+    }
+}
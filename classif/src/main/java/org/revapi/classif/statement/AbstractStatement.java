@@ -16,16 +16,26 @@
  */
 package org.revapi.classif.statement;
 
+import java.util.ArrayList;
 import java.util.List;
 
+import org.revapi.classif.match.Match;
 import org.revapi.classif.match.declaration.AnnotationsMatch;
 import org.revapi.classif.match.declaration.ModifiersMatch;
+import org.revapi.classif.progress.Anchor;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.progress.context.StatementContext;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 import org.revapi.classif.util.TreeNode;
 
 public abstract class AbstractStatement extends TreeNode<AbstractStatement> {
+    private static final int TAG_TYPE_DEFINITION = 0;
+    private static final int TAG_METHOD = 1;
+    private static final int TAG_FIELD = 2;
+    private static final int TAG_GENERIC = 3;
+
     protected final AnnotationsMatch annotations;
     protected final ModifiersMatch modifiers;
     protected final boolean negation;
@@ -55,14 +65,115 @@ public abstract class AbstractStatement extends TreeNode<AbstractStatement> {
         return isMatch;
     }
 
+    /**
+     * The matches that are tested directly on the elements matched by this statement (as opposed to e.g. their return
+     * types or enclosing types). The statement tests these using {@link Match#test(Object,
+     * org.revapi.classif.progress.context.MatchContext)} so that their results can be shared with the other statements
+     * using structurally equal matches.
+     *
+     * @return the list of the matches tested on the elements
+     */
+    public List<Match> getElementMatches() {
+        List<Match> ret = new ArrayList<>(4);
+        ret.add(annotations);
+        ret.add(modifiers);
+        return ret;
+    }
+
     public abstract <M> StatementMatch<M> createMatch();
 
+    /**
+     * Writes this statement including all its child statements.
+     *
+     * @param out the writer to write to
+     */
+    public final void writeTo(BinaryWriter out) {
+        if (this instanceof TypeDefinitionStatement) {
+            out.writeByte(TAG_TYPE_DEFINITION);
+        } else if (this instanceof MethodStatement) {
+            out.writeByte(TAG_METHOD);
+        } else if (this instanceof FieldStatement) {
+            out.writeByte(TAG_FIELD);
+        } else {
+            out.writeByte(TAG_GENERIC);
+        }
+
+        out.writeString(definedVariable);
+        out.writeStrings(referencedVariables);
+        out.writeBoolean(isMatch);
+        out.writeBoolean(negation);
+        out.writeNullable(annotations, AnnotationsMatch::writeTo);
+        out.writeNullable(modifiers, ModifiersMatch::writeTo);
+
+        writeFields(out);
+
+        out.writeList(getChildren(), AbstractStatement::writeTo);
+    }
+
+    /**
+     * Reads a statement including all its child statements.
+     *
+     * @param in the reader to read from
+     * @return the statement
+     */
+    public static AbstractStatement readFrom(BinaryReader in) {
+        int tag = in.readByte();
+
+        String definedVariable = in.readString();
+        List<String> referencedVariables = in.readStrings();
+        boolean isMatch = in.readBoolean();
+        boolean negation = in.readBoolean();
+        AnnotationsMatch annotations = in.readNullable(AnnotationsMatch::readFrom);
+        ModifiersMatch modifiers = in.readNullable(ModifiersMatch::readFrom);
+
+        AbstractStatement ret;
+        switch (tag) {
+        case TAG_TYPE_DEFINITION:
+            ret = TypeDefinitionStatement.readFields(in, definedVariable, referencedVariables, annotations, modifiers,
+                    negation, isMatch);
+            break;
+        case TAG_METHOD:
+            ret = MethodStatement.readFields(in, definedVariable, referencedVariables, annotations, modifiers,
+                    negation, isMatch);
+            break;
+        case TAG_FIELD:
+            ret = FieldStatement.readFields(in, definedVariable, referencedVariables, annotations, modifiers,
+                    negation, isMatch);
+            break;
+        case TAG_GENERIC:
+            ret = GenericStatement.readFields(in, definedVariable, referencedVariables, annotations, modifiers,
+                    negation, isMatch);
+            break;
+        default:
+            throw in.malformed("unknown statement " + tag);
+        }
+
+        ret.getChildren().addAll(in.readList(AbstractStatement::readFrom));
+
+        return ret;
+    }
+
+    /**
+     * Writes the fields specific to the type of the statement. These are read back by the static {@code readFields}
+     * method of the statement class.
+     */
+    abstract void writeFields(BinaryWriter out);
+
     public final <M> StatementMatch<M> createMatch(StatementContext<M> ctx) {
         StatementMatch<M> m = createMatch();
         m.setContext(ctx);
         return m;
     }
 
+    /**
+     * @return the anchor of the elements annotated with the annotation required by this statement or null if the
+     * statement doesn't require any exact annotation
+     */
+    protected @Nullable Anchor annotationAnchor() {
+        String type = annotations == null || negation ? null : annotations.getRequiredAnnotationType();
+        return type == null ? null : Anchor.annotationType(type);
+    }
+
     protected String toStringPrefix() {
         return annotations.toString() + (annotations.isEmpty() ? "" : " ")
                 + modifiers.toString() + (modifiers.isEmpty() ? "" : " ");
@@ -0,0 +1,247 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.statement;
+
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.TestResult.PASSED;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+
+import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.util.Nullable;
+
+/**
+ * Decides the order in which the sub-tests of a statement are evaluated. A statement only passes if all its sub-tests
+ * pass, so the order doesn't change the result, but it does change how much work is needed to find out that an element
+ * doesn't match. The sub-tests are ordered by their expected cost divided by the probability of them failing, so that
+ * the cheap and selective tests run first and the expensive tests (like the walks through the type hierarchy) run only
+ * on the elements that passed everything else.
+ *
+ * <p>The initial order is based on the static estimates of the {@link Cost}s of the sub-tests. Every
+ * {@value #SAMPLE_INTERVAL}th evaluation is sampled - the time taken and the result of each evaluated sub-test is
+ * recorded - and the order is recomputed from the observed costs and pass rates after every
+ * {@value #REPLAN_INTERVAL} samples.
+ *
+ * <p>The plan is shared by all the matches created from a statement, possibly from different threads.
+ */
+final class EvaluationPlan {
+    static final int SAMPLE_INTERVAL = 16;
+    static final int REPLAN_INTERVAL = 64;
+
+    // the weight of the prior pass rate in the number of observed evaluations
+    private static final double PRIOR_WEIGHT = 2;
+    private static final double MIN_FAIL_RATE = 0.001;
+
+    private volatile @Nullable Statistics statistics;
+
+    /**
+     * @param <M> the type of the model elements
+     * @return a new evaluation to which the sub-tests should be added, always in the same order for this plan
+     */
+    <M> Evaluation<M> evaluation() {
+        return new Evaluation<>(this);
+    }
+
+    /**
+     * @return the current order of the sub-tests or null if the plan hasn't been used yet
+     */
+    int @Nullable [] getOrder() {
+        Statistics s = statistics;
+        return s == null ? null : s.order.clone();
+    }
+
+    private Statistics statistics(List<Cost> costs) {
+        Statistics ret = statistics;
+        if (ret == null) {
+            synchronized (this) {
+                ret = statistics;
+                if (ret == null) {
+                    ret = new Statistics(costs);
+                    statistics = ret;
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * The static estimates of the cost of the sub-tests in arbitrary units and the prior probabilities of them passing.
+     */
+    enum Cost {
+        /**
+         * Matching a simple or qualified name.
+         */
+        NAME(1, 0.1),
+        TYPE_KIND(1, 0.5),
+        MODIFIERS(2, 0.5),
+        ANNOTATIONS(4, 0.5),
+        /**
+         * Matching a single type reference, like a return type or a declaring type.
+         */
+        TYPE_REFERENCE(6, 0.5),
+        TYPE_PARAMETERS(8, 0.5),
+        METHOD_PARAMETERS(8, 0.5),
+        /**
+         * The constraints like {@code uses}, {@code implements} or {@code extends} that may need to walk the type
+         * hierarchy or the whole signatures of the elements.
+         */
+        CONSTRAINTS(40, 0.5);
+
+        final double units;
+        final double passRate;
+
+        Cost(double units, double passRate) {
+            this.units = units;
+            this.passRate = passRate;
+        }
+    }
+
+    @FunctionalInterface
+    interface SubTest<M> {
+        TestResult test(M model, MatchContext<M> ctx);
+    }
+
+    static final class Evaluation<M> {
+        private final EvaluationPlan plan;
+        private final List<Cost> costs = new ArrayList<>(8);
+        private final List<SubTest<M>> tests = new ArrayList<>(8);
+
+        private Evaluation(EvaluationPlan plan) {
+            this.plan = plan;
+        }
+
+        Evaluation<M> add(Cost cost, SubTest<M> test) {
+            costs.add(cost);
+            tests.add(test);
+            return this;
+        }
+
+        /**
+         * Evaluates the sub-tests in the order of the plan.
+         *
+         * @return the conjunction of the results of the sub-tests
+         */
+        TestResult test(M model, MatchContext<M> ctx) {
+            Statistics stats = plan.statistics(costs);
+            int[] order = stats.order;
+            boolean sample = stats.shouldSample();
+
+            TestResult ret = PASSED;
+            for (int i : order) {
+                TestResult res;
+                if (sample) {
+                    long start = System.nanoTime();
+                    res = tests.get(i).test(model, ctx);
+                    stats.record(i, res, System.nanoTime() - start);
+                } else {
+                    res = tests.get(i).test(model, ctx);
+                }
+
+                ret = ret.and(res);
+                if (ret == NOT_PASSED) {
+                    break;
+                }
+            }
+
+            if (sample) {
+                stats.sampled();
+            }
+
+            return ret;
+        }
+    }
+
+    private static final class Statistics {
+        private final Cost[] costs;
+        private final AtomicLongArray runs;
+        private final AtomicLongArray failures;
+        private final AtomicLongArray nanos;
+        private final AtomicInteger samples = new AtomicInteger();
+        // only approximately counted, races just shift the sampling a little
+        private int ticks;
+        private volatile int[] order;
+
+        Statistics(List<Cost> costs) {
+            this.costs = costs.toArray(new Cost[0]);
+            this.runs = new AtomicLongArray(this.costs.length);
+            this.failures = new AtomicLongArray(this.costs.length);
+            this.nanos = new AtomicLongArray(this.costs.length);
+            this.order = computeOrder();
+        }
+
+        boolean shouldSample() {
+            return ++ticks % SAMPLE_INTERVAL == 0;
+        }
+
+        void record(int test, TestResult result, long time) {
+            runs.incrementAndGet(test);
+            nanos.addAndGet(test, time);
+            if (result == NOT_PASSED) {
+                failures.incrementAndGet(test);
+            }
+        }
+
+        void sampled() {
+            if (samples.incrementAndGet() % REPLAN_INTERVAL == 0) {
+                order = computeOrder();
+            }
+        }
+
+        private int[] computeOrder() {
+            int len = costs.length;
+
+            // the ratio between the observed time and the static estimates, used to estimate the time of the
+            // sub-tests that haven't been observed yet
+            double observedNanos = 0;
+            double observedUnits = 0;
+            for (int i = 0; i < len; ++i) {
+                long r = runs.get(i);
+                if (r > 0) {
+                    observedNanos += nanos.get(i);
+                    observedUnits += r * costs[i].units;
+                }
+            }
+            double nanosPerUnit = observedUnits == 0 ? 1 : observedNanos / observedUnits;
+
+            double[] rank = new double[len];
+            for (int i = 0; i < len; ++i) {
+                long r = runs.get(i);
+                double cost = r == 0 ? costs[i].units * nanosPerUnit : (double) nanos.get(i) / r;
+                double passRate = (r - failures.get(i) + costs[i].passRate * PRIOR_WEIGHT) / (r + PRIOR_WEIGHT);
+                rank[i] = cost / Math.max(1 - passRate, MIN_FAIL_RATE);
+            }
+
+            return IntStream.range(0, len).boxed()
+                    .sorted(Comparator.comparingDouble(i -> rank[i]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }
+
+        @Override
+        public String toString() {
+            return "Statistics{order=" + Arrays.toString(order) + ", runs=" + runs + ", failures=" + failures
+                    + ", nanos=" + nanos + '}';
+        }
+    }
+}
@@ -18,17 +18,21 @@ package org.revapi.classif.statement;
 
 import java.util.List;
 
-import javax.lang.model.element.Element;
-import javax.lang.model.type.TypeMirror;
+import javax.lang.model.element.ElementKind;
 
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.match.NameMatch;
 import org.revapi.classif.match.declaration.AnnotationsMatch;
 import org.revapi.classif.match.declaration.ModifiersMatch;
 import org.revapi.classif.match.declaration.UsesMatch;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.progress.Anchor;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.statement.EvaluationPlan.Cost;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class FieldStatement extends AbstractStatement {
@@ -36,6 +40,7 @@ public final class FieldStatement extends AbstractStatement {
     private final @Nullable TypeReferenceMatch fieldType;
     private final @Nullable TypeReferenceMatch declaringType;
     private final @Nullable UsesMatch fieldConstraints;
+    private final EvaluationPlan plan = new EvaluationPlan();
 
     public FieldStatement(@Nullable String definedVariable,
             List<String> referencedVariables, AnnotationsMatch annotations,
@@ -49,28 +54,74 @@ public final class FieldStatement extends AbstractStatement {
         this.fieldConstraints = fieldConstraints;
     }
 
+    @Override
+    public List<Match> getElementMatches() {
+        List<Match> ret = super.getElementMatches();
+        if (fieldConstraints != null) {
+            ret.add(fieldConstraints);
+        }
+        return ret;
+    }
+
+    @Override
+    void writeFields(BinaryWriter out) {
+        name.writeTo(out);
+        out.writeNullable(fieldType, TypeReferenceMatch::writeTo);
+        out.writeNullable(declaringType, TypeReferenceMatch::writeTo);
+        out.writeNullable(fieldConstraints, UsesMatch::writeTo);
+    }
+
+    static FieldStatement readFields(BinaryReader in,
+            @Nullable String definedVariable, List<String> referencedVariables, AnnotationsMatch annotations,
+            ModifiersMatch modifiers, boolean negation, boolean isMatch) {
+        NameMatch name = NameMatch.readFrom(in);
+        TypeReferenceMatch fieldType = in.readNullable(TypeReferenceMatch::readFrom);
+        TypeReferenceMatch declaringType = in.readNullable(TypeReferenceMatch::readFrom);
+        UsesMatch fieldConstraints = in.readNullable(UsesMatch::readFrom);
+        return new FieldStatement(definedVariable, referencedVariables, annotations, modifiers, isMatch, negation,
+                name, fieldType, declaringType, fieldConstraints);
+    }
+
+    private <M> EvaluationPlan.Evaluation<M> createEvaluation() {
+        EvaluationPlan.Evaluation<M> ret = plan.<M>evaluation().add(Cost.NAME, (m, ctx) -> TestResult.fromBoolean(
+                name.matches(ctx.getModelInspector().toElement(m).getSimpleName().toString())));
+
+        if (fieldType != null) {
+            ret.add(Cost.TYPE_REFERENCE,
+                    (m, ctx) -> fieldType.testInstance(ctx.getModelInspector().toMirror(m), ctx));
+        }
+
+        if (declaringType != null) {
+            ret.add(Cost.TYPE_REFERENCE, (m, ctx) -> declaringType.testInstance(
+                    ctx.getModelInspector().toElement(m).getEnclosingElement().asType(), ctx));
+        }
+
+        if (fieldConstraints != null) {
+            ret.add(Cost.CONSTRAINTS, fieldConstraints::test);
+        }
+
+        return ret;
+    }
+
     @Override
     public <M> StatementMatch<M> createMatch() {
         return new StatementMatch<M>() {
             @Override
-            public TestResult testVariable(M var, MatchContext<M> ctx) {
-                Element element = ctx.getModelInspector().toElement(var);
-                TypeMirror type = ctx.getModelInspector().toMirror(var);
-
-                TestResult res = TestResult.fromBoolean(name.matches(element.getSimpleName().toString()));
-
-                if (fieldType != null) {
-                    res = res.and(fieldType.testInstance(type, ctx));
-                }
+            public boolean isApplicableTo(ElementKind kind) {
+                return isVariableKind(kind);
+            }
 
-                if (declaringType != null) {
-                    res = res.and(declaringType.testInstance(element.getEnclosingElement().asType(), ctx));
-                }
+            @Override
+            public @Nullable Anchor getAnchor() {
+                String n = negation ? null : name.getExactMatch();
+                return n == null ? null : Anchor.variableName(n);
+            }
 
-                if (fieldConstraints != null) {
-                    res = res.and(fieldConstraints.testDeclaration(element, type, ctx));
-                }
+            private final EvaluationPlan.Evaluation<M> evaluation = createEvaluation();
 
+            @Override
+            public TestResult testVariable(M var, MatchContext<M> ctx) {
+                TestResult res = evaluation.test(var, ctx);
                 return negation ? res.negate() : res;
             }
 
@@ -18,19 +18,22 @@ package org.revapi.classif.statement;
 
 import java.util.List;
 
-import javax.lang.model.element.Element;
-import javax.lang.model.type.TypeMirror;
-
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.match.declaration.AnnotationsMatch;
 import org.revapi.classif.match.declaration.ModifiersMatch;
 import org.revapi.classif.match.declaration.UsesMatch;
+import org.revapi.classif.progress.Anchor;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.statement.EvaluationPlan.Cost;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class GenericStatement extends AbstractStatement {
     private final @Nullable UsesMatch usesMatch;
+    private final EvaluationPlan plan = new EvaluationPlan();
 
     public GenericStatement(@Nullable String definedVariable, List<String> referencedVariables,
             AnnotationsMatch annotations, ModifiersMatch modifiers,
@@ -39,19 +42,52 @@ public final class GenericStatement extends AbstractStatement {
         this.usesMatch = usesMatch;
     }
 
+    @Override
+    public List<Match> getElementMatches() {
+        List<Match> ret = super.getElementMatches();
+        if (usesMatch != null) {
+            ret.add(usesMatch);
+        }
+        return ret;
+    }
+
+    @Override
+    void writeFields(BinaryWriter out) {
+        out.writeNullable(usesMatch, UsesMatch::writeTo);
+    }
+
+    static GenericStatement readFields(BinaryReader in,
+            @Nullable String definedVariable, List<String> referencedVariables, AnnotationsMatch annotations,
+            ModifiersMatch modifiers, boolean negation, boolean isMatch) {
+        return new GenericStatement(definedVariable, referencedVariables, annotations, modifiers, isMatch, negation,
+                in.readNullable(UsesMatch::readFrom));
+    }
+
+    private <M> EvaluationPlan.Evaluation<M> createEvaluation() {
+        EvaluationPlan.Evaluation<M> ret = plan.<M>evaluation()
+                .add(Cost.MODIFIERS, modifiers::test)
+                .add(Cost.ANNOTATIONS, annotations::test);
+
+        if (usesMatch != null) {
+            ret.add(Cost.CONSTRAINTS, usesMatch::test);
+        }
+
+        return ret;
+    }
+
     @Override
     public <M> StatementMatch<M> createMatch() {
         return new StatementMatch<M>() {
             @Override
-            protected TestResult defaultElementTest(M model, MatchContext<M> ctx) {
-                Element el = ctx.getModelInspector().toElement(model);
-                TypeMirror inst = ctx.getModelInspector().toMirror(model);
+            public @Nullable Anchor getAnchor() {
+                return annotationAnchor();
+            }
 
-                TestResult ret = modifiers.test(el, inst, ctx).and(annotations.test(el, inst, ctx));
-                if (usesMatch != null) {
-                    ret = ret.and(usesMatch.test(el, inst, ctx));
-                }
+            private final EvaluationPlan.Evaluation<M> evaluation = createEvaluation();
 
+            @Override
+            protected TestResult defaultElementTest(M model, MatchContext<M> ctx) {
+                TestResult ret = evaluation.test(model, ctx);
                 return negation ? ret.negate() : ret;
             }
 
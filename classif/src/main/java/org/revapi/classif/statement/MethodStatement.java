@@ -19,12 +19,14 @@ package org.revapi.classif.statement;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.ExecutableElement;
-import javax.lang.model.type.TypeMirror;
 
 import org.revapi.classif.TestResult;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.match.NameMatch;
+import org.revapi.classif.progress.Anchor;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.match.declaration.AnnotationsMatch;
 import org.revapi.classif.match.declaration.MethodConstraintsMatch;
@@ -32,6 +34,9 @@ import org.revapi.classif.match.declaration.MethodParameterMatch;
 import org.revapi.classif.match.declaration.ModifiersMatch;
 import org.revapi.classif.match.instance.TypeParametersMatch;
 import org.revapi.classif.match.instance.TypeReferenceMatch;
+import org.revapi.classif.statement.EvaluationPlan.Cost;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Glob;
 import org.revapi.classif.util.Nullable;
 
@@ -42,6 +47,7 @@ public final class MethodStatement extends AbstractStatement {
     private final @Nullable TypeParametersMatch typeParameters;
     private final @Nullable MethodConstraintsMatch constraints;
     private final Glob<MethodParameterMatch> parameters;
+    private final EvaluationPlan plan = new EvaluationPlan();
 
     public MethodStatement(@Nullable String definedVariable,
             List<String> referencedVariables, AnnotationsMatch annotations,
@@ -60,43 +66,100 @@ public final class MethodStatement extends AbstractStatement {
     }
 
     @Override
-    public <M> StatementMatch<M> createMatch() {
+    public List<Match> getElementMatches() {
+        List<Match> ret = super.getElementMatches();
+        if (typeParameters != null) {
+            ret.add(typeParameters);
+        }
+        if (constraints != null) {
+            ret.add(constraints);
+        }
+        return ret;
+    }
 
-        return new StatementMatch<M>() {
-            @Override
-            public TestResult testMethod(M method, MatchContext<M> ctx) {
-                ExecutableElement element = (ExecutableElement) ctx.getModelInspector().toElement(method);
-                TypeMirror type = ctx.getModelInspector().toMirror(method);
+    @Override
+    void writeFields(BinaryWriter out) {
+        name.writeTo(out);
+        out.writeNullable(returnType, TypeReferenceMatch::writeTo);
+        out.writeNullable(declaringType, TypeReferenceMatch::writeTo);
+        out.writeNullable(typeParameters, TypeParametersMatch::writeTo);
+        out.writeList(parameters.getMatches(), MethodParameterMatch::writeTo);
+        out.writeNullable(constraints, MethodConstraintsMatch::writeTo);
+    }
 
-                TestResult res = TestResult.fromBoolean(name.matches(element.getSimpleName().toString()));
+    static MethodStatement readFields(BinaryReader in,
+            @Nullable String definedVariable, List<String> referencedVariables, AnnotationsMatch annotations,
+            ModifiersMatch modifiers, boolean negation, boolean isMatch) {
+        NameMatch name = NameMatch.readFrom(in);
+        TypeReferenceMatch returnType = in.readNullable(TypeReferenceMatch::readFrom);
+        TypeReferenceMatch declaringType = in.readNullable(TypeReferenceMatch::readFrom);
+        TypeParametersMatch typeParameters = in.readNullable(TypeParametersMatch::readFrom);
+        List<MethodParameterMatch> parameters = in.readList(MethodParameterMatch::readFrom);
+        MethodConstraintsMatch constraints = in.readNullable(MethodConstraintsMatch::readFrom);
+        return new MethodStatement(definedVariable, referencedVariables, annotations, modifiers, isMatch, name,
+                returnType, declaringType, typeParameters, parameters, constraints, negation);
+    }
 
-                if (modifiers != null) {
-                    res = res.and(() -> modifiers.testDeclaration(element, type, ctx));
-                }
+    private <M> EvaluationPlan.Evaluation<M> createEvaluation() {
+        EvaluationPlan.Evaluation<M> ret = plan.<M>evaluation()
+                .add(Cost.NAME,
+                        (m, ctx) -> TestResult.fromBoolean(name.matches(element(m, ctx).getSimpleName().toString())));
 
-                if (annotations != null) {
-                    res = res.and(() -> annotations.testDeclaration(element, type, ctx));
-                }
+        if (modifiers != null) {
+            ret.add(Cost.MODIFIERS, modifiers::test);
+        }
 
-                if (returnType != null) {
-                    res = res.and(() -> returnType.testInstance(element.getReturnType(), ctx));
-                }
+        if (annotations != null) {
+            ret.add(Cost.ANNOTATIONS, annotations::test);
+        }
 
-                res = res.and(() -> parameters.test((match, p) -> match.testDeclaration(p, p.asType(), ctx),
-                        element.getParameters()));
+        if (returnType != null) {
+            ret.add(Cost.TYPE_REFERENCE, (m, ctx) -> returnType.testInstance(element(m, ctx).getReturnType(), ctx));
+        }
 
-                if (declaringType != null) {
-                    res = res.and(() -> declaringType.testInstance(element.getEnclosingElement().asType(), ctx));
-                }
+        ret.add(Cost.METHOD_PARAMETERS, (m, ctx) -> parameters.test(
+                (match, p) -> match.testDeclaration(p, p.asType(), ctx), element(m, ctx).getParameters()));
 
-                if (typeParameters != null) {
-                    res = res.and(() -> typeParameters.testInstance(type, ctx));
-                }
+        if (declaringType != null) {
+            ret.add(Cost.TYPE_REFERENCE,
+                    (m, ctx) -> declaringType.testInstance(element(m, ctx).getEnclosingElement().asType(), ctx));
+        }
 
-                if (constraints != null) {
-                    res = res.and(() -> constraints.testDeclaration(element, type, ctx));
-                }
+        if (typeParameters != null) {
+            ret.add(Cost.TYPE_PARAMETERS, typeParameters::test);
+        }
 
+        if (constraints != null) {
+            ret.add(Cost.CONSTRAINTS, constraints::test);
+        }
+
+        return ret;
+    }
+
+    private static <M> ExecutableElement element(M method, MatchContext<M> ctx) {
+        return (ExecutableElement) ctx.getModelInspector().toElement(method);
+    }
+
+    @Override
+    public <M> StatementMatch<M> createMatch() {
+
+        return new StatementMatch<M>() {
+            @Override
+            public boolean isApplicableTo(ElementKind kind) {
+                return isExecutableKind(kind);
+            }
+
+            @Override
+            public @Nullable Anchor getAnchor() {
+                String n = negation ? null : name.getExactMatch();
+                return n == null ? annotationAnchor() : Anchor.methodName(n);
+            }
+
+            private final EvaluationPlan.Evaluation<M> evaluation = createEvaluation();
+
+            @Override
+            public TestResult testMethod(M method, MatchContext<M> ctx) {
+                TestResult res = evaluation.test(method, ctx);
                 return negation ? res.negate() : res;
             }
 
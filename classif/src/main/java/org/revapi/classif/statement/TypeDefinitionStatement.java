@@ -18,8 +18,12 @@ package org.revapi.classif.statement;
 
 import java.util.List;
 
+import javax.lang.model.element.ElementKind;
+
 import org.revapi.classif.TestResult;
+import org.revapi.classif.match.Match;
 import org.revapi.classif.progress.context.MatchContext;
+import org.revapi.classif.progress.Anchor;
 import org.revapi.classif.progress.StatementMatch;
 import org.revapi.classif.match.declaration.AnnotationsMatch;
 import org.revapi.classif.match.declaration.ModifiersMatch;
@@ -27,6 +31,9 @@ import org.revapi.classif.match.declaration.TypeConstraintsMatch;
 import org.revapi.classif.match.declaration.TypeKindMatch;
 import org.revapi.classif.match.instance.FqnMatch;
 import org.revapi.classif.match.instance.TypeParametersMatch;
+import org.revapi.classif.statement.EvaluationPlan.Cost;
+import org.revapi.classif.util.BinaryReader;
+import org.revapi.classif.util.BinaryWriter;
 import org.revapi.classif.util.Nullable;
 
 public final class TypeDefinitionStatement extends AbstractStatement {
@@ -34,6 +41,7 @@ public final class TypeDefinitionStatement extends AbstractStatement {
     private final FqnMatch fqn;
     private final @Nullable TypeParametersMatch typeParameters;
     private final @Nullable TypeConstraintsMatch constraints;
+    private final EvaluationPlan plan = new EvaluationPlan();
 
     public TypeDefinitionStatement(@Nullable String definedVariable, List<String> referencedVariables,
             AnnotationsMatch annotations,
@@ -51,25 +59,82 @@ public final class TypeDefinitionStatement extends AbstractStatement {
         this.constraints = constraints;
     }
 
+    @Override
+    public List<Match> getElementMatches() {
+        List<Match> ret = super.getElementMatches();
+        ret.add(typeKind);
+        ret.add(fqn);
+        if (typeParameters != null) {
+            ret.add(typeParameters);
+        }
+        if (constraints != null) {
+            ret.add(constraints);
+        }
+        return ret;
+    }
+
+    @Override
+    void writeFields(BinaryWriter out) {
+        typeKind.writeTo(out);
+        fqn.writeTo(out);
+        out.writeNullable(typeParameters, TypeParametersMatch::writeTo);
+        out.writeNullable(constraints, TypeConstraintsMatch::writeTo);
+    }
+
+    static TypeDefinitionStatement readFields(BinaryReader in,
+            @Nullable String definedVariable, List<String> referencedVariables, AnnotationsMatch annotations,
+            ModifiersMatch modifiers, boolean negation, boolean isMatch) {
+        TypeKindMatch typeKind = TypeKindMatch.readFrom(in);
+        FqnMatch fqn = FqnMatch.readFrom(in);
+        TypeParametersMatch typeParameters = in.readNullable(TypeParametersMatch::readFrom);
+        TypeConstraintsMatch constraints = in.readNullable(TypeConstraintsMatch::readFrom);
+        return new TypeDefinitionStatement(definedVariable, referencedVariables, annotations, modifiers, typeKind, fqn,
+                typeParameters, constraints, negation, isMatch);
+    }
+
+    private <M> EvaluationPlan.Evaluation<M> createEvaluation() {
+        EvaluationPlan.Evaluation<M> ret = plan.<M>evaluation()
+                .add(Cost.ANNOTATIONS, annotations::test)
+                .add(Cost.MODIFIERS, modifiers::test)
+                .add(Cost.TYPE_KIND, typeKind::test)
+                .add(Cost.NAME, fqn::test);
+
+        if (typeParameters != null) {
+            ret.add(Cost.TYPE_PARAMETERS, typeParameters::test);
+        }
+
+        if (constraints != null) {
+            ret.add(Cost.CONSTRAINTS, constraints::test);
+        }
+
+        return ret;
+    }
+
     @Override
     public <M> StatementMatch<M> createMatch() {
         return new StatementMatch<M>() {
             @Override
-            public TestResult testType(M type, MatchContext<M> ctx) {
+            public boolean isApplicableTo(ElementKind kind) {
+                return isTypeKind(kind);
+            }
 
-                TestResult ret = annotations.test(type, ctx)
-                        .and(() -> modifiers.test(type, ctx))
-                        .and(() -> typeKind.test(type, ctx))
-                        .and(() -> fqn.test(type, ctx));
+            @Override
+            public @Nullable String getQualifiedNamePrefix() {
+                List<String> prefix = fqn.getExactPrefix();
+                return negation || prefix.isEmpty() ? null : String.join(".", prefix);
+            }
 
-                if (typeParameters != null) {
-                    ret = ret.and(() -> typeParameters.test(type, ctx));
-                }
+            @Override
+            public @Nullable Anchor getAnchor() {
+                String name = negation ? null : fqn.getExactName();
+                return name == null ? annotationAnchor() : Anchor.typeName(name);
+            }
 
-                if (constraints != null) {
-                    ret = ret.and(() -> constraints.test(type, ctx));
-                }
+            private final EvaluationPlan.Evaluation<M> evaluation = createEvaluation();
 
+            @Override
+            public TestResult testType(M type, MatchContext<M> ctx) {
+                TestResult ret = evaluation.test(type, ctx);
                 return negation ? ret.negate() : ret;
             }
 
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Reads the data written by {@link BinaryWriter} from a byte buffer, which can be a memory-mapped file.
+ *
+ * <p>The reading methods throw {@link IllegalArgumentException} if the data is malformed.
+ */
+public final class BinaryReader {
+    private final ByteBuffer buffer;
+    private final String[] strings;
+
+    /**
+     * Reads the string table from the current position of the buffer. The reader then reads the data from the position
+     * after the string table.
+     *
+     * @param buffer the buffer to read from
+     */
+    public BinaryReader(ByteBuffer buffer) {
+        this.buffer = buffer;
+        int count = checkedSize();
+        this.strings = new String[count + 1];
+        for (int i = 1; i <= count; ++i) {
+            int len = checkedSize();
+            if (len > buffer.remaining()) {
+                throw malformed("string longer than the data");
+            }
+
+            if (buffer.hasArray()) {
+                strings[i] = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), len, UTF_8);
+                buffer.position(buffer.position() + len);
+            } else {
+                byte[] bytes = new byte[len];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, UTF_8);
+            }
+        }
+    }
+
+    public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    public int readByte() {
+        if (!buffer.hasRemaining()) {
+            throw malformed("unexpected end of data");
+        }
+        return buffer.get() & 0xFF;
+    }
+
+    public int readInt() {
+        long ret = readLong();
+        if (ret < Integer.MIN_VALUE || ret > Integer.MAX_VALUE) {
+            throw malformed("integer out of range");
+        }
+        return (int) ret;
+    }
+
+    public long readLong() {
+        long raw = readUnsigned();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public double readDouble() {
+        long bits = 0;
+        for (int i = 0; i < 8; ++i) {
+            bits = (bits << 8) | readByte();
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    public @Nullable String readString() {
+        long idx = readUnsigned();
+        if (idx < 0 || idx >= strings.length) {
+            throw malformed("unknown string " + idx);
+        }
+        return strings[(int) idx];
+    }
+
+    public String readNonNullString() {
+        String ret = readString();
+        if (ret == null) {
+            throw malformed("missing string");
+        }
+        return ret;
+    }
+
+    public Pattern readPattern() {
+        String pattern = readNonNullString();
+        return Pattern.compile(pattern, readInt());
+    }
+
+    public <E extends Enum<E>> E readEnum(Class<E> type) {
+        E[] values = type.getEnumConstants();
+        int ordinal = readInt();
+        if (ordinal < 0 || ordinal >= values.length) {
+            throw malformed("unknown " + type.getSimpleName() + " " + ordinal);
+        }
+        return values[ordinal];
+    }
+
+    public List<String> readStrings() {
+        return readList(BinaryReader::readNonNullString);
+    }
+
+    public <T> List<T> readList(Function<BinaryReader, T> reader) {
+        int size = checkedSize();
+        List<T> ret = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            ret.add(reader.apply(this));
+        }
+        return ret;
+    }
+
+    public <T> @Nullable T readNullable(Function<BinaryReader, T> reader) {
+        return readBoolean() ? reader.apply(this) : null;
+    }
+
+    /**
+     * @param message the description of the problem
+     * @return an exception to throw when the data cannot be read
+     */
+    public IllegalArgumentException malformed(String message) {
+        return new IllegalArgumentException("Malformed serialized data at position " + buffer.position() + ": "
+                + message);
+    }
+
+    private int checkedSize() {
+        long size = readUnsigned();
+        // every element takes at least a byte, so this catches the garbage sizes early
+        if (size > buffer.remaining()) {
+            throw malformed("size " + size + " larger than the data");
+        }
+        return (int) size;
+    }
+
+    private long readUnsigned() {
+        long ret = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            ret |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return ret;
+            }
+        }
+        throw malformed("integer too long");
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.util;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+
+/**
+ * Writes the compact binary form of the compiled matches. The integers are written as variable-length quantities and
+ * the strings are written as indices into a string table that is written in front of the data, so that the repeated
+ * names and variables are stored only once.
+ *
+ * @see BinaryReader
+ */
+public final class BinaryWriter {
+    private final Map<String, Integer> strings = new HashMap<>();
+    private final Buffer table = new Buffer();
+    private final Buffer data = new Buffer();
+
+    public void writeBoolean(boolean value) {
+        data.write(value ? 1 : 0);
+    }
+
+    public void writeByte(int value) {
+        data.write(value);
+    }
+
+    public void writeInt(int value) {
+        writeLong(value);
+    }
+
+    public void writeLong(long value) {
+        // zig-zag encoding so that small negative numbers are small, too
+        writeUnsigned(data, (value << 1) ^ (value >> 63));
+    }
+
+    public void writeDouble(double value) {
+        long bits = Double.doubleToRawLongBits(value);
+        for (int i = 56; i >= 0; i -= 8) {
+            data.write((int) (bits >>> i));
+        }
+    }
+
+    public void writeString(@Nullable String value) {
+        if (value == null) {
+            writeUnsigned(data, 0);
+            return;
+        }
+
+        Integer idx = strings.get(value);
+        if (idx == null) {
+            idx = strings.size() + 1;
+            strings.put(value, idx);
+            writeUtf(table, value);
+        }
+
+        writeUnsigned(data, idx);
+    }
+
+    public void writePattern(Pattern pattern) {
+        writeString(pattern.pattern());
+        writeInt(pattern.flags());
+    }
+
+    public void writeEnum(Enum<?> value) {
+        writeInt(value.ordinal());
+    }
+
+    public void writeStrings(Collection<String> values) {
+        writeUnsigned(data, values.size());
+        values.forEach(this::writeString);
+    }
+
+    public <T> void writeList(Collection<? extends T> values, BiConsumer<? super T, BinaryWriter> writer) {
+        writeUnsigned(data, values.size());
+        for (T v : values) {
+            writer.accept(v, this);
+        }
+    }
+
+    public <T> void writeNullable(@Nullable T value, BiConsumer<? super T, BinaryWriter> writer) {
+        writeBoolean(value != null);
+        if (value != null) {
+            writer.accept(value, this);
+        }
+    }
+
+    /**
+     * Writes the string table followed by the data written so far.
+     *
+     * @param out the stream to write to
+     * @throws IOException on error
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        Buffer header = new Buffer();
+        writeUnsigned(header, strings.size());
+        out.write(header.bytes, 0, header.size);
+        out.write(table.bytes, 0, table.size);
+        out.write(data.bytes, 0, data.size);
+    }
+
+    /**
+     * @return the string table followed by the data written so far
+     */
+    public byte[] toByteArray() {
+        Buffer header = new Buffer();
+        writeUnsigned(header, strings.size());
+
+        byte[] ret = new byte[header.size + table.size + data.size];
+        System.arraycopy(header.bytes, 0, ret, 0, header.size);
+        System.arraycopy(table.bytes, 0, ret, header.size, table.size);
+        System.arraycopy(data.bytes, 0, ret, header.size + table.size, data.size);
+        return ret;
+    }
+
+    private static void writeUnsigned(Buffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.write((int) value);
+    }
+
+    private static void writeUtf(Buffer buffer, String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeUnsigned(buffer, bytes.length);
+        for (byte b : bytes) {
+            buffer.write(b);
+        }
+    }
+
+    private static final class Buffer {
+        byte[] bytes = new byte[256];
+        int size;
+
+        void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+    }
+}
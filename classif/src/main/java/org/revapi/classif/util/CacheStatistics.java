@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.util;
+
+/**
+ * A snapshot of the usage statistics of some cache.
+ */
+public final class CacheStatistics {
+    private static final CacheStatistics EMPTY = new CacheStatistics(0, 0);
+
+    private final long hits;
+    private final long misses;
+
+    public static CacheStatistics empty() {
+        return EMPTY;
+    }
+
+    public CacheStatistics(long hits, long misses) {
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * @return the number of lookups that found a value in the cache
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that didn't find a value in the cache
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the ratio of hits to all lookups or 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStatistics{" +
+                "hits=" + hits +
+                ", misses=" + misses +
+                ", hitRate=" + getHitRate() +
+                '}';
+    }
+}
@@ -19,6 +19,7 @@ package org.revapi.classif.util;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -37,6 +38,10 @@ public final class SizedCollections {
         return new HashMap<>(size, 1.0f);
     }
 
+    public static <K, V> LinkedHashMap<K, V> newLinkedHashMapWithExactSize(int size) {
+        return new LinkedHashMap<>(size, 1.0f);
+    }
+
     public static <T> Collector<T, ?, List<T>> toListWithSize(int size) {
         return Collectors.toCollection(() -> new ArrayList<>(size));
     }
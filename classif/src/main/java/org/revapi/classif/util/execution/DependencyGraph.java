@@ -35,6 +35,8 @@ import org.revapi.classif.statement.AbstractStatement;
  * into a graph of dependent nodes.
  */
 public final class DependencyGraph {
+    private final List<String> namedMatches;
+    private final List<AbstractStatement> statements;
     private final Collection<Node<StatementWrapper>> allNodes;
 
     /**
@@ -46,8 +48,24 @@ public final class DependencyGraph {
      */
     public DependencyGraph(List<String> namedMatches, List<AbstractStatement> statements)
             throws IllegalArgumentException {
-        allNodes = initMatches(namedMatches == null ? emptyList() : namedMatches,
-                statements, new HashMap<>(), new HashMap<>());
+        this.namedMatches = namedMatches == null ? emptyList() : namedMatches;
+        this.statements = statements;
+        allNodes = initMatches(this.namedMatches, statements, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * @return the names of the matches to return as the result of the whole structural match, as provided in the
+     * constructor
+     */
+    public List<String> getNamedMatches() {
+        return namedMatches;
+    }
+
+    /**
+     * @return the top level statements of the structural match, as provided in the constructor
+     */
+    public List<AbstractStatement> getStatements() {
+        return statements;
     }
 
     /**
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif;
+
+import org.revapi.classif.util.execution.DependencyGraph;
+
+/**
+ * Gives the tests outside of this package access to the match trees of the structural matchers.
+ */
+public final class MatchTrees {
+    private MatchTrees() {
+
+    }
+
+    public static DependencyGraph of(StructuralMatcher matcher) {
+        return matcher.getMatchTree();
+    }
+}
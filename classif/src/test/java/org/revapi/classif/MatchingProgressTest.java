@@ -16,12 +16,25 @@
  */
 package org.revapi.classif;
 
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singleton;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toSet;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+import static org.revapi.classif.Classif.annotation;
+import static org.revapi.classif.Classif.declaration;
 import static org.revapi.classif.Classif.extends_;
 import static org.revapi.classif.Classif.match;
 import static org.revapi.classif.Classif.method;
 import static org.revapi.classif.Classif.type;
+import static org.revapi.classif.Classif.uses;
 import static org.revapi.classif.match.NameMatch.any;
 import static org.revapi.classif.match.NameMatch.exact;
 import static org.revapi.classif.match.declaration.TypeKind.ANY;
@@ -33,9 +46,18 @@ import static org.revapi.classif.support.Tester.test;
 import static org.revapi.classif.support.Tester.testProgressStart;
 import static org.revapi.classif.support.Tester.testRest;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.util.ElementFilter;
 
@@ -44,7 +66,16 @@ import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.revapi.classif.progress.Anchor;
+import org.revapi.classif.progress.CancellationToken;
+import org.revapi.classif.progress.CompletionStatus;
+import org.revapi.classif.progress.MatcherSetProgress;
+import org.revapi.classif.progress.MatchingProgress;
+import org.revapi.classif.progress.ResolutionListener;
+import org.revapi.classif.progress.TreeAdapter;
+import org.revapi.classif.progress.WalkInstruction;
 import org.revapi.classif.support.Tester.Hierarchy;
+import org.revapi.classif.util.CacheStatistics;
 import org.revapi.testjars.CompiledJar;
 import org.revapi.testjars.junit5.CompiledJarExtension;
 import org.revapi.testjars.junit5.JarSources;
@@ -123,13 +154,7 @@ class MatchingProgressTest {
         TypeElement B = env.elements().getTypeElement("Dependencies.B");
         TypeElement C = env.elements().getTypeElement("Dependencies.C");
 
-        // type ^%y=* extends %x {} class %x=* directly extends java.lang.Object {} class * extends %y {}
-        StructuralMatcher recipe = match()
-                .$(type(ANY, any()).matched().as("y").$(extends_(type().ref("x"))))
-                .$(type(CLASS, any()).as("x")
-                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
-                .$(type(CLASS, any()).$(extends_(type().ref("y"))))
-                .build();
+        StructuralMatcher recipe = deferringRecipe();
 
         Map<Element, TestResult> rest = testRest(env, A, recipe, C, B);
 
@@ -139,6 +164,699 @@ class MatchingProgressTest {
         assertNotPassed(rest.get(C));
     }
 
+    @Test
+    void testDeferredResultsShareIntermediateResults() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        StructuralMatcher recipe = deferringRecipe();
+
+        MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        for (Element e : new Element[]{A, C, B}) {
+            progress.start(e);
+            progress.finish(e);
+        }
+
+        Map<Element, TestResult> rest = progress.finish();
+        CacheStatistics stats = progress.getFinishCacheStatistics();
+
+        assertPassed(rest.get(B));
+        assertNotPassed(rest.get(A));
+        assertNotPassed(rest.get(C));
+        assertTrue(stats.getHits() > 0);
+        assertTrue(stats.getMisses() > 0);
+
+        progress.reset();
+        assertEquals(0, progress.getFinishCacheStatistics().getHits());
+    }
+
+    @Test
+    void testParallelFinishGivesSameResultsAsSequential() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        StructuralMatcher recipe = deferringRecipe();
+
+        MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        Element[] elements = {C, A, B};
+
+        for (Element e : elements) {
+            progress.start(e);
+            progress.finish(e);
+        }
+        Map<Element, TestResult> sequential = progress.finish();
+        progress.reset();
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            for (Element e : elements) {
+                progress.start(e);
+                progress.finish(e);
+            }
+            Map<Element, TestResult> parallel = progress.finish(executor);
+
+            assertEquals(sequential, parallel);
+            assertEquals(asList(elements), new ArrayList<>(parallel.keySet()));
+            assertPassed(parallel.get(B));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testDeferredResultsResolvedEarlyWithListener() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        // type ^* extends %x {} class %x=* directly extends java.lang.Object {}
+        StructuralMatcher recipe = match()
+                .$(type(ANY, any()).matched().$(extends_(type().ref("x"))))
+                .$(type(CLASS, any()).as("x")
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .build();
+
+        MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        Map<Element, TestResult> resolved = new LinkedHashMap<>();
+        progress.setResolutionListener(resolved::put);
+
+        progress.start(A);
+        progress.finish(A);
+        assertTrue(resolved.isEmpty());
+
+        progress.start(B);
+        progress.finish(B);
+        // B is known to pass as soon as we've seen A
+        assertEquals(1, resolved.size());
+        assertPassed(resolved.get(B));
+
+        progress.start(C);
+        progress.finish(C);
+        assertPassed(resolved.get(C));
+
+        // whether A fails can only be known at the end and is only reported to the listener
+        assertTrue(progress.finish().isEmpty());
+        assertEquals(3, resolved.size());
+        assertNotPassed(resolved.get(A));
+    }
+
+    @Test
+    void testSpilledCandidatesGiveSameResults() {
+        Element A = env.elements().getTypeElement("Dependencies.A");
+        Element B = env.elements().getTypeElement("Dependencies.B");
+        Element C = env.elements().getTypeElement("Dependencies.C");
+        Element D = env.elements().getTypeElement("Dependencies.D");
+        Element method1 = ElementFilter.methodsIn(D.getEnclosedElements()).get(0);
+        Element method2 = ElementFilter.methodsIn(D.getEnclosedElements()).get(1);
+
+        Hierarchy code = Hierarchy.builder()
+                .add(A)
+                .add(B)
+                .add(C)
+                .start(D)
+                .add(method1)
+                .add(method2)
+                .end()
+                .build();
+
+        // class Dependencies.D { %a ^*(); } class Dependencies.B extends %a {} class %a=* {}
+        StructuralMatcher recipe = match()
+                .$(type(CLASS, exact("Dependencies"), exact("D"))
+                        .$(method(any()).matched().returns(type().ref("a"))))
+                .$(type(CLASS, exact("Dependencies"), exact("B")).$(extends_(type().ref("a"))))
+                .$(type(CLASS, any()).as("a"))
+                .build();
+
+        StructuralMatcher spilling = recipe.withConfiguration(recipe.getConfiguration().withCandidateSpilling(1, null));
+
+        Map<Element, TestResult> expected = test(env, recipe, code);
+        Map<Element, TestResult> actual = test(env, spilling, code);
+
+        assertEquals(expected, actual);
+        assertPassed(actual.get(method1));
+        assertNotPassed(actual.get(method2));
+    }
+
+    @Test
+    void testSpilledChildCandidatesFoundInTheirParent() {
+        Element A = env.elements().getTypeElement("Dependencies.A");
+        Element B = env.elements().getTypeElement("Dependencies.B");
+        Element C = env.elements().getTypeElement("Dependencies.C");
+        Element D = env.elements().getTypeElement("Dependencies.D");
+        Element method1 = ElementFilter.methodsIn(D.getEnclosedElements()).get(0);
+        Element method2 = ElementFilter.methodsIn(D.getEnclosedElements()).get(1);
+
+        Hierarchy code = Hierarchy.builder()
+                .add(A)
+                .add(B)
+                .add(C)
+                .start(D)
+                .add(method1)
+                .add(method2)
+                .end()
+                .build();
+
+        // class ^Dependencies.D { %a *(); } class Dependencies.C directly extends %a {} class %a=* {}
+        // only the second method, which is spilled, returns the superclass of C
+        StructuralMatcher recipe = match()
+                .$(type(CLASS, exact("Dependencies"), exact("D")).matched()
+                        .$(method(any()).returns(type().ref("a"))))
+                .$(type(CLASS, exact("Dependencies"), exact("C")).$(extends_(type().ref("a")).directly()))
+                .$(type(CLASS, any()).as("a"))
+                .build();
+
+        StructuralMatcher spilling = recipe.withConfiguration(recipe.getConfiguration().withCandidateSpilling(1, null));
+
+        Map<Element, TestResult> expected = test(env, recipe, code);
+        Map<Element, TestResult> actual = test(env, spilling, code);
+
+        assertEquals(expected, actual);
+        assertPassed(actual.get(D));
+    }
+
+    @Test
+    void testMatchListenerReceivesOnlyMatches() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        StructuralMatcher deferring = deferringRecipe();
+
+        // type ^* directly extends java.lang.Object
+        StructuralMatcher immediate = match()
+                .$(type(ANY, any()).matched()
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .build();
+
+        for (StructuralMatcher recipe : asList(deferring, immediate)) {
+            MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+            List<Element> matches = new ArrayList<>();
+            progress.setResolutionListener(ResolutionListener.onMatch(matches::add));
+
+            for (Element e : new Element[]{A, C, B}) {
+                progress.start(e);
+                progress.finish(e);
+            }
+
+            assertTrue(progress.finish().isEmpty());
+            assertEquals(recipe == deferring ? singletonList(B) : singletonList(A), matches);
+        }
+    }
+
+    @Test
+    void testListenerReceivesResultsInsteadOfFinish() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+        TypeElement D = env.elements().getTypeElement("Dependencies.D");
+        Element method1 = ElementFilter.methodsIn(D.getEnclosedElements()).get(0);
+        Element method2 = ElementFilter.methodsIn(D.getEnclosedElements()).get(1);
+
+        StructuralMatcher deferring = deferringRecipe();
+
+        Hierarchy code = Hierarchy.builder()
+                .add(A)
+                .add(B)
+                .add(C)
+                .start(D)
+                .add(method1)
+                .add(method2)
+                .end()
+                .build();
+
+        Set<Element> expected = test(env, deferring, code).entrySet().stream()
+                .filter(e -> e.getValue() == TestResult.PASSED)
+                .map(Map.Entry::getKey)
+                .collect(toSet());
+
+        MatchingProgress<Element> progress = deferring.with(new MirroringModelInspector(env.elements(), env.types()));
+        Set<Element> matches = new HashSet<>();
+        Map<Element, TestResult> resolved = new HashMap<>();
+        progress.setResolutionListener(new ResolutionListener<Element>() {
+            @Override
+            public void resolved(Element model, TestResult result) {
+                assertNull(resolved.put(model, result));
+            }
+
+            @Override
+            public void matched(Element model) {
+                assertTrue(matches.add(model));
+            }
+        });
+
+        for (Element e : new Element[]{A, B, C}) {
+            progress.start(e);
+            progress.finish(e);
+        }
+        progress.start(D);
+        progress.start(method1);
+        progress.finish(method1);
+        progress.start(method2);
+        progress.finish(method2);
+        progress.finish(D);
+
+        assertTrue(progress.finish().isEmpty());
+        assertEquals(expected, matches);
+        assertFalse(resolved.isEmpty());
+        resolved.forEach((m, r) -> assertEquals(matches.contains(m), r == TestResult.PASSED));
+    }
+
+    @Test
+    void testExceededWorkBudgetGivesPartialResults() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        StructuralMatcher recipe = deferringRecipe();
+
+        MatchingProgress<Element> progress = recipe.withConfiguration(recipe.getConfiguration()
+                .withWorkBudget(0, Integer.MAX_VALUE, null))
+                .with(new MirroringModelInspector(env.elements(), env.types()));
+
+        for (Element e : new Element[]{A, C, B}) {
+            progress.start(e);
+            progress.finish(e);
+        }
+
+        Map<Element, TestResult> results = progress.finish();
+        assertEquals(CompletionStatus.BUDGET_EXCEEDED, progress.getCompletionStatus());
+        assertEquals(TestResult.DEFERRED, results.get(B));
+        assertTrue(results.values().stream().allMatch(r -> r == TestResult.DEFERRED));
+
+        // a cancelled matching doesn't even look at the models
+        progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        progress.setCancellationToken(token);
+
+        WalkInstruction instruction = progress.start(B);
+        assertEquals(TestResult.DEFERRED, instruction.getTestResult());
+        assertFalse(instruction.isDescend());
+        progress.finish(B);
+
+        assertEquals(TestResult.DEFERRED, progress.finish().get(B));
+        assertEquals(CompletionStatus.CANCELLED, progress.getCompletionStatus());
+
+        // after reset, without the cancellation, the matching completes again
+        progress.reset();
+        progress.setCancellationToken(null);
+        for (Element e : new Element[]{A, C, B}) {
+            progress.start(e);
+            progress.finish(e);
+        }
+
+        assertEquals(TestResult.PASSED, progress.finish().get(B));
+        assertEquals(CompletionStatus.COMPLETE, progress.getCompletionStatus());
+    }
+
+    @Test
+    void testModelsDependingOnAbandonedModelsStayDeferred() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+        TypeElement D = env.elements().getTypeElement("Dependencies.D");
+
+        // A uses B uses C uses D
+        Map<Element, Element> uses = new HashMap<>();
+        uses.put(A, B);
+        uses.put(B, C);
+        uses.put(C, D);
+        ModelInspector<Element> insp = new MirroringModelInspector(env.elements(), env.types()) {
+            @Override
+            public Set<Element> getUses(Element model) {
+                Element used = uses.get(model);
+                return used == null ? emptySet() : singleton(used);
+            }
+        };
+
+        // type ^* extends %x {} class %x=Dependencies.A uses Dependencies.D {}
+        StructuralMatcher recipe = match()
+                .$(type(ANY, any()).matched().$(extends_(type().ref("x"))))
+                .$(type(CLASS, exact("Dependencies"), exact("A")).as("x")
+                        .$(uses(type().fqn(exact("Dependencies"), exact("D")))))
+                .build();
+
+        // without a budget, B and C pass because A uses D through B and C
+        Map<Element, TestResult> complete = testRest(insp, A, recipe, B, C, D);
+        assertPassed(complete.get(B));
+        assertPassed(complete.get(C));
+
+        // finding out that A uses D needs to go 3 levels deep, so the walk gives up on A and A is not a candidate of %x
+        MatchingProgress<Element> progress = recipe.withConfiguration(recipe.getConfiguration()
+                .withWorkBudget(Long.MAX_VALUE, 2, null))
+                .with(insp);
+
+        for (Element e : new Element[]{A, B, C, D}) {
+            progress.start(e);
+            progress.finish(e);
+        }
+
+        Map<Element, TestResult> results = progress.finish();
+        assertEquals(CompletionStatus.BUDGET_EXCEEDED, progress.getCompletionStatus());
+        // B and C would pass with A as the candidate of %x, so they can't be said to fail
+        assertDeferred(results.get(B));
+        assertDeferred(results.get(C));
+        assertTrue(results.values().stream().noneMatch(r -> r == TestResult.NOT_PASSED));
+    }
+
+    @Test
+    void testSubtreesThatCannotMatchAreSkipped() {
+        TypeElement single = env.elements().getTypeElement("SingleNodeMatch");
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+
+        // type ^Dependencies.* {}
+        StructuralMatcher simple = match().$(type(ANY, exact("Dependencies"), any()).matched()).build();
+
+        // type ^Dependencies.* extends %x {} class %x=Dependencies.* {}
+        StructuralMatcher multi = match()
+                .$(type(ANY, exact("Dependencies"), any()).matched().$(extends_(type().ref("x"))))
+                .$(type(CLASS, exact("Dependencies"), any()).as("x"))
+                .build();
+
+        // type ^* {}
+        StructuralMatcher unanchored = match().$(type(ANY, any()).matched()).build();
+
+        for (StructuralMatcher recipe : asList(simple, multi)) {
+            MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+
+            WalkInstruction instruction = progress.start(single);
+            assertFalse(instruction.isDescend());
+            assertEquals(TestResult.NOT_PASSED, instruction.getTestResult());
+            assertEquals(TestResult.NOT_PASSED, progress.finish(single));
+
+            assertTrue(progress.start(deps).isDescend());
+            progress.start(B);
+            progress.finish(B);
+            progress.finish(deps);
+        }
+
+        MatchingProgress<Element> progress = unanchored.with(new MirroringModelInspector(env.elements(),
+                env.types()));
+        assertTrue(progress.start(single).isDescend());
+    }
+
+    @Test
+    void testOnlyRelevantChildKindsAreWalked() {
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+
+        // type ^* {}
+        StructuralMatcher simple = match().$(type(ANY, any()).matched()).build();
+
+        // type ^%y=* extends %x {} class %x=* {}
+        StructuralMatcher multi = match()
+                .$(type(ANY, any()).matched().as("y").$(extends_(type().ref("x"))))
+                .$(type(CLASS, any()).as("x"))
+                .build();
+
+        for (StructuralMatcher recipe : asList(simple, multi)) {
+            MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+
+            WalkInstruction instruction = progress.start(deps);
+            assertTrue(instruction.isDescend());
+            assertTrue(instruction.isDescendInto(ElementKind.CLASS));
+            assertFalse(instruction.isDescendInto(ElementKind.METHOD));
+            assertFalse(instruction.isDescendInto(ElementKind.FIELD));
+            progress.finish(deps);
+        }
+
+        // type ^* { <init>(); }
+        StructuralMatcher withMethods = match()
+                .$(type(ANY, any()).matched().$(method(exact("<init>"))))
+                .build();
+
+        MatchingProgress<Element> progress = withMethods.with(new MirroringModelInspector(env.elements(),
+                env.types()));
+        WalkInstruction instruction = progress.start(deps);
+        assertTrue(instruction.isDescendInto(ElementKind.CONSTRUCTOR));
+        assertFalse(instruction.isDescendInto(ElementKind.FIELD));
+    }
+
+    @Test
+    void testWalkGivesSameResultsAsManualWalk() {
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+        TypeElement single = env.elements().getTypeElement("SingleNodeMatch");
+
+        StructuralMatcher deferring = deferringRecipe();
+
+        // type ^* directly extends java.lang.Object
+        StructuralMatcher immediate = match()
+                .$(type(ANY, any()).matched()
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .build();
+
+        Hierarchy hierarchy = Hierarchy.builder()
+                .start(deps).add(env.elements().getTypeElement("Dependencies.A"))
+                .add(env.elements().getTypeElement("Dependencies.B"))
+                .add(env.elements().getTypeElement("Dependencies.C"))
+                .add(env.elements().getTypeElement("Dependencies.D")).end()
+                .add(single)
+                .build();
+
+        TreeAdapter<Element> tree = new TreeAdapter<Element>() {
+            @Override
+            public Iterable<? extends Element> getRoots() {
+                return asList(deps, single);
+            }
+
+            @Override
+            public Iterable<? extends Element> getChildren(Element model) {
+                return model.getEnclosedElements();
+            }
+        };
+
+        for (StructuralMatcher recipe : asList(deferring, immediate)) {
+            Set<Element> expected = test(env, recipe, hierarchy).entrySet().stream()
+                    .filter(e -> e.getValue() == TestResult.PASSED)
+                    .map(Map.Entry::getKey)
+                    .collect(toSet());
+
+            MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+            Set<Element> matches = new HashSet<>();
+            progress.setResolutionListener(ResolutionListener.onMatch(matches::add));
+            progress.walk(tree);
+            progress.finish();
+
+            assertEquals(expected, matches);
+            assertFalse(matches.isEmpty());
+        }
+    }
+
+    @Test
+    void testWalkHandlesDeepTrees() {
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+        int maxDepth = 100_000;
+
+        // the same element over and over again, so that we don't need such a deep model
+        TreeAdapter<Element> tree = new TreeAdapter<Element>() {
+            int depth;
+
+            @Override
+            public Iterable<? extends Element> getRoots() {
+                return singletonList(deps);
+            }
+
+            @Override
+            public Iterable<? extends Element> getChildren(Element model) {
+                return ++depth < maxDepth ? singletonList(deps) : emptyList();
+            }
+        };
+
+        MatchingProgress<Element> progress = match().$(type(ANY, exact("Dependencies")).matched()).build()
+                .with(new MirroringModelInspector(env.elements(), env.types()));
+
+        int[] matches = new int[1];
+        progress.setResolutionListener(ResolutionListener.onMatch(m -> matches[0]++));
+        progress.walk(tree);
+
+        assertEquals(maxDepth, matches[0]);
+    }
+
+    @Test
+    void testVariableFreeRecipesResolvedDuringWalk() {
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+        TypeElement D = env.elements().getTypeElement("Dependencies.D");
+        Element method1 = ElementFilter.methodsIn(D.getEnclosedElements()).get(0);
+        Element method2 = ElementFilter.methodsIn(D.getEnclosedElements()).get(1);
+
+        TreeAdapter<Element> tree = new TreeAdapter<Element>() {
+            @Override
+            public Iterable<? extends Element> getRoots() {
+                return singletonList(deps);
+            }
+
+            @Override
+            public Iterable<? extends Element> getChildren(Element model) {
+                return model.getEnclosedElements();
+            }
+        };
+
+        // type ^* { method1(); }
+        StructuralMatcher parentReturned = match()
+                .$(type(ANY, any()).matched().$(method(exact("method1"))))
+                .build();
+
+        // type Dependencies.A { ^*(); }
+        StructuralMatcher childReturned = match()
+                .$(type(ANY, exact("Dependencies"), exact("A")).$(method(any()).matched()))
+                .build();
+
+        // type * { ^method1(); method2(); }
+        StructuralMatcher siblingRequired = match()
+                .$(type(ANY, any()).$(method(exact("method1")).matched()).$(method(exact("method2"))))
+                .build();
+
+        // type * { ^method1(); method3(); }
+        StructuralMatcher siblingMissing = match()
+                .$(type(ANY, any()).$(method(exact("method1")).matched()).$(method(exact("method3"))))
+                .build();
+
+        // the child statements are tested on the children of all the models the parent statement was tested on,
+        // only the returning statements decide about the results
+        assertEquals(asList(D, C, B, A, deps), walk(parentReturned, tree));
+        assertEquals(asList(constructorOf(D), method1, method2, constructorOf(C), constructorOf(B), constructorOf(A),
+                constructorOf(deps)), walk(childReturned, tree));
+        assertEquals(singletonList(method1), walk(siblingRequired, tree));
+        assertEquals(singletonList(method1), walk(siblingMissing, tree));
+
+        // the results are known as soon as the models are finished
+        MatchingProgress<Element> progress = siblingRequired.with(new MirroringModelInspector(env.elements(),
+                env.types()));
+        progress.start(D);
+        progress.start(method1);
+        assertPassed(progress.finish(method1));
+        progress.start(method2);
+        assertNotPassed(progress.finish(method2));
+        assertNotPassed(progress.finish(D));
+        assertTrue(progress.finish().isEmpty());
+    }
+
+    private static Element constructorOf(TypeElement type) {
+        return ElementFilter.constructorsIn(type.getEnclosedElements()).get(0);
+    }
+
+    private List<Element> walk(StructuralMatcher recipe, TreeAdapter<Element> tree) {
+        MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        List<Element> matches = new ArrayList<>();
+        progress.setResolutionListener(ResolutionListener.onMatch(matches::add));
+        progress.walk(tree);
+        assertEquals(emptyList(), new ArrayList<>(progress.finish().keySet()));
+        return matches;
+    }
+
+    @Test
+    void testMatcherSetGivesSameResultsAsIndividualMatchers() {
+        TypeElement deps = env.elements().getTypeElement("Dependencies");
+        TypeElement single = env.elements().getTypeElement("SingleNodeMatch");
+
+        StructuralMatcher deferring = deferringRecipe();
+
+        // type ^* directly extends java.lang.Object
+        StructuralMatcher immediate = match()
+                .$(type(ANY, any()).matched()
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .build();
+
+        // type * { ^method1(); }
+        StructuralMatcher methods = match()
+                .$(type(ANY, any()).$(method(exact("method1")).matched()))
+                .build();
+
+        // type ^Dependencies.* {}
+        StructuralMatcher anchored = match().$(type(ANY, exact("Dependencies"), any()).matched()).build();
+
+        TreeAdapter<Element> tree = new TreeAdapter<Element>() {
+            @Override
+            public Iterable<? extends Element> getRoots() {
+                return asList(deps, single);
+            }
+
+            @Override
+            public Iterable<? extends Element> getChildren(Element model) {
+                return model.getEnclosedElements();
+            }
+        };
+
+        // @java.lang.Deprecated ^*;
+        StructuralMatcher deprecated = match().$(declaration().matched()
+                .$(annotation(type().fqn(exact("java"), exact("lang"), exact("Deprecated"))))).build();
+
+        // type ^Dependencies.A {}
+        StructuralMatcher typeName = match().$(type(ANY, exact("Dependencies"), exact("A")).matched()).build();
+
+        List<StructuralMatcher> matchers = asList(deferring, immediate, methods, anchored, deprecated, typeName);
+
+        Map<StructuralMatcher, Set<Element>> expected = new LinkedHashMap<>();
+        for (StructuralMatcher recipe : matchers) {
+            MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+            Set<Element> matches = new HashSet<>();
+            progress.setResolutionListener(ResolutionListener.onMatch(matches::add));
+            progress.walk(tree);
+            progress.finish();
+            expected.put(recipe, matches);
+        }
+
+        MatcherSetProgress<Element> progress = MatcherSet.of(matchers)
+                .with(new MirroringModelInspector(env.elements(), env.types()));
+        Map<StructuralMatcher, Set<Element>> matches = new LinkedHashMap<>();
+        matchers.forEach(m -> matches.put(m, new HashSet<>()));
+        progress.setMatchListener((matcher, model) -> matches.get(matcher).add(model));
+        progress.walk(tree);
+        progress.finish();
+
+        assertEquals(expected, matches);
+        assertEquals(CompletionStatus.COMPLETE, progress.getCompletionStatus());
+        // only tested on the elements with the exact name or annotation
+        assertEquals(2, progress.getAnchoredMatcherCount());
+        assertEquals(singleton(env.elements().getTypeElement("Dependencies.A")), matches.get(typeName));
+
+        // the anchored matcher skips SingleNodeMatch altogether, the other one needs its methods but not its fields
+        WalkInstruction instruction = StructuralMatcher.combine(anchored, methods)
+                .with(new MirroringModelInspector(env.elements(), env.types())).start(single);
+        assertTrue(instruction.isDescendInto(ElementKind.METHOD));
+        assertFalse(instruction.isDescendInto(ElementKind.FIELD));
+    }
+
+    @Test
+    void testStatementAnchors() {
+        assertEquals(Anchor.methodName("method1"), method(exact("method1")).build().createMatch().getAnchor());
+        assertEquals(Anchor.typeName("Dependencies.A"),
+                type(ANY, exact("Dependencies"), exact("A")).build().createMatch().getAnchor());
+        assertEquals(Anchor.annotationType("java.lang.Deprecated"), type(ANY, exact("Dependencies"), any())
+                .$(annotation(type().fqn(exact("java"), exact("lang"), exact("Deprecated"))))
+                .build().createMatch().getAnchor());
+
+        assertNull(type(ANY, exact("Dependencies"), any()).build().createMatch().getAnchor());
+        assertNull(method(any()).build().createMatch().getAnchor());
+        assertNull(method(exact("method1")).negated().build().createMatch().getAnchor());
+    }
+
+    @Test
+    void testUnrelatedVariablesDontInfluenceMatchResult() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement B = env.elements().getTypeElement("Dependencies.B");
+        TypeElement C = env.elements().getTypeElement("Dependencies.C");
+
+        // type ^Dependencies.B extends %x {} class %x=* directly extends java.lang.Object {}
+        // class %z=Dependencies.C {} class * extends %z {}
+        StructuralMatcher recipe = match()
+                .$(type(ANY, exact("Dependencies"), exact("B")).matched().$(extends_(type().ref("x"))))
+                .$(type(CLASS, any()).as("x")
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .$(type(CLASS, exact("Dependencies"), exact("C")).as("z"))
+                .$(type(CLASS, any()).$(extends_(type().ref("z"))))
+                .build();
+
+        // the returning statement doesn't care whether there is anything extending C
+        assertPassed(test(env, B, recipe, A, C));
+        assertNotPassed(test(env, B, recipe, C));
+    }
+
     @Test
     void testConstraintsWithoutVariablesResolveImmediately() {
         TypeElement A = env.elements().getTypeElement("Dependencies.A");
@@ -184,4 +902,17 @@ class MatchingProgressTest {
         assertPassed(res.get(method1));
         assertNotPassed(res.get(method2));
     }
+
+    /**
+     * The models matched by this recipe can only be decided once all of the models have been seen:
+     * {@code type ^%y=* extends %x {} class %x=* directly extends java.lang.Object {} class * extends %y {}}
+     */
+    private static StructuralMatcher deferringRecipe() {
+        return match()
+                .$(type(ANY, any()).matched().as("y").$(extends_(type().ref("x"))))
+                .$(type(CLASS, any()).as("x")
+                        .$(extends_(type().fqn(exact("java"), exact("lang"), exact("Object"))).directly()))
+                .$(type(CLASS, any()).$(extends_(type().ref("y"))))
+                .build();
+    }
 }
@@ -22,6 +22,7 @@ import java.util.Set;
 
 import javax.lang.model.element.Element;
 import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.PackageElement;
 import javax.lang.model.element.TypeElement;
 import javax.lang.model.type.TypeMirror;
 import javax.lang.model.util.Elements;
@@ -75,4 +76,28 @@ public class MirroringModelInspector implements ModelInspector<Element> {
     public boolean overrides(ExecutableElement overrider, ExecutableElement overridden, TypeElement type) {
         return elements.overrides(overrider, overridden, type);
     }
+
+    @Override
+    public String toId(Element model) {
+        // the qualified name of the top level type followed by the indices of the enclosed elements
+        StringBuilder path = new StringBuilder();
+        Element e = model;
+        while (!(e.getEnclosingElement() instanceof PackageElement)) {
+            Element parent = e.getEnclosingElement();
+            path.insert(0, "/" + parent.getEnclosedElements().indexOf(e));
+            e = parent;
+        }
+
+        return ((TypeElement) e).getQualifiedName() + path.toString();
+    }
+
+    @Override
+    public Element fromId(String id) {
+        String[] parts = id.split("/");
+        Element ret = elements.getTypeElement(parts[0]);
+        for (int i = 1; i < parts.length; ++i) {
+            ret = ret.getEnclosedElements().get(Integer.parseInt(parts[i]));
+        }
+        return ret;
+    }
 }
@@ -18,7 +18,9 @@ package org.revapi.classif.match.declaration;
 
 import static java.util.stream.Collectors.toSet;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.revapi.classif.Classif.declaration;
 import static org.revapi.classif.Classif.type;
 import static org.revapi.classif.Classif.uses;
@@ -42,6 +44,7 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.revapi.classif.Classif;
 import org.revapi.classif.MirroringModelInspector;
 import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.progress.MatchingProgress;
 import org.revapi.testjars.CompiledJar;
 import org.revapi.testjars.junit5.CompiledJarExtension;
 import org.revapi.testjars.junit5.JarSources;
@@ -136,4 +139,50 @@ class UsesMatchTest {
         assertSame(directlyUsesCycleStart.with(insp).start(userMethod).getTestResult(), PASSED);
         assertSame(directlyUsesCycleEnd.with(insp).start(userMethod).getTestResult(), NOT_PASSED);
     }
+
+    @Test
+    void testTransitiveUsesSharedWithinProgress() {
+        TypeElement TestClass = environment.elements().getTypeElement("TestClass");
+        TypeElement UseCycleStart = environment.elements().getTypeElement("TestClass.UseCycleStart");
+        TypeElement UseCycleEnd = environment.elements().getTypeElement("TestClass.UseCycleEnd");
+
+        @SuppressWarnings("ConstantConditions")
+        ExecutableElement cycleMethod = ElementFilter.methodsIn(TestClass.getEnclosedElements())
+                .stream().filter(m -> m.getSimpleName().contentEquals("cycleMethod")).findFirst().get();
+
+        MirroringModelInspector insp = new MirroringModelInspector(environment.elements(), environment.types()) {
+            @Override
+            public Set<Element> getUses(Element model) {
+                // the types are also tested themselves, so we can meet the methods of java.lang.Object here
+                return ElementFilter.methodsIn(model.getEnclosedElements()).stream()
+                        .filter(m -> m.getReturnType() instanceof DeclaredType)
+                        .map(m -> ((DeclaredType) m.getReturnType()).asElement())
+                        .collect(toSet());
+            }
+        };
+
+        StructuralMatcher usesCycleEnd = Classif.match()
+                .$(declaration().matched().$(uses(type().fqn(exact("TestClass"), exact("UseCycleEnd")))))
+                .build();
+
+        MatchingProgress<Element> progress = usesCycleEnd.with(insp);
+
+        assertPassed(progress.start(cycleMethod).getTestResult());
+        progress.finish(cycleMethod);
+        assertEquals(0, progress.getTransitiveUsesCacheStatistics().getHits());
+
+        // both types in the cycle of uses share the closure computed for the method
+        assertPassed(progress.start(UseCycleStart).getTestResult());
+        progress.finish(UseCycleStart);
+        assertPassed(progress.start(UseCycleEnd).getTestResult());
+        progress.finish(UseCycleEnd);
+        assertPassed(progress.start(cycleMethod).getTestResult());
+        progress.finish(cycleMethod);
+
+        assertTrue(progress.getTransitiveUsesCacheStatistics().getHits() >= 3);
+
+        progress.finish();
+        progress.reset();
+        assertEquals(0, progress.getTransitiveUsesCacheStatistics().getHits());
+    }
 }
@@ -16,6 +16,7 @@
  */
 package org.revapi.classif.match.instance;
 
+import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toList;
 
@@ -23,7 +24,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.revapi.classif.TestResult.NOT_PASSED;
 import static org.revapi.classif.TestResult.PASSED;
 
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -339,6 +344,32 @@ class TypeReferenceMatchTest {
     }
     //TODO implement
 
+    @Test
+    void testLazyVariableResultsEvaluatedOnlyWhenNeeded() {
+        TypeReferenceMatch match = new TypeReferenceMatch(asList(
+                new SingleTypeReferenceMatch(null, null, "a", false, 0),
+                new SingleTypeReferenceMatch(null, null, "b", false, 0)));
+
+        int[] evaluations = new int[2];
+        Map<String, Supplier<TestResult>> results = new HashMap<>();
+        results.put("a", () -> {
+            evaluations[0]++;
+            return PASSED;
+        });
+        results.put("b", () -> {
+            evaluations[1]++;
+            return PASSED;
+        });
+
+        MatchContext<Element> lazyCtx = new MatchContext<>(ctx.getModelInspector(), new HashSet<>(asList("a", "b")))
+                .withLazyResults(results);
+
+        assertEquals(PASSED, match.testInstance(TestClass.asType(), lazyCtx));
+        assertEquals(PASSED, match.testInstance(Generic.asType(), lazyCtx));
+        assertEquals(1, evaluations[0]);
+        assertEquals(0, evaluations[1]);
+    }
+
     private void doTest(String recipe, Object... typesAndResults) {
         TypeReferenceMatch match = parse(recipe);
         for (int i = 0; i < typesAndResults.length - 1; i += 3) {
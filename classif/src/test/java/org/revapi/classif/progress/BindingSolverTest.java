@@ -0,0 +1,130 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.revapi.classif.TestResult.DEFERRED;
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.TestResult.PASSED;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.revapi.classif.TestResult;
+
+class BindingSolverTest {
+
+    @Test
+    void testFindsSolution() {
+        // x + y == z && z == 15
+        BindingSolver<Integer> solver = new BindingSolver<>(domains(20, "x", "y", "z"), clique("x", "y", "z"));
+
+        int[] completeEvaluations = {0};
+        boolean solved = solver.solve((b, complete) -> {
+            if (complete) {
+                completeEvaluations[0]++;
+            }
+            return sum(b, 15);
+        });
+
+        assertTrue(solved);
+        // the brute force would try 20^3 combinations
+        assertTrue(completeEvaluations[0] < 400);
+    }
+
+    @Test
+    void testNoSolution() {
+        BindingSolver<Integer> solver = new BindingSolver<>(domains(10, "x", "y", "z"), clique("x", "y", "z"));
+
+        assertFalse(solver.solve((b, complete) -> sum(b, 42)));
+    }
+
+    @Test
+    void testNoVariables() {
+        BindingSolver<Integer> solver = new BindingSolver<>(new HashMap<>(), new HashMap<>());
+
+        assertTrue(solver.solve((b, complete) -> PASSED));
+        assertFalse(solver.solve((b, complete) -> NOT_PASSED));
+        assertFalse(solver.solve((b, complete) -> DEFERRED));
+    }
+
+    @Test
+    void testUndecidedCompleteBindingIsNotSolution() {
+        BindingSolver<Integer> solver = new BindingSolver<>(domains(3, "x", "y"), clique("x", "y"));
+
+        assertFalse(solver.solve((b, complete) -> DEFERRED));
+    }
+
+    @Test
+    void testPartialPassShortCircuits() {
+        BindingSolver<Integer> solver = new BindingSolver<>(domains(1000, "x", "y"), clique("x", "y"));
+
+        int[] evaluations = {0};
+        boolean solved = solver.solve((b, complete) -> {
+            evaluations[0]++;
+            Integer x = b.get("x");
+            return x == null ? DEFERRED : TestResult.fromBoolean(x == 999);
+        });
+
+        assertTrue(solved);
+        assertTrue(evaluations[0] <= 1000);
+    }
+
+    private static TestResult sum(Map<String, Integer> binding, int expected) {
+        Integer x = binding.get("x");
+        Integer y = binding.get("y");
+        Integer z = binding.get("z");
+
+        if (x != null && y != null && z != null) {
+            return TestResult.fromBoolean(x + y == z && z == expected);
+        } else if (z != null && z != expected) {
+            return NOT_PASSED;
+        } else {
+            return DEFERRED;
+        }
+    }
+
+    private static Map<String, Collection<Integer>> domains(int size, String... vars) {
+        List<Integer> values = IntStream.range(0, size).boxed().collect(Collectors.toList());
+        Map<String, Collection<Integer>> ret = new LinkedHashMap<>();
+        for (String v : vars) {
+            ret.put(v, values);
+        }
+        return ret;
+    }
+
+    private static Map<String, Set<String>> clique(String... vars) {
+        Map<String, Set<String>> ret = new HashMap<>();
+        for (String v : vars) {
+            Set<String> ns = new HashSet<>(asList(vars));
+            ns.remove(v);
+            ret.put(v, ns);
+        }
+        return ret;
+    }
+}
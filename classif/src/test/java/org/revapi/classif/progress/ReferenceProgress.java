@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import org.revapi.classif.ModelInspector;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.progress.context.SharedMatchResults;
+import org.revapi.classif.progress.context.TransitiveUsesCache;
+import org.revapi.classif.util.execution.DependencyGraph;
+
+/**
+ * Creates the matching progress that evaluates the recipes without variables the same way as the recipes with them.
+ * The specialized matching progresses need to give the same results.
+ */
+public final class ReferenceProgress {
+    private ReferenceProgress() {
+
+    }
+
+    public static <M> MatchingProgress<M> of(DependencyGraph matchGraph, ModelInspector<M> modelInspector,
+            StructuralMatcher.Configuration configuration) {
+        SharedMatchResults shared = matchGraph.getAllNodes().size() == 1
+                ? null
+                : SharedMatchResults.of(MatchingProgress.statementsOf(matchGraph));
+
+        return MatchingProgress.create(matchGraph, modelInspector, configuration, shared,
+                new TransitiveUsesCache(TransitiveUsesCache.DEFAULT_MAXIMUM_SIZE), false);
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeMirror;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.revapi.classif.ModelInspector;
+
+class SpillingCandidateSetTest {
+
+    @Test
+    void testContainsComparesIdentifiersWithSameHash(@TempDir Path dir) {
+        SpillingCandidateSet<String> set = new SpillingCandidateSet<>(new IdInspector(), 1, dir, id -> 42);
+
+        assertTrue(set.add("a"));
+        assertTrue(set.add("b"));
+        assertTrue(set.add("c"));
+        assertFalse(set.add("c"));
+
+        assertTrue(set.isSpilled());
+        assertEquals(3, set.size());
+        assertTrue(set.contains("b"));
+        assertTrue(set.contains("c"));
+        assertFalse(set.contains("d"));
+        assertEquals(new HashSet<>(asList("a", "b", "c")), new HashSet<>(set));
+    }
+
+    @Test
+    void testStoresIdentifiersLargerThanBuffer(@TempDir Path dir) {
+        SpillingCandidateSet<String> set = new SpillingCandidateSet<>(new IdInspector(), 0, dir);
+
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20_000; ++i) {
+            sb.append((char) ('a' + i % 26));
+        }
+        String large = sb.toString();
+
+        List<String> added = asList("x", large, "y\u017e");
+        added.forEach(set::add);
+
+        assertTrue(set.contains(large));
+        assertTrue(set.contains("y\u017e"));
+        assertEquals(added, new ArrayList<>(set));
+    }
+
+    @Test
+    void testLocatesSpilledModels(@TempDir Path dir) {
+        SpillingCandidateSet<String> set = new SpillingCandidateSet<>(new IdInspector(), 1, dir);
+
+        assertEquals(SpillingCandidateSet.IN_MEMORY, set.addAndLocate("a"));
+        long b = set.addAndLocate("b");
+        assertEquals(SpillingCandidateSet.NOT_ADDED, set.addAndLocate("b"));
+        assertEquals(asList("a", "b"), new ArrayList<>(set));
+
+        // spilling another model after the iteration must not leave the file mapped without it
+        long c = set.addAndLocate("c");
+        assertEquals(asList("a", "b", "c"), new ArrayList<>(set));
+        assertEquals(asList("a", "b", "c"), new ArrayList<>(set));
+
+        SpillingCandidateSet.Positions positions = new SpillingCandidateSet.Positions();
+        positions.add(c);
+        positions.add(b);
+        assertEquals(asList("c", "b"), set.get(positions));
+    }
+
+    @Test
+    void testClearDeletesFile(@TempDir Path dir) throws IOException {
+        SpillingCandidateSet<String> set = new SpillingCandidateSet<>(new IdInspector(), 0, dir);
+        set.add("a");
+        assertTrue(set.isSpilled());
+
+        set.clear();
+
+        assertFalse(set.isSpilled());
+        assertEquals(0, set.size());
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count());
+        }
+
+        set.add("b");
+        assertEquals(asList("b"), new ArrayList<>(set));
+        set.clear();
+    }
+
+    private static final class IdInspector implements ModelInspector<String> {
+        @Override
+        public String toId(String model) {
+            return model;
+        }
+
+        @Override
+        public String fromId(String id) {
+            return id;
+        }
+
+        @Override
+        public TypeElement getJavaLangObjectElement() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Element toElement(String model) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public TypeMirror toMirror(String model) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getUses(String model) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<String> getUseSites(String model) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String fromElement(Element element) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public List<? extends TypeMirror> directSupertypes(TypeMirror type) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean overrides(ExecutableElement overrider, ExecutableElement overridden, TypeElement type) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
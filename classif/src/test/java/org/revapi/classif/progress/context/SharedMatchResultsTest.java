@@ -0,0 +1,168 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress.context;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+import static org.revapi.classif.Classif.annotation;
+import static org.revapi.classif.Classif.attribute;
+import static org.revapi.classif.Classif.extends_;
+import static org.revapi.classif.Classif.match;
+import static org.revapi.classif.Classif.modifiers;
+import static org.revapi.classif.Classif.type;
+import static org.revapi.classif.Classif.value;
+import static org.revapi.classif.match.NameMatch.any;
+import static org.revapi.classif.match.NameMatch.exact;
+import static org.revapi.classif.match.Operator.EQ;
+import static org.revapi.classif.match.declaration.TypeKind.CLASS;
+import static org.revapi.classif.support.Tester.assertNotPassed;
+import static org.revapi.classif.support.Tester.assertPassed;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.revapi.classif.Classif;
+import org.revapi.classif.MirroringModelInspector;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.match.declaration.Modifier;
+import org.revapi.classif.progress.StatementMatch;
+import org.revapi.classif.progress.WorkBudget;
+import org.revapi.classif.statement.AbstractStatement;
+import org.revapi.classif.support.Tester;
+import org.revapi.classif.support.Tester.Hierarchy;
+import org.revapi.testjars.CompiledJar;
+import org.revapi.testjars.junit5.CompiledJarExtension;
+import org.revapi.testjars.junit5.JarSources;
+
+@TestInstance(PER_CLASS)
+@ExtendWith(CompiledJarExtension.class)
+class SharedMatchResultsTest {
+
+    @JarSources(root = "/sources/progress/", sources = {"SingleNodeMatch.java", "Dependencies.java",
+            "Anns.java"})
+    private CompiledJar.Environment env;
+
+    @Test
+    void testStructurallyEqualMatchesEvaluatedOnce() {
+        TypeElement A = env.elements().getTypeElement("Dependencies.A");
+        TypeElement single = env.elements().getTypeElement("SingleNodeMatch");
+
+        // public class Dependencies.* {}
+        AbstractStatement deps = type(CLASS, exact("Dependencies"), any()).$(modifiers(Modifier.PUBLIC)).build();
+        // public class * {}
+        AbstractStatement all = type(CLASS, any()).$(modifiers(Modifier.PUBLIC)).build();
+
+        SharedMatchResults shared = SharedMatchResults.of(asList(deps, all));
+        assertNotNull(shared);
+        // the annotations, modifiers, type kind and the (empty) constraints are shared, only the fqns differ
+        assertEquals(6, shared.getDistinctMatchCount());
+
+        MatchContext<Element> ctx = context(shared).getMatchContext();
+        StatementMatch<Element> depsMatch = deps.createMatch(context(shared));
+        StatementMatch<Element> allMatch = all.createMatch(context(shared));
+
+        shared.start(A);
+        assertPassed(depsMatch.test(A, ctx));
+        assertPassed(allMatch.test(A, ctx));
+        assertEquals(4, shared.getHits());
+        assertEquals(6, shared.getMisses());
+        shared.finish();
+
+        // a different model doesn't see the results of the previous one
+        shared.start(single);
+        assertNotPassed(depsMatch.test(single, ctx));
+        assertPassed(allMatch.test(single, ctx));
+        shared.finish();
+        long hits = shared.getHits();
+
+        // without a started model, nothing is shared
+        assertPassed(allMatch.test(A, ctx));
+        assertEquals(hits, shared.getHits());
+    }
+
+    @Test
+    void testMatchesWithVariablesNotShared() {
+        // class * extends %x {} class * extends %x {}
+        AbstractStatement st1 = type(CLASS, any()).$(extends_(type().ref("x"))).build();
+        AbstractStatement st2 = type(CLASS, any()).$(extends_(type().ref("x"))).build();
+
+        SharedMatchResults shared = SharedMatchResults.of(asList(st1, st2));
+        assertNotNull(shared);
+        // the constraints reference a variable so they are left out
+        assertEquals(4, shared.getDistinctMatchCount());
+
+        assertNull(SharedMatchResults.of(asList(st1)));
+    }
+
+    @Test
+    void testEqualLookingValuesOfDifferentTypesNotShared() {
+        TypeElement X = env.elements().getTypeElement("Anns.X");
+        TypeElement Y = env.elements().getTypeElement("Anns.Y");
+        // @Anns.Ann(v = 1) class ^* {} @Anns.Ann(v = '1') class * {}
+        StructuralMatcher numberReturned = match()
+                .$(type(CLASS, any()).matched().$(ann(value(EQ).number(1))))
+                .$(type(CLASS, any()).$(ann(value(EQ).string("1"))))
+                .build();
+
+        // @Anns.Ann(v = 1) class * {} @Anns.Ann(v = '1') class ^* {}
+        StructuralMatcher stringReturned = match()
+                .$(type(CLASS, any()).$(ann(value(EQ).number(1))))
+                .$(type(CLASS, any()).matched().$(ann(value(EQ).string("1"))))
+                .build();
+
+        // whichever of the values is tested first, the other one must not reuse its result
+        assertEquals(singletonList(X), passed(numberReturned, X, Y));
+        assertEquals(emptyList(), passed(stringReturned, X, Y));
+    }
+
+    private static Classif.AnnotationMatchBuilder ann(Classif.AnnotationValueBuilder value) {
+        return annotation(type().fqn(exact("Anns"), exact("Ann"))).$(attribute(exact("v")).$(value));
+    }
+
+    private List<Element> passed(StructuralMatcher recipe, Element... elements) {
+        Hierarchy.RootBuilder code = Hierarchy.builder();
+        for (Element e : elements) {
+            code.add(e);
+        }
+
+        Map<Element, TestResult> results = Tester.test(env, recipe, code.build());
+        return Stream.of(elements)
+                .filter(e -> results.get(e) == TestResult.PASSED)
+                .collect(toList());
+    }
+
+    private StatementContext<Element> context(SharedMatchResults shared) {
+        return new StatementContext<>(new MirroringModelInspector(env.elements(), env.types()), true, null,
+                emptySet(), WorkBudget.unlimited(), shared, null);
+    }
+}
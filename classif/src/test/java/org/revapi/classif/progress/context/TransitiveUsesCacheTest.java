@@ -0,0 +1,116 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.progress.context;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.nCopies;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+
+import javax.lang.model.type.DeclaredType;
+
+import org.junit.jupiter.api.Test;
+
+class TransitiveUsesCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        TransitiveUsesCache cache = new TransitiveUsesCache(2);
+
+        cache.put("a", emptyList());
+        cache.put("b", emptyList());
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", emptyList());
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictions());
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+        assertEquals(3, cache.getStatistics().getHits());
+        assertEquals(1, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    void testBoundedByTotalClosureSize() {
+        List<DeclaredType> shared = closure(2);
+        TransitiveUsesCache cache = new TransitiveUsesCache(6);
+
+        // a closure cached under several keys is only counted once
+        cache.put("a", shared);
+        cache.put("b", shared);
+        assertEquals(4, cache.size());
+
+        cache.put("c", closure(3));
+        assertEquals(4, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+
+    }
+
+    @Test
+    void testOversizedClosureDoesNotEvictOthers() {
+        TransitiveUsesCache cache = new TransitiveUsesCache(6);
+        cache.put("a", closure(1));
+        cache.put("b", closure(1));
+        cache.put("c", closure(1));
+        assertEquals(6, cache.size());
+
+        // a closure that doesn't fit is not cached at all
+        cache.put("d", closure(6));
+
+        assertEquals(6, cache.size());
+        assertEquals(0, cache.getEvictions());
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+        assertNull(cache.get("d"));
+    }
+
+    @Test
+    void testClearResetsStatistics() {
+        TransitiveUsesCache cache = new TransitiveUsesCache(2);
+        cache.put("a", emptyList());
+        cache.get("a");
+        cache.get("b");
+
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getStatistics().getHits());
+        assertEquals(0, cache.getStatistics().getMisses());
+    }
+
+    @Test
+    void testMaximumSizeMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> new TransitiveUsesCache(0));
+    }
+
+    private static List<DeclaredType> closure(int size) {
+        // only the size matters to the cache
+        return nCopies(size, null);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.statement;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.revapi.classif.TestResult.DEFERRED;
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.TestResult.PASSED;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.statement.EvaluationPlan.Cost;
+
+class EvaluationPlanTest {
+
+    @Test
+    void testStaticOrderRunsCheapSelectiveTestsFirst() {
+        EvaluationPlan plan = new EvaluationPlan();
+        assertNull(plan.getOrder());
+
+        EvaluationPlan.Evaluation<Object> evaluation = plan.evaluation()
+                .add(Cost.CONSTRAINTS, (m, ctx) -> PASSED)
+                .add(Cost.ANNOTATIONS, (m, ctx) -> PASSED)
+                .add(Cost.MODIFIERS, (m, ctx) -> PASSED)
+                .add(Cost.NAME, (m, ctx) -> PASSED);
+
+        assertEquals(PASSED, evaluation.test(new Object(), null));
+        assertArrayEquals(new int[]{3, 2, 1, 0}, plan.getOrder());
+    }
+
+    @Test
+    void testResultIsConjunctionRegardlessOfOrder() {
+        EvaluationPlan plan = new EvaluationPlan();
+        AtomicInteger constraintRuns = new AtomicInteger();
+
+        EvaluationPlan.Evaluation<Object> evaluation = plan.evaluation()
+                .add(Cost.CONSTRAINTS, (m, ctx) -> {
+                    constraintRuns.incrementAndGet();
+                    return DEFERRED;
+                })
+                .add(Cost.NAME, (m, ctx) -> m == null ? NOT_PASSED : PASSED);
+
+        assertEquals(DEFERRED, evaluation.test(new Object(), null));
+        assertEquals(NOT_PASSED, evaluation.test(null, null));
+
+        // the cheap name test failed first, so the constraints were not evaluated the second time
+        assertEquals(1, constraintRuns.get());
+    }
+
+    @Test
+    void testObservedFailuresMoveTestsForward() {
+        EvaluationPlan plan = new EvaluationPlan();
+
+        EvaluationPlan.Evaluation<Object> evaluation = plan.evaluation()
+                // statically cheap and selective, but it lets everything through
+                .add(Cost.NAME, (m, ctx) -> PASSED)
+                // statically expensive, but it rejects everything
+                .add(Cost.CONSTRAINTS, (m, ctx) -> NOT_PASSED);
+
+        assertArrayEquals(new int[]{0, 1}, evaluationOrderAfter(evaluation, plan, 1));
+
+        TestResult res = null;
+        for (int i = 0; i < EvaluationPlan.SAMPLE_INTERVAL * EvaluationPlan.REPLAN_INTERVAL; ++i) {
+            res = evaluation.test(new Object(), null);
+        }
+
+        assertEquals(NOT_PASSED, res);
+        assertArrayEquals(new int[]{1, 0}, plan.getOrder());
+    }
+
+    private static int[] evaluationOrderAfter(EvaluationPlan.Evaluation<Object> evaluation, EvaluationPlan plan,
+            int times) {
+        for (int i = 0; i < times; ++i) {
+            evaluation.test(new Object(), null);
+        }
+        return plan.getOrder();
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2018-2020 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.revapi.classif.support;
+
+import static java.util.Arrays.asList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.TestInstance.Lifecycle.PER_CLASS;
+import static org.revapi.classif.Classif.extends_;
+import static org.revapi.classif.Classif.match;
+import static org.revapi.classif.Classif.method;
+import static org.revapi.classif.Classif.type;
+import static org.revapi.classif.TestResult.NOT_PASSED;
+import static org.revapi.classif.match.NameMatch.any;
+import static org.revapi.classif.match.NameMatch.exact;
+import static org.revapi.classif.match.declaration.TypeKind.ANY;
+import static org.revapi.classif.match.declaration.TypeKind.CLASS;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.lang.model.element.Element;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.revapi.classif.MirroringModelInspector;
+import org.revapi.classif.StructuralMatcher;
+import org.revapi.classif.TestResult;
+import org.revapi.classif.progress.MatchingProgress;
+import org.revapi.classif.progress.WalkInstruction;
+import org.revapi.classif.support.Tester.Hierarchy;
+import org.revapi.testjars.CompiledJar;
+import org.revapi.testjars.junit5.CompiledJarExtension;
+import org.revapi.testjars.junit5.JarSources;
+
+/**
+ * Checks that skipping the children the {@link WalkInstruction walk instructions} say are not worth walking gives the
+ * same results as the full walk done by the {@link Tester}.
+ */
+@TestInstance(PER_CLASS)
+@ExtendWith(CompiledJarExtension.class)
+class PrunedWalkTest {
+
+    @JarSources(root = "/sources/progress/", sources = {"SingleNodeMatch.java", "Dependencies.java"})
+    private CompiledJar.Environment env;
+
+    @Test
+    void testPrunedWalkGivesSameResults() {
+        List<Element> roots = asList(env.elements().getTypeElement("Dependencies"),
+                env.elements().getTypeElement("SingleNodeMatch"));
+
+        Hierarchy.RootBuilder builder = Hierarchy.builder();
+        for (Element root : roots) {
+            add(builder.start(root), root).end();
+        }
+        Hierarchy hierarchy = builder.build();
+
+        List<StructuralMatcher> recipes = asList(
+                // type ^* {}
+                match().$(type(ANY, any()).matched()).build(),
+                // type ^* { <init>(); }
+                match().$(type(ANY, any()).matched().$(method(exact("<init>")))).build(),
+                // type * { ^method1(); }
+                match().$(type(ANY, any()).$(method(exact("method1")).matched())).build(),
+                // type ^%y=* extends %x {} class %x=* {}
+                match()
+                        .$(type(ANY, any()).matched().as("y").$(extends_(type().ref("x"))))
+                        .$(type(CLASS, any()).as("x"))
+                        .build(),
+                // class Dependencies.D { %a ^*(); } class %a=* {}
+                match()
+                        .$(type(CLASS, exact("Dependencies"), exact("D"))
+                                .$(method(any()).matched().returns(type().ref("a"))))
+                        .$(type(CLASS, any()).as("a"))
+                        .build());
+
+        boolean pruned = false;
+        for (StructuralMatcher recipe : recipes) {
+            Map<Element, TestResult> expected = Tester.test(env, recipe, hierarchy);
+            Map<Element, TestResult> actual = walkPruned(recipe, roots);
+
+            Set<Element> all = new HashSet<>(expected.keySet());
+            all.addAll(actual.keySet());
+            for (Element e : all) {
+                // the skipped elements cannot match
+                assertEquals(expected.getOrDefault(e, NOT_PASSED), actual.getOrDefault(e, NOT_PASSED),
+                        () -> "Different result of " + e + " with " + recipe);
+            }
+
+            pruned |= actual.size() < expected.size();
+        }
+
+        assertTrue(pruned);
+    }
+
+    private static <P> Hierarchy.Builder<P> add(Hierarchy.Builder<P> builder, Element element) {
+        for (Element child : element.getEnclosedElements()) {
+            add(builder.start(child), child).end();
+        }
+        return builder;
+    }
+
+    private Map<Element, TestResult> walkPruned(StructuralMatcher recipe, List<Element> roots) {
+        MatchingProgress<Element> progress = recipe.with(new MirroringModelInspector(env.elements(), env.types()));
+        Map<Element, TestResult> ret = new HashMap<>();
+        for (Element root : roots) {
+            walkPruned(progress, root, ret);
+        }
+        ret.putAll(progress.finish());
+        return ret;
+    }
+
+    private static void walkPruned(MatchingProgress<Element> progress, Element element,
+            Map<Element, TestResult> results) {
+        WalkInstruction instruction = progress.start(element);
+        if (instruction.isDescend()) {
+            for (Element child : element.getEnclosedElements()) {
+                if (instruction.isDescendInto(child.getKind())) {
+                    walkPruned(progress, child, results);
+                }
+            }
+        }
+        results.put(element, progress.finish(element));
+    }
+}
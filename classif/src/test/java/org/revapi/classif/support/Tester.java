@@ -16,6 +16,7 @@
  */
 package org.revapi.classif.support;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.revapi.classif.TestResult.DEFERRED;
 import static org.revapi.classif.TestResult.NOT_PASSED;
@@ -25,10 +26,13 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 import javax.lang.model.element.Element;
 
 import org.revapi.classif.progress.MatchingProgress;
+import org.revapi.classif.progress.ReferenceProgress;
+import org.revapi.classif.MatchTrees;
 import org.revapi.classif.MirroringModelInspector;
 import org.revapi.classif.ModelInspector;
 import org.revapi.classif.StructuralMatcher;
@@ -42,17 +46,17 @@ public class Tester {
     }
 
     public static TestResult test(ModelInspector<Element> insp, Element el, StructuralMatcher recipe, Element... nextElements) {
-        MatchingProgress<Element> progress = createMatchingProgress(insp, recipe);
+        return crossCheck(insp, recipe, progress -> {
+            progress.start(el);
+            TestResult res = progress.finish(el);
 
-        progress.start(el);
-        TestResult res = progress.finish(el);
-
-        for (Element e : nextElements) {
-            progress.start(e);
-            progress.finish(e);
-        }
+            for (Element e : nextElements) {
+                progress.start(e);
+                progress.finish(e);
+            }
 
-        return progress.finish().getOrDefault(el, res);
+            return progress.finish().getOrDefault(el, res);
+        });
     }
 
     public static Map<Element, TestResult> test(CompiledJar.Environment env, StructuralMatcher recipe, Hierarchy elementHierarchy) {
@@ -60,16 +64,17 @@ public class Tester {
     }
 
     public static Map<Element, TestResult> test(ModelInspector<Element> insp, StructuralMatcher recipe, Hierarchy elementHierarchy) {
-        MatchingProgress<Element> progress = createMatchingProgress(insp, recipe);
-        Map<Element, TestResult> ret = new HashMap<>();
+        return crossCheck(insp, recipe, progress -> {
+            Map<Element, TestResult> ret = new HashMap<>();
 
-        for (Hierarchy el : elementHierarchy.getChildren()) {
-            test(progress, el, ret);
-        }
+            for (Hierarchy el : elementHierarchy.getChildren()) {
+                test(progress, el, ret);
+            }
 
-        ret.putAll(progress.finish());
+            ret.putAll(progress.finish());
 
-        return ret;
+            return ret;
+        });
     }
 
     private static void test(MatchingProgress<Element> progress, Hierarchy element, Map<Element, TestResult> results) {
@@ -87,17 +92,17 @@ public class Tester {
     }
 
     public static Map<Element, TestResult> testRest(ModelInspector<Element> insp, Element el, StructuralMatcher recipe, Element... nextElements) {
-        MatchingProgress<Element> progress = createMatchingProgress(insp, recipe);
-
-        progress.start(el);
-        progress.finish(el);
+        return crossCheck(insp, recipe, progress -> {
+            progress.start(el);
+            progress.finish(el);
 
-        for (Element e : nextElements) {
-            progress.start(e);
-            progress.finish(e);
-        }
+            for (Element e : nextElements) {
+                progress.start(e);
+                progress.finish(e);
+            }
 
-        return progress.finish();
+            return progress.finish();
+        });
     }
 
     public static TestResult testProgressStart(CompiledJar.Environment env, Element el, StructuralMatcher recipe) {
@@ -105,9 +110,7 @@ public class Tester {
     }
 
     public static TestResult testProgressStart(ModelInspector<Element> insp, Element el, StructuralMatcher recipe) {
-        MatchingProgress<Element> progress = createMatchingProgress(insp, recipe);
-
-        return progress.start(el).getTestResult();
+        return crossCheck(insp, recipe, progress -> progress.start(el).getTestResult());
     }
 
     public static void assertPassed(TestResult res) {
@@ -122,8 +125,18 @@ public class Tester {
         assertSame(DEFERRED, res);
     }
 
-    private static MatchingProgress<Element> createMatchingProgress(ModelInspector<Element> insp, StructuralMatcher matcher) {
-        return matcher.with(insp);
+    /**
+     * Runs the scenario with the matching progress of the matcher and with the reference progress that evaluates
+     * the recipes without variables the same way as the ones with variables. Both need to give the same results.
+     */
+    private static <T> T crossCheck(ModelInspector<Element> insp, StructuralMatcher matcher,
+            Function<MatchingProgress<Element>, T> scenario) {
+        T ret = scenario.apply(matcher.with(insp));
+        T reference = scenario.apply(ReferenceProgress.of(MatchTrees.of(matcher), insp, matcher.getConfiguration()));
+
+        assertEquals(reference, ret, "The matching progress differs from the reference on " + matcher);
+
+        return ret;
     }
 
     private static ModelInspector<Element> inspector(CompiledJar.Environment env) {
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2018-2019 Lukas Krejci
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+
+public class Anns {
+
+    @Retention(RetentionPolicy.RUNTIME)
+    public @interface Ann {
+        int v();
+    }
+
+    @Ann(v = 1)
+    public static class X {
+
+    }
+
+    @Ann(v = 2)
+    public static class Y {
+
+    }
+}